@@ -0,0 +1,40 @@
+package com.debabrata.spotchess.logic;
+
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import com.debabrata.spotchess.types.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation for a single position. The processor writes into the same buffer every time so there's no garbage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveProcessorBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    private Position board;
+    private final long[] moveBuffer = new long[300];
+    private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.getPosition(position);
+    }
+
+    @Benchmark
+    public int addAllLegalMoves() {
+        return processor.addAllLegalMoves(board, 0);
+    }
+
+    @Benchmark
+    public int countLegalMoves() {
+        return processor.countLegalMoves(board);
+    }
+}
@@ -0,0 +1,77 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import com.debabrata.spotchess.types.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluations per second with a network of the usual small size, random weights as there's no trained one around.
+ * "evaluate" is the output layer alone from accumulators that are already there, "moveAndEvaluate" what the search pays
+ * at a leaf: make a move, update the accumulators, evaluate, unmake. It goes through every legal move of the position
+ * once per operation, so divide by the number of moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class NnueBenchmark {
+    private static final int HIDDEN_SIZE = 256;
+
+    @Param({"false", "true"})
+    public boolean vectorised;
+
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    private Position board;
+    private NnueAccumulator accumulator;
+    private final long[] moveBuffer = new long[300];
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        short[] inputWeights = new short[NnueNetwork.INPUTS * HIDDEN_SIZE];
+        short[] hiddenBiases = new short[HIDDEN_SIZE];
+        short[] outputWeights = new short[2 * HIDDEN_SIZE];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(81) - 40);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        NnueNetwork network = new NnueNetwork(HIDDEN_SIZE, inputWeights, hiddenBiases, outputWeights, 0);
+        if (vectorised && NnueOps.get(true) instanceof ScalarNnueOps) {
+            throw new IllegalStateException("Vector API isn't loaded");
+        }
+        accumulator = new NnueAccumulator(network, 1, vectorised);
+        board = BenchmarkPositions.getPosition(position);
+        accumulator.reset(board);
+        moveCount = new MoveProcessor(moveBuffer).addAllLegalMoves(board, 0);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return accumulator.evaluate(board);
+    }
+
+    @Benchmark
+    public int moveAndEvaluate() {
+        int flags = board.getFlags();
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            int taken = board.makeMove(moveBuffer[i]);
+            accumulator.push(board);
+            sum += accumulator.evaluate(board);
+            board.unmakeMove(moveBuffer[i], taken, flags);
+            accumulator.pop();
+        }
+        return sum;
+    }
+}
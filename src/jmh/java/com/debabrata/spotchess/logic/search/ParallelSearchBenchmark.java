@@ -0,0 +1,56 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.records.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of the Lazy SMP search, from an empty transposition table every time, for the thread counts we care
+ * about. The speedup at n threads is the 1 thread time over the n thread time. Run it on a machine with at least as many
+ * cores as threads, the numbers mean nothing otherwise.
+ * <p>
+ * Lazy SMP isn't deterministic, the threads race each other to the table, so it takes a fair number of runs for the
+ * averages to settle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(2)
+public class ParallelSearchBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private Position board;
+    private SearchLimits limits;
+    private ParallelSearcher searcher;
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.getPosition(position);
+        limits = new SearchLimits.Builder().depth(BenchmarkPositions.getSearchDepth(position)).build();
+        searcher = new ParallelSearcher(threads, new TranspositionTable(64));
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        searcher.getTranspositionTable().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        searcher.close();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return searcher.search(board, limits);
+    }
+}
@@ -0,0 +1,37 @@
+package com.debabrata.spotchess.support;
+
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+
+/**
+ * The six standard perft positions, shared by the benchmarks so numbers from different benchmarks can be compared.
+ * Benchmarks pick them with a @Param of "1" to "6".
+ * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft Results - Chess Programming Wiki</a>
+ */
+public class BenchmarkPositions {
+    private static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+
+    /* Depths at which a perft of the position takes tens of milliseconds, long enough to time, short enough to repeat. */
+    private static final int[] PERFT_DEPTHS = { 5, 4, 5, 4, 4, 4 };
+    /* Depths a single searching thread reaches in around a second, with an empty transposition table. */
+    private static final int[] SEARCH_DEPTHS = { 8, 7, 13, 9, 8, 7 };
+
+    public static Position getPosition(String number) {
+        return new FENParser().getGame(FENS[Integer.parseInt(number) - 1]).getCurrentPosition();
+    }
+
+    public static int getPerftDepth(String number) {
+        return PERFT_DEPTHS[Integer.parseInt(number) - 1];
+    }
+
+    public static int getSearchDepth(String number) {
+        return SEARCH_DEPTHS[Integer.parseInt(number) - 1];
+    }
+}
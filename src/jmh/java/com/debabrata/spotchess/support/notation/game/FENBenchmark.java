@@ -0,0 +1,140 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the FENs of a thousand positions along random games, as an EPD suite or a training set would have
+ * them. "getGame" and "getNotation" go through the GameParser methods, a Game and a String each. "getPosition" reads
+ * into a new Position, "setPosition" and "setPositionBytes" into the same one, out of a String each or out of the
+ * bytes of the whole file. "appendNotation" writes into one builder. "legacyGetGame" and "legacyGetNotation" are the
+ * first two with {@link LegacyFENParser}, the Builder and Square based parser before it, to measure against. The
+ * positions counter comes out as positions/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FENBenchmark {
+    private static final int POSITIONS = 1000;
+
+    private final FENParser parser = new FENParser();
+    private final LegacyFENParser legacyParser = new LegacyFENParser();
+    private final String[] fens = new String[POSITIONS];
+    private final Game[] games = new Game[POSITIONS];
+    private final int[] lineStarts = new int[POSITIONS + 1];
+    private final Position position = new Position(GameType.STANDARD);
+    private final StringBuilder written = new StringBuilder();
+    private ByteBuffer file;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long positions;
+    }
+
+    @Setup
+    public void setUp() {
+        Position[] positions = SpotTestSupport.randomGamePositions(0, POSITIONS);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < POSITIONS; i++) {
+            games[i] = new Game(positions[i], 1 + i % 90);
+            fens[i] = parser.getNotation(games[i]);
+            lineStarts[i] = lines.length();
+            lines.append(fens[i]).append('\n');
+        }
+        lineStarts[POSITIONS] = lines.length();
+        file = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public long getGame(Counters counters) {
+        long keys = 0;
+        for (String fen : fens) {
+            keys ^= parser.getGame(fen).getCurrentPosition().getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public long legacyGetGame(Counters counters) {
+        long keys = 0;
+        for (String fen : fens) {
+            keys ^= legacyParser.getGame(fen).getCurrentPosition().getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public long getPosition(Counters counters) {
+        long keys = 0;
+        for (String fen : fens) {
+            keys ^= parser.getPosition(fen, 0, fen.length()).getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public long setPosition(Counters counters) {
+        long keys = 0;
+        for (String fen : fens) {
+            parser.setPosition(position, fen, 0, fen.length());
+            keys ^= position.getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public long setPositionBytes(Counters counters) {
+        long keys = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            parser.setPosition(position, file, lineStarts[i], lineStarts[i + 1] - 1);
+            keys ^= position.getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public int getNotation(Counters counters) {
+        int length = 0;
+        for (Game game : games) {
+            length += parser.getNotation(game).length();
+        }
+        counters.positions += POSITIONS;
+        return length;
+    }
+
+    @Benchmark
+    public int legacyGetNotation(Counters counters) {
+        int length = 0;
+        for (Game game : games) {
+            length += legacyParser.getNotation(game).length();
+        }
+        counters.positions += POSITIONS;
+        return length;
+    }
+
+    @Benchmark
+    public int appendNotation(Counters counters) {
+        written.setLength(0);
+        for (Game game : games) {
+            parser.appendNotation(game.getCurrentPosition(), game.getMoveCount(), written).append('\n');
+        }
+        counters.positions += POSITIONS;
+        return written.length();
+    }
+}
@@ -0,0 +1,112 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes a corpus of a thousand games of random legal moves, about eighty moves each, held in memory so it's
+ * the parsing that's measured rather than the disk. The games and bytes counters come out as games/s and bytes/s,
+ * divide the latter by a million for MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PGNBenchmark {
+    private static final int GAMES = 1000;
+
+    private final List<Game> games = new ArrayList<>();
+    private String corpus;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long games;
+        public long bytes;
+    }
+
+    /* Counts what's written and throws it away. */
+    private static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        StringBuilder written = new StringBuilder();
+        PGNWriter writer = new PGNWriter(new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                written.append(chars, offset, length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        for (int i = 0; i < GAMES; i++) {
+            Game game = SpotTestSupport.randomGame(random, 160);
+            game.setTag("Event", "Random " + i);
+            games.add(game);
+            writer.write(game);
+        }
+        corpus = written.toString();
+    }
+
+    @Benchmark
+    public int read(Counters counters) throws IOException {
+        PGNReader reader = new PGNReader(new StringReader(corpus));
+        int moves = 0;
+        for (Game game = reader.next(); game != null; game = reader.next()) {
+            moves += game.getMoveHistory().size();
+            counters.games++;
+        }
+        counters.bytes += corpus.length();
+        return moves;
+    }
+
+    @Benchmark
+    public long write(Counters counters) throws IOException {
+        CountingWriter counter = new CountingWriter();
+        PGNWriter writer = new PGNWriter(counter);
+        for (Game game : games) {
+            writer.write(game);
+            counters.games++;
+        }
+        counters.bytes += counter.count;
+        return counter.count;
+    }
+}
@@ -0,0 +1,93 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a file of twenty thousand games of random legal moves, about 20 MB, with {@link ParallelPGNReader} and, for
+ * comparison, with a single {@link PGNReader} over the file's channel. The file is read once before measuring, so it's
+ * the page cache rather than the disk being read. The games and bytes counters come out as games/s and bytes/s. The
+ * parameters don't apply to the sequential read, which is there as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelPGNBenchmark {
+    private static final int GAMES = 20000;
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    @Param({ "true", "false" })
+    public boolean ordered;
+
+    private Path file;
+    private long size;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long games;
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("games", ".pgn");
+        Random random = new Random(0);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             PGNWriter writer = new PGNWriter(out)) {
+            for (int i = 0; i < GAMES; i++) {
+                Game game = SpotTestSupport.randomGame(random, 160);
+                game.setTag("Event", "Random " + i);
+                writer.write(game);
+            }
+        }
+        size = Files.size(file);
+        Files.readAllBytes(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int parallel(Counters counters) throws IOException {
+        int moves = 0;
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, threads, ordered)) {
+            for (Game game = reader.next(); game != null; game = reader.next()) {
+                moves += game.getMoveHistory().size();
+                counters.games++;
+            }
+        }
+        counters.bytes += size;
+        return moves;
+    }
+
+    @Benchmark
+    public int sequential(Counters counters) throws IOException {
+        int moves = 0;
+        try (PGNReader reader = new PGNReader(FileChannel.open(file))) {
+            for (Game game = reader.next(); game != null; game = reader.next()) {
+                moves += game.getMoveHistory().size();
+                counters.games++;
+            }
+        }
+        counters.bytes += size;
+        return moves;
+    }
+}
@@ -0,0 +1,122 @@
+package com.debabrata.spotchess.support.notation.move;
+
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a game of 200 random legal plies, or fewer if it ends first, from its SAN. "parse" goes through the String
+ * method with a String per move, as the moves of a parsed file would come, "parseRange" reads them straight out of the
+ * line of movetext. "format" and "formatAppend" write the moves back out, as a String each or into one builder.
+ * "legacyParse" and "legacyFormat" are the first and third with {@link LegacySANParser}, the regular expression based
+ * parser before it, to measure against. The moves counter comes out as moves/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SANParserBenchmark {
+    private static final int PLIES = 200;
+
+    private final SANParser parser = new SANParser();
+    private final LegacySANParser legacyParser = new LegacySANParser();
+    private final long[] moves = new long[PLIES];
+    private final String[] notations = new String[PLIES];
+    private final StringBuilder written = new StringBuilder();
+    private String line;
+    private int moveCount;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long moves;
+    }
+
+    @Setup
+    public void setUp() {
+        long[] played = SpotTestSupport.randomGameMoves(new Random(0), PLIES);
+        Position position = new Position(GameType.STANDARD);
+        StringBuilder builder = new StringBuilder();
+        for (long move : played) {
+            notations[moveCount] = parser.getNotation(position, move);
+            builder.append(notations[moveCount]).append(' ');
+            position.makeMove(move);
+            moves[moveCount++] = move;
+        }
+        line = builder.toString();
+    }
+
+    @Benchmark
+    public long parse(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        for (int i = 0; i < moveCount; i++) {
+            position.makeMove(parser.getMove(position, notations[i]));
+        }
+        counters.moves += moveCount;
+        return position.getKey();
+    }
+
+    @Benchmark
+    public long parseRange(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        for (int start = 0; start < line.length(); start++) {
+            int end = line.indexOf(' ', start);
+            position.makeMove(parser.getMove(position, line, start, end));
+            start = end;
+        }
+        counters.moves += moveCount;
+        return position.getKey();
+    }
+
+    @Benchmark
+    public long legacyParse(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        for (int i = 0; i < moveCount; i++) {
+            position.makeMove(legacyParser.getMove(position, notations[i]));
+        }
+        counters.moves += moveCount;
+        return position.getKey();
+    }
+
+    @Benchmark
+    public int format(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        int length = 0;
+        for (int i = 0; i < moveCount; i++) {
+            length += parser.getNotation(position, moves[i]).length();
+            position.makeMove(moves[i]);
+        }
+        counters.moves += moveCount;
+        return length;
+    }
+
+    @Benchmark
+    public int formatAppend(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        written.setLength(0);
+        for (int i = 0; i < moveCount; i++) {
+            parser.appendNotation(position, moves[i], written);
+            position.makeMove(moves[i]);
+        }
+        counters.moves += moveCount;
+        return written.length();
+    }
+
+    @Benchmark
+    public int legacyFormat(Counters counters) {
+        Position position = new Position(GameType.STANDARD);
+        int length = 0;
+        for (int i = 0; i < moveCount; i++) {
+            length += legacyParser.getNotation(position, moves[i]).length();
+            position.makeMove(moves[i]);
+        }
+        counters.moves += moveCount;
+        return length;
+    }
+}
@@ -0,0 +1,66 @@
+package com.debabrata.spotchess.support.notation.move;
+
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a game the way a GUI's "position startpos moves ..." makes us: parse every move out of the line and make it.
+ * The game is 200 random legal plies, or fewer if it ends first. "replay" is that, "format" is writing the same moves
+ * back out, as for a principal variation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UCIParserBenchmark {
+    private static final int PLIES = 200;
+
+    private final UCIParser parser = new UCIParser();
+    private final long[] moves = new long[PLIES];
+    private final char[] written = new char[5];
+    private String line;
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        long[] played = SpotTestSupport.randomGameMoves(new Random(0), PLIES);
+        Position position = new Position(GameType.STANDARD);
+        StringBuilder builder = new StringBuilder("position startpos moves");
+        for (long move : played) {
+            parser.appendNotation(position, move, builder.append(' '));
+            position.makeMove(move);
+            moves[moveCount++] = move;
+        }
+        line = builder.toString();
+    }
+
+    @Benchmark
+    public long replay() {
+        Position position = new Position(GameType.STANDARD);
+        for (int start = line.indexOf(" moves") + 7; start < line.length(); start++) {
+            int end = line.indexOf(' ', start);
+            end = end < 0 ? line.length() : end;
+            position.makeMove(parser.getMove(position, line, start, end));
+            start = end;
+        }
+        return position.getKey();
+    }
+
+    @Benchmark
+    public int format() {
+        Position position = new Position(GameType.STANDARD);
+        int written = 0;
+        for (int i = 0; i < moveCount; i++) {
+            written += parser.getNotation(position, moves[i], this.written, 0);
+            position.makeMove(moves[i]);
+        }
+        return written;
+    }
+}
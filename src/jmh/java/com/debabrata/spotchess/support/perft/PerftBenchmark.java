@@ -0,0 +1,52 @@
+package com.debabrata.spotchess.support.perft;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import com.debabrata.spotchess.types.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded, unhashed perft of the standard positions at fixed depths. Besides the time per perft, JMH reports
+ * the "nodes" counter as leaf nodes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PerftBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    private Position board;
+    private int depth;
+    private final long[] moveBuffer = new long[300 * 20];
+    private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.getPosition(position);
+        depth = BenchmarkPositions.getPerftDepth(position);
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long result = Perft.perft(processor, moveBuffer, null, board, 0, depth);
+        counter.nodes += result;
+        return result;
+    }
+}
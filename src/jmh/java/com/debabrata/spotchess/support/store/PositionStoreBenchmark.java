@@ -0,0 +1,114 @@
+package com.debabrata.spotchess.support.store;
+
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.test.SpotTestSupport;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the same thousand positions along random games, as a training set would have them, three ways. "fen" sets a
+ * position up out of the bytes of an EPD-like file, as FENBenchmark's setPositionBytes does. "raw" and "packed" get
+ * them out of a memory-mapped PositionStore of each form, in a shuffled order so nothing is read front to back. The
+ * positions counter comes out as positions/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PositionStoreBenchmark {
+    private static final int POSITIONS = 1000;
+
+    private final FENParser parser = new FENParser();
+    private final int[] lineStarts = new int[POSITIONS + 1];
+    private final int[] order = new int[POSITIONS];
+    private final Position position = new Position(GameType.STANDARD);
+    private ByteBuffer file;
+    private Path directory;
+    private PositionStore raw;
+    private PositionStore packed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long positions;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Position[] positions = SpotTestSupport.randomGamePositions(0, POSITIONS);
+        StringBuilder lines = new StringBuilder();
+        directory = Files.createTempDirectory("positions");
+        try (PositionStore raw = PositionStore.create(directory.resolve("raw.bin"), false);
+             PositionStore packed = PositionStore.create(directory.resolve("packed.bin"), true)) {
+            for (int i = 0; i < POSITIONS; i++) {
+                lineStarts[i] = lines.length();
+                parser.appendNotation(positions[i], 1 + i % 90, lines).append('\n');
+                raw.add(positions[i]);
+                packed.add(positions[i]);
+                order[i] = i;
+            }
+        }
+        lineStarts[POSITIONS] = lines.length();
+        file = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+        Random random = new Random(0);
+        for (int i = POSITIONS - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        raw = PositionStore.open(directory.resolve("raw.bin"));
+        packed = PositionStore.open(directory.resolve("packed.bin"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        raw.close();
+        packed.close();
+        Files.delete(directory.resolve("raw.bin"));
+        Files.delete(directory.resolve("packed.bin"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long fen(Counters counters) {
+        long keys = 0;
+        for (int i : order) {
+            parser.setPosition(position, file, lineStarts[i], lineStarts[i + 1] - 1);
+            keys ^= position.getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+
+    @Benchmark
+    public long raw(Counters counters) {
+        return read(raw, counters);
+    }
+
+    @Benchmark
+    public long packed(Counters counters) {
+        return read(packed, counters);
+    }
+
+    private long read(PositionStore store, Counters counters) {
+        long keys = 0;
+        for (int i : order) {
+            store.get(i, position);
+            keys ^= position.getKey();
+        }
+        counters.positions += POSITIONS;
+        return keys;
+    }
+}
@@ -0,0 +1,43 @@
+package com.debabrata.spotchess.types;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes and unmakes every legal move of the position once per operation, so divide the score by the number of legal
+ * moves for the cost of a single make/unmake pair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PositionBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    private Position board;
+    private final long[] moveBuffer = new long[300];
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.getPosition(position);
+        moveCount = new MoveProcessor(moveBuffer).addAllLegalMoves(board, 0);
+    }
+
+    @Benchmark
+    public void makeAndUnmakeMoves(Blackhole blackhole) {
+        int flags = board.getFlags();
+        for (int i = 0; i < moveCount; i++) {
+            int taken = board.makeMove(moveBuffer[i]);
+            blackhole.consume(board.getKey());
+            board.unmakeMove(moveBuffer[i], taken, flags);
+        }
+    }
+}
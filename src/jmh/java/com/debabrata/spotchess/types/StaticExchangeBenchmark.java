@@ -0,0 +1,42 @@
+package com.debabrata.spotchess.types;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.BenchmarkPositions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the static exchange evaluation on every capture and promotion of the position once per operation, the way the
+ * search does for each of them. Divide the score by the number of captures for the cost of one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StaticExchangeBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public String position;
+
+    private Position board;
+    private final long[] moveBuffer = new long[300];
+    private int moveCount;
+
+    @Setup
+    public void setUp() {
+        board = BenchmarkPositions.getPosition(position);
+        MoveProcessor processor = new MoveProcessor(moveBuffer);
+        processor.analysePosition(board);
+        moveCount = processor.addCaptureMoves(0);
+    }
+
+    @Benchmark
+    public void staticExchange(Blackhole blackhole) {
+        for (int i = 0; i < moveCount; i++) {
+            blackhole.consume(board.staticExchange(moveBuffer[i]));
+        }
+    }
+}
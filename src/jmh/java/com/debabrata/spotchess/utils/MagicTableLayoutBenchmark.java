@@ -0,0 +1,144 @@
+package com.debabrata.spotchess.utils;
+
+import com.debabrata.spotchess.types.enums.PieceType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the packed slider tables of RookAndBishopMovesUtil with the layout they replaced. The old layout gave every
+ * square a slice sized for the largest shift and kept moves and pins in separate tables. It's rebuilt here from the same
+ * magics so the only difference is the layout. Scores are per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MagicTableLayoutBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    private final int[] places = new int[LOOKUPS];
+    private final long[] boards = new long[LOOKUPS];
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < LOOKUPS; i++) {
+            places[i] = random.nextInt(64);
+            boards[i] = random.nextLong() & random.nextLong();
+        }
+        LegacyTables.initialize();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void packedRookMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(RookAndBishopMovesUtil.getRookMoves(places[i], boards[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void legacyRookMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(LegacyTables.getRookMoves(places[i], boards[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void packedBishopMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(RookAndBishopMovesUtil.getBishopMoves(places[i], boards[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void legacyBishopMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(LegacyTables.getBishopMoves(places[i], boards[i]));
+        }
+    }
+
+    /* What the move processor does for the king: moves and pins on both axes from one square. */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void packedKingMovesAndPins(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            int rookIndex = RookAndBishopMovesUtil.getRookIndex(places[i], boards[i]);
+            int bishopIndex = RookAndBishopMovesUtil.getBishopIndex(places[i], boards[i]);
+            blackhole.consume(RookAndBishopMovesUtil.getRookMovesAt(rookIndex) ^ RookAndBishopMovesUtil.getRookPinsAt(rookIndex)
+                    ^ RookAndBishopMovesUtil.getBishopMovesAt(bishopIndex) ^ RookAndBishopMovesUtil.getBishopPinsAt(bishopIndex));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void legacyKingMovesAndPins(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            int rookIndex = LegacyTables.getRookIndex(places[i], boards[i]);
+            int bishopIndex = LegacyTables.getBishopIndex(places[i], boards[i]);
+            blackhole.consume(LegacyTables.rookMoves[rookIndex] ^ LegacyTables.rookPins[rookIndex]
+                    ^ LegacyTables.bishopMoves[bishopIndex] ^ LegacyTables.bishopPins[bishopIndex]);
+        }
+    }
+
+    private static class LegacyTables {
+        private static final int ROOK_BITS = 12;
+        private static final int BISHOP_BITS = 9;
+
+        private static final long[] rookMasks = new long[64];
+        private static final long[] bishopMasks = new long[64];
+        private static final long[] rookMoves = new long[64 << ROOK_BITS];
+        private static final long[] rookPins = new long[64 << ROOK_BITS];
+        private static final long[] bishopMoves = new long[64 << BISHOP_BITS];
+        private static final long[] bishopPins = new long[64 << BISHOP_BITS];
+
+        static {
+            for (int place = 0; place < 64; place++) {
+                rookMasks[place] = RookAndBishopMovesUtil.getRookMask(place, RookAndBishopMovesUtil.MaskType.MASK);
+                bishopMasks[place] = RookAndBishopMovesUtil.getBishopMask(place, RookAndBishopMovesUtil.MaskType.MASK);
+                for (long board : BitUtil.getAllPossibleBitCombinations(rookMasks[place])) {
+                    int index = getRookIndex(place, board);
+                    rookMoves[index] = RookAndBishopMovesUtil.getMoves(PieceType.ROOK, place, board);
+                    rookPins[index] = RookAndBishopMovesUtil.getPins(PieceType.ROOK, place, board);
+                }
+                for (long board : BitUtil.getAllPossibleBitCombinations(bishopMasks[place])) {
+                    int index = getBishopIndex(place, board);
+                    bishopMoves[index] = RookAndBishopMovesUtil.getMoves(PieceType.BISHOP, place, board);
+                    bishopPins[index] = RookAndBishopMovesUtil.getPins(PieceType.BISHOP, place, board);
+                }
+            }
+        }
+
+        /* Touching the class is enough to have it set up outside the measured code. */
+        private static void initialize() {
+        }
+
+        private static int getRookIndex(int place, long board) {
+            int index = (int) (((board & rookMasks[place]) * RookAndBishopMovesUtil.getRookMagic(place))
+                    >>> RookAndBishopMovesUtil.getRookShift(place));
+            return index | place << ROOK_BITS;
+        }
+
+        private static int getBishopIndex(int place, long board) {
+            int index = (int) (((board & bishopMasks[place]) * RookAndBishopMovesUtil.getBishopMagic(place))
+                    >>> RookAndBishopMovesUtil.getBishopShift(place));
+            return index | place << BISHOP_BITS;
+        }
+
+        private static long getRookMoves(int place, long board) {
+            return rookMoves[getRookIndex(place, board)];
+        }
+
+        private static long getBishopMoves(int place, long board) {
+            return bishopMoves[getBishopIndex(place, board)];
+        }
+    }
+}
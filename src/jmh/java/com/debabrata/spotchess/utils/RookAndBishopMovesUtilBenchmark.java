@@ -0,0 +1,50 @@
+package com.debabrata.spotchess.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding piece lookups over random boards. Scores are per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RookAndBishopMovesUtilBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    private final int[] places = new int[LOOKUPS];
+    private final long[] boards = new long[LOOKUPS];
+
+    @Setup
+    public void setUp() {
+        /* Fixed seed so every fork looks up the same boards. About a quarter of the squares are occupied, which is
+         * roughly a middle game. */
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < LOOKUPS; i++) {
+            places[i] = random.nextInt(64);
+            boards[i] = random.nextLong() & random.nextLong();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getRookMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(RookAndBishopMovesUtil.getRookMoves(places[i], boards[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void getBishopMoves(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(RookAndBishopMovesUtil.getBishopMoves(places[i], boards[i]));
+        }
+    }
+}
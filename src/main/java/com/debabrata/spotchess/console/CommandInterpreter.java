@@ -1,5 +1,365 @@
 package com.debabrata.spotchess.console;
 
+import com.debabrata.spotchess.logic.nnue.NnueNetwork;
+import com.debabrata.spotchess.logic.search.ParallelSearcher;
+import com.debabrata.spotchess.logic.search.SearchLimits;
+import com.debabrata.spotchess.logic.search.Searcher;
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.notation.move.UCIParser;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.types.records.SearchResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Talks UCI to a GUI or tournament manager. Commands are read and answered on the calling thread, the search runs on a
+ * thread of its own, so stop and isready are answered straight away while it's going on. The search thread prints the
+ * info lines and the best move. After go infinite, or a go with nothing after it, the best move waits for stop even if
+ * the search runs out of things to do first, as UCI wants.
+ * <p>
+ * Options go to EngineSettings. The searcher is built from those settings on the next go after they change.
+ */
 public class CommandInterpreter {
+    private static final int MAX_THREADS = 256;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int DEFAULT_HASH_MB = 16;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final FENParser fenParser = new FENParser();
+    private final UCIParser commandParser = new UCIParser();
+    private final UCIParser searchParser = new UCIParser(); /* Used on the search thread, parsers aren't shared. */
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ParallelSearcher searcher; /* Null till it's needed, and again when the options change. */
+    private Future<?> search; /* Null when no search is going on. */
+    private boolean infinite; /* Whether the search going on holds its best move till stop. */
+    private CountDownLatch stopped; /* Counted down by stop, for an infinite search to print its best move. */
+    private Position position = new Position(GameType.STANDARD);
+    private long[] gameKeys = new long[256]; /* Keys of the positions played to get here, current one last. */
+    private int gameKeyCount;
+
+    public CommandInterpreter(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+        gameKeys[gameKeyCount++] = position.getKey();
+    }
+
+    /**
+     * Reads and answers commands till quit. If the input just ends, as it does when commands are piped in, a search
+     * that's still going on is allowed to finish first.
+     */
+    public void run() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line)) {
+                    return;
+                }
+            }
+            if (!infinite) {
+                waitForSearch(); /* An infinite one is stopped below, it won't finish on its own. */
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stopSearch();
+            if (searcher != null) {
+                searcher.close();
+            }
+            searchThread.shutdownNow();
+        }
+    }
+
+    /**
+     * @return false if the command was quit.
+     */
+    public boolean execute(String line) {
+        line = line.strip();
+        int commandEnd = skipWord(line, 0);
+        switch (line.substring(0, commandEnd)) {
+            case "uci" -> {
+                out.println("id name Spot");
+                out.println("id author Debabrata Roy");
+                out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                out.println("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                out.println("option name EvalFile type string default <empty>");
+                out.println("option name NnueVectorised type check default false");
+                out.println("uciok");
+            }
+            case "isready" -> out.println("readyok");
+            case "ucinewgame" -> {
+                stopSearch();
+                if (searcher != null) {
+                    searcher.getTranspositionTable().clear();
+                }
+                setPosition(new Position(GameType.STANDARD));
+            }
+            case "position" -> {
+                stopSearch();
+                position(line);
+            }
+            case "go" -> {
+                stopSearch();
+                go(line.split("\\s+"));
+            }
+            case "stop" -> stopSearch();
+            case "setoption" -> {
+                stopSearch();
+                setOption(line);
+            }
+            case "quit" -> {
+                stopSearch();
+                return false;
+            }
+            default -> {
+                /* UCI says to ignore anything we don't know. */
+            }
+        }
+        return true;
+    }
+
+    /* Current position, for tests. */
+    Position getPosition() {
+        return new Position(position);
+    }
+
+    /* Waits for the search to finish on its own, which an infinite one doesn't. */
+    void waitForSearch() {
+        if (search == null) {
+            return;
+        }
+        try {
+            search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        search = null;
+    }
+
+    private void stopSearch() {
+        if (search == null) {
+            return;
+        }
+        stopped.countDown();
+        /* The stops were reset before the search was handed over, so this one sticks even if it hasn't got going. */
+        searcher.stop();
+        waitForSearch();
+    }
+
+    /* position [startpos | fen <fen>] [moves <move>...]
+     * The moves can run to hundreds, so they're parsed in place rather than split out. */
+    private void position(String line) {
+        int movesAt = line.indexOf(" moves");
+        String[] tokens = (movesAt < 0 ? line : line.substring(0, movesAt)).split("\\s+");
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            setPosition(new Position(GameType.STANDARD));
+        } else if (tokens.length > 2 && tokens[1].equals("fen")) {
+            Game game = fenParser.getGame(String.join(" ", Arrays.copyOfRange(tokens, 2, tokens.length)));
+            if (game == null) {
+                out.println("info string Invalid FEN, position unchanged");
+                return;
+            }
+            setPosition(game.getCurrentPosition());
+        } else {
+            out.println("info string Expected startpos or fen");
+            return;
+        }
+        if (movesAt < 0) {
+            return;
+        }
+        for (int start = skipSpaces(line, movesAt + 6); start < line.length(); start = skipSpaces(line, start)) {
+            int end = skipWord(line, start);
+            long move = commandParser.getMove(position, line, start, end);
+            if (move == 0) {
+                out.println("info string Illegal move " + line.substring(start, end) + ", ignoring the rest");
+                return;
+            }
+            position.makeMove(move);
+            if (gameKeyCount == gameKeys.length) {
+                gameKeys = Arrays.copyOf(gameKeys, gameKeyCount * 2);
+            }
+            gameKeys[gameKeyCount++] = position.getKey();
+            start = end;
+        }
+    }
+
+    private static int skipSpaces(String line, int at) {
+        while (at < line.length() && Character.isWhitespace(line.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    private static int skipWord(String line, int at) {
+        while (at < line.length() && !Character.isWhitespace(line.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    private void setPosition(Position position) {
+        this.position = position;
+        gameKeyCount = 0;
+        gameKeys[gameKeyCount++] = position.getKey();
+    }
+
+    /* go [depth n] [nodes n] [movetime ms] [wtime ms] [btime ms] [winc ms] [binc ms] [movestogo n] [infinite] */
+    private void go(String[] tokens) {
+        SearchLimits.Builder limits = new SearchLimits.Builder();
+        boolean white = position.whiteToMove();
+        boolean infinite = tokens.length == 1;
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                if (tokens[i].equals("infinite")) {
+                    infinite = true;
+                    continue;
+                }
+                if (i == tokens.length - 1) {
+                    break; /* Everything else needs a value after it. */
+                }
+                switch (tokens[i]) {
+                    case "depth" -> limits.depth(Integer.parseInt(tokens[++i]));
+                    case "nodes" -> limits.nodes(Long.parseLong(tokens[++i]));
+                    case "movetime" -> limits.moveTime(Long.parseLong(tokens[++i]));
+                    case "wtime" -> setIf(white, limits::timeLeft, tokens[++i]);
+                    case "btime" -> setIf(!white, limits::timeLeft, tokens[++i]);
+                    case "winc" -> setIf(white, limits::increment, tokens[++i]);
+                    case "binc" -> setIf(!white, limits::increment, tokens[++i]);
+                    case "movestogo" -> limits.movesToGo(Integer.parseInt(tokens[++i]));
+                    default -> {
+                        /* Anything else we skip. */
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            out.println("info string " + e.getMessage());
+        }
+        if (searcher == null) {
+            searcher = new ParallelSearcher();
+        }
+        Position root = new Position(position);
+        long[] keys = Arrays.copyOf(gameKeys, gameKeyCount);
+        SearchLimits searchLimits = limits.build();
+        ParallelSearcher searcher = this.searcher;
+        boolean holdBestMove = infinite;
+        CountDownLatch stopped = new CountDownLatch(1);
+        searcher.setListener(result -> out.println(info(root, result)));
+        searcher.prepare();
+        this.infinite = infinite;
+        this.stopped = stopped;
+        search = searchThread.submit(() -> {
+            long bestMove = 0;
+            try {
+                bestMove = searcher.search(root, keys, keys.length, searchLimits).bestMove();
+            } catch (RuntimeException e) {
+                out.println("info string Search failed: " + e);
+            }
+            if (holdBestMove) {
+                try {
+                    stopped.await(); /* The search can end early, on a mate found or no moves at all. */
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder answer = new StringBuilder("bestmove ");
+            if (bestMove == 0) {
+                answer.append("0000");
+            } else {
+                searchParser.appendNotation(root, bestMove, answer);
+            }
+            out.println(answer);
+        });
+    }
+
+    private static void setIf(boolean forUs, LongFunction<SearchLimits.Builder> setter, String value) {
+        long millis = Long.parseLong(value);
+        if (forUs) {
+            setter.apply(Math.max(millis, 1)); /* 0 would mean no clock at all. */
+        }
+    }
+
+    private String info(Position root, SearchResult result) {
+        StringBuilder info = new StringBuilder("info depth ").append(result.depth());
+        int score = result.score();
+        if (Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY) {
+            int moves = (Searcher.MATE - Math.abs(score) + 1) / 2;
+            info.append(" score mate ").append(score > 0 ? moves : -moves);
+        } else {
+            info.append(" score cp ").append(score);
+        }
+        info.append(" nodes ").append(result.nodes())
+                .append(" nps ").append(result.nodesPerSecond())
+                .append(" time ").append(result.timeMillis())
+                .append(" pv");
+        Position line = new Position(root);
+        for (long move : result.principalVariation()) {
+            searchParser.appendNotation(line, move, info.append(' '));
+            line.makeMove(move);
+        }
+        return info.toString();
+    }
+
+    /* setoption name <name> [value <value>] */
+    private void setOption(String line) {
+        int nameAt = line.indexOf(" name ");
+        if (nameAt < 0) {
+            return;
+        }
+        int valueAt = line.indexOf(" value ", nameAt);
+        String name = (valueAt < 0 ? line.substring(nameAt + 6) : line.substring(nameAt + 6, valueAt)).trim();
+        String value = valueAt < 0 ? "" : line.substring(valueAt + 7).trim();
+        try {
+            switch (name.toLowerCase()) {
+                case "threads" -> EngineSettings.setThreadCount(
+                        Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value))));
+                case "hash" -> EngineSettings.setTtTableSizeMb(
+                        Math.max(1, Math.min(MAX_HASH_MB, Integer.parseInt(value))));
+                case "evalfile" -> setEvalFile(value);
+                case "nnuevectorised" -> EngineSettings.setNnueVectorised(Boolean.parseBoolean(value));
+                default -> {
+                    out.println("info string No such option " + name);
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            out.println("info string " + name + " needs a number, got " + value);
+            return;
+        }
+        if (searcher != null) {
+            searcher.close();
+            searcher = null;
+        }
+    }
 
+    private void setEvalFile(String file) {
+        EngineSettings.setNnueFile(file.isEmpty() || file.equals("<empty>") ? null : file);
+        try {
+            NnueNetwork.getConfigured();
+        } catch (UncheckedIOException e) {
+            out.println("info string " + e.getMessage() + ", using the regular evaluation");
+            EngineSettings.setNnueFile(null);
+        }
+    }
 }
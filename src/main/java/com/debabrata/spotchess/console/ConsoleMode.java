@@ -7,8 +7,15 @@ import com.debabrata.spotchess.types.Game;
 import java.util.stream.IntStream;
 
 public class ConsoleMode {
+    /**
+     * With a FEN, a depth and the expected count, checks perft for the position. Otherwise talks UCI on the console.
+     */
     public void runREPL(String [] args) {
-        perft(args[0], Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        if (args.length == 3) {
+            perft(args[0], Integer.parseInt(args[1]), Long.parseLong(args[2]));
+            return;
+        }
+        new CommandInterpreter(System.in, System.out).run();
     }
 
     public void clearConsole() {
@@ -0,0 +1,13 @@
+package com.debabrata.spotchess.constants;
+
+public class EvaluationConstants {
+
+    /* Piece values in centipawns. */
+    public static final int PAWN_VALUE   = 100;
+    public static final int KNIGHT_VALUE = 320;
+    public static final int BISHOP_VALUE = 330;
+    public static final int ROOK_VALUE   = 500;
+    public static final int QUEEN_VALUE  = 900;
+    /* Only for exchanges, where a king never gets taken and only takes last. Big enough that anything goes to save it. */
+    public static final int KING_VALUE   = 20000;
+}
@@ -3,6 +3,7 @@ package com.debabrata.spotchess.logic;
 import com.debabrata.spotchess.types.Position;
 import com.debabrata.spotchess.types.enums.PieceType;
 import com.debabrata.spotchess.utils.BitUtil;
+import com.debabrata.spotchess.utils.CompactMoveUtil;
 import com.debabrata.spotchess.utils.KingAndKnightMovesUtil;
 import com.debabrata.spotchess.utils.MoveInitUtil;
 import com.debabrata.spotchess.utils.RookAndBishopMovesUtil;
@@ -13,6 +14,7 @@ import java.util.stream.Collectors;
 
 public final class MoveProcessor {
     private final long[] moveBuffer;
+    private short[] compactMoves; /* Where moves go instead of moveBuffer, when they're wanted in 16 bits. */
     private int writePosition;
 
     /* Frequently reused values. */
@@ -41,6 +43,19 @@ public final class MoveProcessor {
 
     private boolean bishopChecksSkipped;
     private boolean rookChecksSkipped;
+    /* Table indexes for the king's square, so processPinnedPieces can look up pins without redoing the multiply. Only
+     * valid when the matching checks weren't skipped. */
+    private int kingBishopIndex;
+    private int kingRookIndex;
+
+    /* Squares the king can't step on. Only worked out when the king's moves are needed. */
+    private long enemyAttacks;
+
+    /* What we're generating. Moves of everything but pawns pushing forward need to land on targets. Pawn pushes need to
+     * land on pushTargets, as pushes to the last rank are promotions and go with the captures. Castles only go with
+     * moves to empty squares. */
+    private long targets;
+    private long pushTargets;
 
     /* Relates to pinned pieces. */
     private long pinnedPieces;
@@ -60,7 +75,29 @@ public final class MoveProcessor {
      */
     public int addAllLegalMoves(Position position, int writePos) {
         prepare(position, writePos);
+        return addAllLegalMoves();
+    }
+
+    /**
+     * Same as {@link #addAllLegalMoves(Position, int)} but the moves are written to compactMoves in the 16 bit form of
+     * {@link CompactMoveUtil}, straight as they're generated. This processor's own buffer isn't touched.
+     *
+     * @return position on compactMoves where new moves can be written.
+     */
+    public int addAllLegalMoves(Position position, short[] compactMoves, int writePos) {
+        prepare(position, writePos);
+        this.compactMoves = compactMoves;
+        try {
+            return addAllLegalMoves();
+        } finally {
+            this.compactMoves = null;
+        }
+    }
+
+    private int addAllLegalMoves() {
         processChecks();
+        targets = 0xFFFFFFFFFFFFFFFFL;
+        pushTargets = 0xFFFFFFFFFFFFFFFFL;
         if(isCheck) {
             if(checkBlock == 0) {
                 addKingMoves();
@@ -79,6 +116,116 @@ public final class MoveProcessor {
         return writePosition;
     }
 
+    /**
+     * Does the check and pin analysis of the position for {@link #addCaptureMoves}, {@link #addQuietMoves} and
+     * {@link #isLegal} to use. Those can then be called any number of times and in any order, as long as the position
+     * doesn't change and nothing else uses this processor in between. A search keeps one processor per ply for this.
+     */
+    public void analysePosition(Position position) {
+        prepare(position, 0);
+        processChecks();
+        if (!isCheck || checkBlock != 0) {
+            processPinnedPieces();
+        }
+        enemyAttacks = enemyAttacks();
+    }
+
+    /**
+     * Writes the legal captures, en-passants and promotions, including the ones that don't capture, in the position
+     * last given to {@link #analysePosition}.
+     *
+     * @return position on moveBuffer where new moves can be written.
+     */
+    public int addCaptureMoves(int writePos) {
+        return addAnalysedMoves(writePos, enemyPieces, whiteToMove ? 0xFF00000000000000L : 0x00000000000000FFL);
+    }
+
+    /**
+     * Writes the legal moves that {@link #addCaptureMoves} doesn't, in the position last given to
+     * {@link #analysePosition}.
+     *
+     * @return position on moveBuffer where new moves can be written.
+     */
+    public int addQuietMoves(int writePos) {
+        return addAnalysedMoves(writePos, ~allPieces, whiteToMove ? 0x00FFFFFFFFFFFFFFL : 0xFFFFFFFFFFFFFF00L);
+    }
+
+    /**
+     * Tells if a move, say from a hash table or another branch of the search, is legal in the position last given to
+     * {@link #analysePosition}. It generates the moves to the square the move lands on and looks for it among them.
+     *
+     * @param scratchPos where on the moveBuffer those moves can be written, they aren't needed after.
+     */
+    public boolean isLegal(long move, int scratchPos) {
+        if (move == 0) {
+            return false;
+        }
+        long squares = move;
+        if (MoveInitUtil.isSpecialMove(move)) {
+            if (MoveInitUtil.isCastle(move)) {
+                /* Castles land on an empty square, and we only need any one for addAnalysedMoves to add castles. */
+                return !isCheck && (MoveInitUtil.isLeftCastle(move) ? canLeftCastle(enemyAttacks)
+                        : canRightCastle(enemyAttacks));
+            }
+            squares = MoveInitUtil.isPromotion(move) ? MoveInitUtil.getPromotionMove(move, whiteToMove)
+                    : move & 0x00FFFFFFFFFFFF00L;
+        }
+        long to = squares & ~ourPieces;
+        if (to == 0 || (to & (to - 1)) != 0) {
+            return false;
+        }
+        if (to == epTo && pawnPushedTwice != 0) {
+            to = to | pawnPushedTwice; /* En-passant captures are generated when the captured pawn is a target. */
+        }
+        int end = addAnalysedMoves(scratchPos, to, to);
+        for (int i = scratchPos; i < end; i++) {
+            if (moveBuffer[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int addAnalysedMoves(int writePos, long targets, long pushTargets) {
+        this.writePosition = writePos;
+        this.targets = targets;
+        this.pushTargets = pushTargets;
+        if (isCheck) {
+            addKingMoves(enemyAttacks);
+            if (checkBlock != 0) {
+                addBlockingMoves();
+            }
+            return writePosition;
+        }
+        addKingMoves(enemyAttacks);
+        addPawnMoves();
+        addPieceMoves();
+        addPinnedPieceMoves();
+        return writePosition;
+    }
+
+    /**
+     * Counts the legal moves in the position without writing any of them. Goes through the same check and pin analysis as
+     * {@link #addAllLegalMoves} but mostly just counts the bits on destination bitboards. Meant for perft leaves and
+     * mobility, where we don't care what the moves are.
+     *
+     * @return number of legal moves in the position, same as what addAllLegalMoves would have written.
+     */
+    public int countLegalMoves(Position position) {
+        prepare(position, this.writePosition);
+        processChecks();
+        if(isCheck) {
+            if(checkBlock == 0) {
+                return countKingMoves();
+            }
+            processPinnedPieces();
+            return countKingMoves() + countPawnMoves(checkBlock) + countPieceMoves(checkBlock);
+        }
+        processPinnedPieces();
+        return countKingMoves() + countPawnMoves(0xFFFFFFFFFFFFFFFFL) + countPieceMoves(0xFFFFFFFFFFFFFFFFL)
+                + countPinnedPieceMoves();
+    }
+
     public boolean isCheck(Position position) {
         prepare(position, this.writePosition);
         processChecks();
@@ -209,7 +356,8 @@ public final class MoveProcessor {
         attacker = rookType & enemyPieces & RookAndBishopMovesUtil.getRookMask(kingPlace);
         if (attacker != 0) {
             rookChecksSkipped = false;
-            kingAttack = RookAndBishopMovesUtil.getKingRookMoves(kingPlace, allPieces);
+            kingRookIndex = RookAndBishopMovesUtil.getRookIndex(kingPlace, allPieces);
+            kingAttack = RookAndBishopMovesUtil.getRookMovesAt(kingRookIndex);
             attacker = kingAttack & attacker;
             if (attacker != 0) {
                 if (isCheck) {
@@ -238,7 +386,8 @@ public final class MoveProcessor {
         attacker = bishopType & enemyPieces & RookAndBishopMovesUtil.getBishopMask(kingPlace);
         if (attacker != 0) {
             bishopChecksSkipped = false;
-            kingAttack = RookAndBishopMovesUtil.getKingBishopMoves(kingPlace, allPieces);
+            kingBishopIndex = RookAndBishopMovesUtil.getBishopIndex(kingPlace, allPieces);
+            kingAttack = RookAndBishopMovesUtil.getBishopMovesAt(kingBishopIndex);
             attacker = kingAttack & attacker; /* There can only be one at max. */
             if (attacker != 0) {
                 if (isCheck) {
@@ -290,7 +439,7 @@ public final class MoveProcessor {
 
         /* Diagonal pins. */
         if (!bishopChecksSkipped) {
-            long diagonallyClosePairs = RookAndBishopMovesUtil.getCachedBishopPins();
+            long diagonallyClosePairs = RookAndBishopMovesUtil.getBishopPinsAt(kingBishopIndex);
 
             long nonCheckingEnemyBishops = diagonallyClosePairs & bishopType & enemyPieces & ~checkBlock; /* Enemy bishop currently not giving check, in pair adjacent pieces. */
             if (nonCheckingEnemyBishops != 0) {
@@ -305,7 +454,7 @@ public final class MoveProcessor {
 
         /* Lateral pins. */
         if (!rookChecksSkipped) {
-            long laterallyClosePairs = RookAndBishopMovesUtil.getCachedRookPins();
+            long laterallyClosePairs = RookAndBishopMovesUtil.getRookPinsAt(kingRookIndex);
 
             long nonCheckingEnemyRooks = laterallyClosePairs & rookType & enemyPieces & ~checkBlock;
             if (nonCheckingEnemyRooks != 0) { /* Enemy rook currently not giving check, among the pair adjacent pieces. */
@@ -390,34 +539,70 @@ public final class MoveProcessor {
         return enemyAttacks;
     }
 
+    /* Every generated move comes through here. The branch always goes the same way for a whole generation, so it's
+     * next to free. */
+    private void addMove(long move) {
+        if (compactMoves == null) {
+            moveBuffer[writePosition++] = move;
+        } else {
+            compactMoves[writePosition++] = CompactMoveUtil.toCompact(move);
+        }
+    }
+
     private void addMoves(long from, long tos) {
         for(; tos != 0; tos &= (tos - 1)) {
             long to = tos & -tos;
-            moveBuffer[writePosition++] = MoveInitUtil.newMove(from, to);
+            addMove(MoveInitUtil.newMove(from, to));
         }
     }
 
     private void addKingMoves() {
-        long enemyAttacks = enemyAttacks();
+        addKingMoves(enemyAttacks());
+    }
 
+    private void addKingMoves(long enemyAttacks) {
         /* Adding regular moves. */
-        long reachable = ~ourPieces & ~enemyAttacks & KingAndKnightMovesUtil.getKingMoves(kingPlace);
+        long reachable = targets & ~ourPieces & ~enemyAttacks & KingAndKnightMovesUtil.getKingMoves(kingPlace);
         addMoves(ourKing, reachable);
-        if (isCheck) return;
+        if (isCheck || (targets & ~allPieces) == 0) return;
 
         /* Adding castling moves. */
-        if(canLeftCastle) {
-            long leftCastleBits = whiteToMove ? 0x0000000000000070L : 0x7000000000000000L;
-            if ((leftCastleBits & allPieces) == 0 && (leftCastleBits & 0x3000000000000030L & enemyAttacks) == 0) {
-                moveBuffer[writePosition++] = MoveInitUtil.newLeftCastle();
-            }
+        if(canLeftCastle(enemyAttacks)) {
+            addMove(MoveInitUtil.newLeftCastle());
         }
-        if(canRightCastle) {
-            long rightCastleBits = whiteToMove ? 0x0000000000000006L : 0x0600000000000000L;
-            if ((rightCastleBits & allPieces) == 0 && (rightCastleBits & enemyAttacks) == 0) {
-                moveBuffer[writePosition++] = MoveInitUtil.newRightCastle();
-            }
+        if(canRightCastle(enemyAttacks)) {
+            addMove(MoveInitUtil.newRightCastle());
+        }
+    }
+
+    private int countKingMoves() {
+        long enemyAttacks = enemyAttacks();
+        int count = Long.bitCount(~ourPieces & ~enemyAttacks & KingAndKnightMovesUtil.getKingMoves(kingPlace));
+        if (isCheck) return count;
+
+        if(canLeftCastle(enemyAttacks)) {
+            count++;
+        }
+        if(canRightCastle(enemyAttacks)) {
+            count++;
+        }
+        return count;
+    }
+
+    private boolean canLeftCastle(long enemyAttacks) {
+        if (!canLeftCastle) {
+            return false;
+        }
+        long leftCastleBits = whiteToMove ? 0x0000000000000070L : 0x7000000000000000L;
+        return (leftCastleBits & allPieces) == 0 && (leftCastleBits & 0x3000000000000030L & enemyAttacks) == 0;
+    }
+
+    private boolean canRightCastle(long enemyAttacks) {
+        if (!canRightCastle) {
+            return false;
         }
+        long rightCastleBits = whiteToMove ? 0x0000000000000006L : 0x0600000000000000L;
+        return (rightCastleBits & allPieces) == 0 && (rightCastleBits & enemyAttacks) == 0;
     }
 
     /**
@@ -442,12 +627,12 @@ public final class MoveProcessor {
 
     private void addPawnMovesToArr(long from, long to) {
         if ((to & 0xFF000000000000FFL) != 0) {
-            moveBuffer[writePosition++] = MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.QUEEN);
-            moveBuffer[writePosition++] = MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.KNIGHT);
-            moveBuffer[writePosition++] = MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.BISHOP);
-            moveBuffer[writePosition++] = MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.ROOK);
+            addMove(MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.QUEEN));
+            addMove(MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.KNIGHT));
+            addMove(MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.BISHOP));
+            addMove(MoveInitUtil.newPawnPromotion(from, to, whiteToMove, PieceType.ROOK));
         } else {
-            moveBuffer[writePosition++] = MoveInitUtil.newMove(from, to);
+            addMove(MoveInitUtil.newMove(from, to));
         }
     }
 
@@ -455,7 +640,7 @@ public final class MoveProcessor {
         long nonPinnedEp = epTakers & (~pinnedPieces);
         for(long epTaker = nonPinnedEp; epTaker != 0; epTaker &= (epTaker -1)) {
             long from = epTaker & -epTaker;
-            moveBuffer[writePosition++] = MoveInitUtil.newEnPassant(from, epTo);
+            addMove(MoveInitUtil.newEnPassant(from, epTo));
         }
     }
 
@@ -463,14 +648,14 @@ public final class MoveProcessor {
         for(; tos != 0; tos &= (tos - 1), froms &= (froms - 1)) {
             long to = tos & -tos;
             long from = froms & -froms;
-            moveBuffer[writePosition++] = MoveInitUtil.newPawnDoubleMove(from, to);
+            addMove(MoveInitUtil.newPawnDoubleMove(from, to));
         }
     }
 
     private void addPawnMoves(long range) {
         long ourPawns = pawns & ourPieces & ~pinnedPieces;
-        long enemyInRange = range & enemyPieces;
-        long freeRange = range & ~allPieces;
+        long enemyInRange = range & enemyPieces & targets;
+        long freeRange = range & ~allPieces & pushTargets;
 
         if (whiteToMove) {
             long step1 = ourPawns << 8;
@@ -502,11 +687,43 @@ public final class MoveProcessor {
         }
     }
 
+    /* Same as addPawnMoves(range) but counts. A move to the last rank counts four times, once per promotion. */
+    private int countPawnMoves(long range) {
+        long ourPawns = pawns & ourPieces & ~pinnedPieces;
+        long enemyInRange = range & enemyPieces;
+        long freeRange = range & ~allPieces;
+
+        long step1, step2, take1, take2;
+        if (whiteToMove) {
+            step1 = ourPawns << 8;
+            step2 = (step1 & ~allPieces & 0x0000000000FF0000L) << 8;
+            take1 = (ourPawns << 9) & 0xFEFEFEFEFEFEFEFEL & enemyInRange;
+            take2 = (ourPawns << 7) & 0x7F7F7F7F7F7F7F7FL & enemyInRange;
+        } else {
+            step1 = ourPawns >>> 8;
+            step2 = (step1 & ~allPieces & 0x0000FF0000000000L) >>> 8;
+            take1 = (ourPawns >>> 9) & 0x7F7F7F7F7F7F7F7FL & enemyInRange;
+            take2 = (ourPawns >>> 7) & 0xFEFEFEFEFEFEFEFEL & enemyInRange;
+        }
+        step1 = step1 & freeRange;
+        step2 = step2 & freeRange;
+        int count = countPawnTargets(step1) + Long.bitCount(step2) + countPawnTargets(take1) + countPawnTargets(take2);
+        if ((enemyInRange & pawnPushedTwice) != 0) {
+            count = count + Long.bitCount(epTakers & ~pinnedPieces);
+        }
+        return count;
+    }
+
+    private static int countPawnTargets(long tos) {
+        return Long.bitCount(tos) + 3 * Long.bitCount(tos & 0xFF000000000000FFL);
+    }
+
     private void addPieceMoves() {
         addPieceMoves(0xFFFFFFFFFFFFFFFFL);
     }
 
     private void addPieceMoves(long range) {
+        range = range & targets;
         for(long bishops = bishopType & ourPieces & ~pinnedPieces; bishops != 0; bishops &= (bishops - 1)) {
             long from = bishops & -bishops;
             int place = BitUtil.getLastBitPlaceValue(from);
@@ -527,7 +744,27 @@ public final class MoveProcessor {
         }
     }
 
-    private void addPinnedPieceMoves() {
+    private int countPieceMoves(long range) {
+        int count = 0;
+        long reachable = range & ~ourPieces;
+        for(long bishops = bishopType & ourPieces & ~pinnedPieces; bishops != 0; bishops &= (bishops - 1)) {
+            int place = BitUtil.getLastBitPlaceValue(bishops);
+            count = count + Long.bitCount(reachable & RookAndBishopMovesUtil.getBishopMoves(place, allPieces));
+        }
+        for(long rooks = rookType & ourPieces & ~pinnedPieces; rooks != 0; rooks &= (rooks - 1)) {
+            int place = BitUtil.getLastBitPlaceValue(rooks);
+            count = count + Long.bitCount(reachable & RookAndBishopMovesUtil.getRookMoves(place, allPieces));
+        }
+        for(long kinghts = knights & ourPieces & ~pinnedPieces; kinghts != 0; kinghts &= (kinghts - 1)) {
+            int place = BitUtil.getLastBitPlaceValue(kinghts);
+            count = count + Long.bitCount(reachable & KingAndKnightMovesUtil.getKnightMoves(place));
+        }
+        return count;
+    }
+
+    /* Same as addPinnedPieceMoves but counts. Pins are rare enough that it's not worth being any cleverer here. */
+    private int countPinnedPieceMoves() {
+        int count = 0;
         for(int i = 0; i < pinCount; i++) {
             boolean bishopTypePin = bishopPin[i];
             long pair = pinPairList[i];
@@ -537,19 +774,19 @@ public final class MoveProcessor {
             if ((pinned & pawns) != 0) { /* Pinned piece is a pawn. */
                 int from = BitUtil.getLastBitPlaceValue(pinned);
                 if (!bishopTypePin) {
-                    if (((from ^ kingPlace) & 7) == 0) { /* Same column. Adding pawn forward moves. */
+                    if (((from ^ kingPlace) & 7) == 0) { /* Same column. Counting pawn forward moves. */
                         if (whiteToMove) {
                             if (((pinned << 8) & allPieces) == 0) {
-                                moveBuffer[writePosition++] = MoveInitUtil.newMove(pinned, pinned << 8);
+                                count++;
                                 if ((((pinned & 0x000000000000FF00L) << 16) & ~allPieces) != 0) {
-                                    moveBuffer[writePosition++] = MoveInitUtil.newPawnDoubleMove(pinned, pinned << 16);
+                                    count++;
                                 }
                             }
                         } else {
                             if (((pinned >>> 8) & allPieces) == 0) {
-                                moveBuffer[writePosition++] = MoveInitUtil.newMove(pinned, pinned >>> 8);
+                                count++;
                                 if ((((pinned & 0x00FF000000000000L ) >>> 16) & ~allPieces) != 0) {
-                                    moveBuffer[writePosition++] = MoveInitUtil.newPawnDoubleMove(pinned, pinned >>> 16);
+                                    count++;
                                 }
                             }
                         }
@@ -557,19 +794,90 @@ public final class MoveProcessor {
                 } else { /* Pinned by bishop. */
                     if (whiteToMove) {
                         if ((pinned << 7) == pinner || (pinned << 9) == pinner) {
-                            addPawnMoves(pinned, pinner);
+                            count = count + countPawnTargets(pinner);
                         }
                     } else {
                         if ((pinned >>> 7) == pinner || (pinned >>> 9) == pinner) {
-                            addPawnMoves(pinned, pinner);
+                            count = count + countPawnTargets(pinner);
                         }
                     }
                     if (pawnPushedTwice != 0 && (epTakers & pinned) != 0) {
+                        int pinnerInt = BitUtil.getLastBitPlaceValue(pinner);
+                        int to = BitUtil.getLastBitPlaceValue(epTo);
+                        if (((pinnerInt & 7) - (to & 7)) == ((pinnerInt >> 3) - (to >> 3)) || ((pinnerInt - to) & 7) + ((pinnerInt >> 3) - (to >> 3)) == 0) {
+                            count++;
+                        }
+                    }
+                }
+            } else {
+                int shift = 0;
+                int from = BitUtil.getLastBitPlaceValue(pinned);
+                if ((pair & rookType) == pair && !bishopTypePin) { /* Both are rook type. */
+                    shift = ((from ^ kingPlace) & 7) == 0 ? 8 : 1;
+                } else if ((pair & bishopType) == pair && bishopTypePin) { /* Both are bishop type. */
+                    shift = ((from & 7)-(kingPlace & 7)) == ((from >>> 3) - (kingPlace >>> 3)) ? 9 : 7;
+                }
+                if (shift != 0) {
+                    long range = ourKing | pinner;
+                    for (long to = pinned >>> shift; (to & range) == 0; to = to >>> shift) {
+                        count++;
+                    }
+                    for (long to = pinned << shift; (to & range) == 0; to = to << shift) {
+                        count++;
+                    }
+                    count++; /* Taking the pinner. */
+                }
+            }
+        }
+        return count;
+    }
+
+    private void addPinnedPieceMoves() {
+        for(int i = 0; i < pinCount; i++) {
+            boolean bishopTypePin = bishopPin[i];
+            long pair = pinPairList[i];
+            long pinned = pair & ourPieces;
+            long pinner = pair & enemyPieces;
+
+            if ((pinned & pawns) != 0) { /* Pinned piece is a pawn. */
+                int from = BitUtil.getLastBitPlaceValue(pinned);
+                if (!bishopTypePin) {
+                    /* Same column. Adding pawn forward moves, which can't be promotions as the pinner would be in the way. */
+                    if (((from ^ kingPlace) & 7) == 0) {
+                        if (whiteToMove) {
+                            if (((pinned << 8) & allPieces) == 0) {
+                                addPinnedPieceMove(pinned, pinned << 8);
+                                if ((((pinned & 0x000000000000FF00L) << 16) & ~allPieces & pushTargets) != 0) {
+                                    addMove(MoveInitUtil.newPawnDoubleMove(pinned, pinned << 16));
+                                }
+                            }
+                        } else {
+                            if (((pinned >>> 8) & allPieces) == 0) {
+                                addPinnedPieceMove(pinned, pinned >>> 8);
+                                if ((((pinned & 0x00FF000000000000L ) >>> 16) & ~allPieces & pushTargets) != 0) {
+                                    addMove(MoveInitUtil.newPawnDoubleMove(pinned, pinned >>> 16));
+                                }
+                            }
+                        }
+                    }
+                } else { /* Pinned by bishop. */
+                    if ((pinner & targets) != 0) {
+                        if (whiteToMove) {
+                            if ((pinned << 7) == pinner || (pinned << 9) == pinner) {
+                                addPawnMoves(pinned, pinner);
+                            }
+                        } else {
+                            if ((pinned >>> 7) == pinner || (pinned >>> 9) == pinner) {
+                                addPawnMoves(pinned, pinner);
+                            }
+                        }
+                    }
+                    if (pawnPushedTwice != 0 && (epTakers & pinned) != 0 && (pawnPushedTwice & targets) != 0) {
                         int pinnerInt = BitUtil.getLastBitPlaceValue(pinner);
                         int to = BitUtil.getLastBitPlaceValue(epTo);
                         if (((pinnerInt & 7) - (to & 7)) == ((pinnerInt >> 3) - (to >> 3)) || ((pinnerInt - to) & 7) + ((pinnerInt >> 3) - (to >> 3)) == 0) {
                             /* The en-passant to position shares a diagonal with the pinner as well. */
-                            moveBuffer[writePosition++] = MoveInitUtil.newEnPassant(pinned, epTo);
+                            addMove(MoveInitUtil.newEnPassant(pinned, epTo));
                         }
                     }
                 }
@@ -584,14 +892,20 @@ public final class MoveProcessor {
                 if (shift != 0) {
                     long range = ourKing | pinner;
                     for (long to = pinned >>> shift; (to & range) == 0; to = to >>> shift) {
-                        moveBuffer[writePosition++] = MoveInitUtil.newMove(pinned, to);
+                        addPinnedPieceMove(pinned, to);
                     }
                     for (long to = pinned << shift; (to & range) == 0; to = to << shift) {
-                        moveBuffer[writePosition++] = MoveInitUtil.newMove(pinned, to);
+                        addPinnedPieceMove(pinned, to);
                     }
-                    moveBuffer[writePosition++] = MoveInitUtil.newMove(pinned, pinner);
+                    addPinnedPieceMove(pinned, pinner);
                 }
             }
         }
     }
-}
\ No newline at end of file
+
+    private void addPinnedPieceMove(long from, long to) {
+        if ((to & targets) != 0) {
+            addMove(MoveInitUtil.newMove(from, to));
+        }
+    }
+}
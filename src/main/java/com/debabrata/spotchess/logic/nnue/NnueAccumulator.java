@@ -0,0 +1,134 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import com.debabrata.spotchess.types.Position;
+
+/**
+ * The network's hidden layer for every position along the line being searched, one entry per ply with an accumulator
+ * for each side. Making a move pushes an entry worked out from the one below it, unmaking pops back to it, so the
+ * accumulators for the position we return to are already there.
+ * <p>
+ * Rather than have Position tell us what moved, every entry keeps a copy of the bitboards it was made from and a push
+ * compares piece by piece. A quiet move changes two inputs, a capture three, castling four. A side whose king moved sees
+ * every one of its inputs change and is refreshed from scratch instead.
+ * <p>
+ * Holds state for one line of play, so every searcher needs its own. The network itself is shared.
+ */
+public final class NnueAccumulator {
+    /* Bitboards kept per ply: white, black, then pawns, knights, bishops, rooks, queens and kings. */
+    private static final int BOARDS = 8;
+    private static final int KINGS = 7;
+
+    private final NnueNetwork network;
+    private final NnueOps ops;
+    private final short[][] accumulators; /* [ply * 2 + side], white's side is 0. */
+    private final long[] boards;
+    private int ply;
+
+    /**
+     * @param maxPly     how many moves deep the line can go past the position passed to {@link #reset(Position)}.
+     * @param vectorised use the Vector API if it's loaded, see {@link NnueOps#get(boolean)}.
+     */
+    public NnueAccumulator(NnueNetwork network, int maxPly, boolean vectorised) {
+        this.network = network;
+        this.ops = NnueOps.get(vectorised);
+        this.accumulators = new short[(maxPly + 1) * 2][network.hiddenSize];
+        this.boards = new long[(maxPly + 1) * BOARDS];
+    }
+
+    /* Starts over at the given position, ply 0. */
+    public void reset(Position position) {
+        ply = 0;
+        copyBoards(position, 0);
+        refresh(0);
+        refresh(1);
+    }
+
+    /* Called with the position right after a move has been made on it. */
+    public void push(Position position) {
+        int parent = ply * BOARDS;
+        ply++;
+        int current = ply * BOARDS;
+        copyBoards(position, current);
+        for (int side = 0; side < 2; side++) {
+            long kingBefore = boards[parent + KINGS] & boards[parent + side];
+            long kingNow = boards[current + KINGS] & boards[current + side];
+            if (kingBefore != kingNow) {
+                refresh(side);
+                continue;
+            }
+            short[] accumulator = accumulators[ply * 2 + side];
+            System.arraycopy(accumulators[(ply - 1) * 2 + side], 0, accumulator, 0, accumulator.length);
+            int kingSquare = orient(Long.numberOfTrailingZeros(kingNow), side);
+            for (int colour = 0; colour < 2; colour++) {
+                for (int type = 0; type < 5; type++) {
+                    long before = boards[parent + 2 + type] & boards[parent + colour];
+                    long now = boards[current + 2 + type] & boards[current + colour];
+                    int piece = colour == side ? type : type + 5;
+                    for (long gone = before & ~now; gone != 0; gone &= gone - 1) {
+                        int square = orient(Long.numberOfTrailingZeros(gone), side);
+                        ops.subtract(accumulator, network.inputWeights, offset(kingSquare, piece, square));
+                    }
+                    for (long added = now & ~before; added != 0; added &= added - 1) {
+                        int square = orient(Long.numberOfTrailingZeros(added), side);
+                        ops.add(accumulator, network.inputWeights, offset(kingSquare, piece, square));
+                    }
+                }
+            }
+        }
+    }
+
+    /* Called after the move has been unmade. */
+    public void pop() {
+        ply--;
+    }
+
+    /**
+     * @return evaluation in centipawns from the point of view of the side to move.
+     */
+    public int evaluate(Position position) {
+        int us = position.whiteToMove() ? 0 : 1;
+        int sum = ops.output(accumulators[ply * 2 + us], accumulators[ply * 2 + (us ^ 1)], network.outputWeights);
+        return (int) ((sum + (long) network.outputBias) * NnueNetwork.SCALE / (NnueNetwork.QA * NnueNetwork.QB));
+    }
+
+    /* Accumulator for the current ply, white's side is 0. */
+    short[] getAccumulator(int side) {
+        return accumulators[ply * 2 + side];
+    }
+
+    private void refresh(int side) {
+        int board = ply * BOARDS;
+        short[] accumulator = accumulators[ply * 2 + side];
+        System.arraycopy(network.hiddenBiases, 0, accumulator, 0, accumulator.length);
+        int kingSquare = orient(Long.numberOfTrailingZeros(boards[board + KINGS] & boards[board + side]), side);
+        for (int colour = 0; colour < 2; colour++) {
+            for (int type = 0; type < 5; type++) {
+                int piece = colour == side ? type : type + 5;
+                for (long pieces = boards[board + 2 + type] & boards[board + colour]; pieces != 0; pieces &= pieces - 1) {
+                    int square = orient(Long.numberOfTrailingZeros(pieces), side);
+                    ops.add(accumulator, network.inputWeights, offset(kingSquare, piece, square));
+                }
+            }
+        }
+    }
+
+    private void copyBoards(Position position, int at) {
+        boards[at] = position.getWhitePieces();
+        boards[at + 1] = position.getBlackPieces();
+        boards[at + 2] = position.getPawns();
+        boards[at + 3] = position.getKnights();
+        boards[at + 4] = position.getBishops();
+        boards[at + 5] = position.getRooks();
+        boards[at + 6] = position.getQueens();
+        boards[at + KINGS] = position.getKings();
+    }
+
+    private int offset(int kingSquare, int piece, int square) {
+        return NnueNetwork.getInput(kingSquare, piece, square) * network.hiddenSize;
+    }
+
+    /* Black sees the board upside down. */
+    private static int orient(int placeValue, int side) {
+        return side == 0 ? placeValue : placeValue ^ 56;
+    }
+}
@@ -0,0 +1,132 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import com.debabrata.spotchess.settings.EngineSettings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Weights of a small efficiently updatable neural network, quantized to 16 bits. It's a HalfKP network: each side sees
+ * the board from its own king, and an input is one of our or their non-king pieces on a square given where our king is.
+ * That's 64 king squares times 10 pieces times 64 squares. The inputs feed a hidden layer of one accumulator per side,
+ * which feeds a single output through a clipped ReLU. Few inputs change with a move, so the accumulators are updated
+ * rather than recomputed, see {@link NnueAccumulator}.
+ * <p>
+ * The file is little endian:
+ * <pre>
+ *   int   magic, "SPNN"
+ *   int   hidden layer size
+ *   short hidden layer weights, hidden size of them per input, input by input
+ *   short hidden layer biases
+ *   short output weights, hidden size for the side to move then hidden size for the other side
+ *   int   output bias
+ * </pre>
+ * Accumulators are clipped to [0, {@link #QA}] and output weights are scaled by {@link #QB}, so the output over QA * QB
+ * is the evaluation in units of {@link #SCALE} centipawns. Same conventions as most small nets out there.
+ */
+public final class NnueNetwork {
+    public static final int INPUTS = 64 * 10 * 64;
+    public static final int QA = 255;
+    public static final int QB = 64;
+    public static final int SCALE = 400;
+
+    private static final int MAGIC = 0x4E4E5053; /* "SPNN" read little endian. */
+
+    /* The one loaded from EngineSettings, kept so every searcher shares it rather than loading its own. */
+    private static NnueNetwork configured;
+    private static String configuredFile;
+
+    final int hiddenSize;
+    final short[] inputWeights;
+    final short[] hiddenBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    NnueNetwork(int hiddenSize, short[] inputWeights, short[] hiddenBiases, short[] outputWeights, int outputBias) {
+        if (inputWeights.length != INPUTS * hiddenSize || hiddenBiases.length != hiddenSize
+                || outputWeights.length != 2 * hiddenSize) {
+            throw new IllegalArgumentException("Weights don't fit a hidden layer of " + hiddenSize);
+        }
+        this.hiddenSize = hiddenSize;
+        this.inputWeights = inputWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    public static NnueNetwork load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " isn't a network file");
+        }
+        int hiddenSize = buffer.getInt();
+        long expected = 8 + 2L * ((long) INPUTS * hiddenSize + hiddenSize + 2L * hiddenSize) + 4;
+        if (hiddenSize <= 0 || buffer.capacity() != expected) {
+            throw new IOException(file + " is " + buffer.capacity() + " bytes, a hidden layer of " + hiddenSize
+                    + " needs " + expected);
+        }
+        short[] inputWeights = new short[INPUTS * hiddenSize];
+        short[] hiddenBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        buffer.asShortBuffer().get(inputWeights);
+        buffer.position(buffer.position() + inputWeights.length * 2);
+        buffer.asShortBuffer().get(hiddenBiases);
+        buffer.position(buffer.position() + hiddenBiases.length * 2);
+        buffer.asShortBuffer().get(outputWeights);
+        buffer.position(buffer.position() + outputWeights.length * 2);
+        return new NnueNetwork(hiddenSize, inputWeights, hiddenBiases, outputWeights, buffer.getInt());
+    }
+
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * (inputWeights.length + hiddenBiases.length
+                + outputWeights.length) + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(hiddenSize);
+        buffer.asShortBuffer().put(inputWeights);
+        buffer.position(buffer.position() + inputWeights.length * 2);
+        buffer.asShortBuffer().put(hiddenBiases);
+        buffer.position(buffer.position() + hiddenBiases.length * 2);
+        buffer.asShortBuffer().put(outputWeights);
+        buffer.position(buffer.position() + outputWeights.length * 2);
+        buffer.putInt(outputBias);
+        Files.write(file, buffer.array());
+    }
+
+    /**
+     * @return the network file set in EngineSettings, loaded the first time it's asked for. Null if none is set.
+     */
+    public static synchronized NnueNetwork getConfigured() {
+        String file = EngineSettings.getNnueFile();
+        if (file == null) {
+            return null;
+        }
+        if (!file.equals(configuredFile)) {
+            try {
+                configured = load(Paths.get(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Couldn't load the network from " + file, e);
+            }
+            configuredFile = file;
+        }
+        return configured;
+    }
+
+    /**
+     * Index of an input, with everything already seen from the side the input is for.
+     *
+     * @param kingSquare place value of our king.
+     * @param piece      0 to 4 for our pawn, knight, bishop, rook and queen, 5 to 9 for theirs.
+     * @param square     place value of the piece.
+     */
+    static int getInput(int kingSquare, int piece, int square) {
+        return (kingSquare * 10 + piece) << 6 | square;
+    }
+}
@@ -0,0 +1,36 @@
+package com.debabrata.spotchess.logic.nnue;
+
+/**
+ * The few loops inference spends its time in. There's a plain scalar version and one using the Vector API, which is
+ * still an incubator module on Java 17 and so only used when asked for, see {@link #get(boolean)}.
+ */
+interface NnueOps {
+
+    /* accumulator[i] += weights[offset + i], for the whole accumulator. */
+    void add(short[] accumulator, short[] weights, int offset);
+
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * @return sum of the clipped accumulators times the output weights, ours against the first half of the weights and
+     * theirs against the second.
+     */
+    int output(short[] ours, short[] theirs, short[] weights);
+
+    /**
+     * @param vectorised whether to try the Vector API. Without "--add-modules jdk.incubator.vector" on the command line
+     *                   its classes aren't there and this falls back to the scalar loops.
+     */
+    static NnueOps get(boolean vectorised) {
+        if (vectorised) {
+            /* By name, as it's compiled on its own with the incubator module added, see build.gradle. */
+            try {
+                return (NnueOps) Class.forName("com.debabrata.spotchess.logic.nnue.VectorNnueOps")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                /* Module isn't loaded, or the class isn't on the classpath. */
+            }
+        }
+        return new ScalarNnueOps();
+    }
+}
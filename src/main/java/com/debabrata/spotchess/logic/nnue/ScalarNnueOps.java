@@ -0,0 +1,31 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import static com.debabrata.spotchess.logic.nnue.NnueNetwork.QA;
+
+final class ScalarNnueOps implements NnueOps {
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] ours, short[] theirs, short[] weights) {
+        int size = ours.length;
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += Math.min(Math.max(ours[i], 0), QA) * weights[i];
+            sum += Math.min(Math.max(theirs[i], 0), QA) * weights[size + i];
+        }
+        return sum;
+    }
+}
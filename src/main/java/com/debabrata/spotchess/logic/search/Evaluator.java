@@ -0,0 +1,167 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.nnue.NnueAccumulator;
+import com.debabrata.spotchess.logic.nnue.NnueNetwork;
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.utils.PieceSquareUtil;
+
+/**
+ * Static evaluation in centipawns from the point of view of the side to move. Material, piece-square tables and pawn
+ * structure for now, blended between the middlegame and endgame by how much material is left. Position keeps the
+ * piece-square totals up to date as moves are made and the pawn structure is looked up in a {@link PawnHashTable}, so
+ * most of the time all that's left to do here is the blend.
+ * <p>
+ * If a network is set up in EngineSettings it's used instead, see {@link NnueNetwork}. Its accumulators follow the
+ * search through {@link #setRoot(Position)}, {@link #moveMade(Position)} and {@link #moveUnmade()}, which do nothing
+ * otherwise.
+ * <p>
+ * Every searcher needs its own, as neither the pawn table nor the accumulators are shared.
+ */
+public final class Evaluator {
+    /* A couple of hundred kilobytes, plenty for the structures that come up in a search. */
+    private static final int PAWN_TABLE_SIZE_KB = 256;
+
+    /* Pawn structure terms, middlegame and endgame. Passed pawns by how far up the board they are. */
+    static final int[] PASSED_MIDGAME = { 0, 5, 10, 15, 25, 40, 60, 0 };
+    static final int[] PASSED_ENDGAME = { 0, 10, 20, 35, 60, 90, 130, 0 };
+    static final int ISOLATED_MIDGAME = -10;
+    static final int ISOLATED_ENDGAME = -15;
+    static final int DOUBLED_MIDGAME = -10;
+    static final int DOUBLED_ENDGAME = -20;
+    static final int BACKWARD_MIDGAME = -8;
+    static final int BACKWARD_ENDGAME = -10;
+
+    private static final long H_FILE = 0x0101010101010101L;
+    private static final long A_FILE = 0x8080808080808080L;
+
+    private final PawnHashTable pawnTable;
+    private final NnueAccumulator nnue; /* Null when there's no network. */
+
+    public Evaluator() {
+        this(new PawnHashTable(PAWN_TABLE_SIZE_KB), NnueNetwork.getConfigured());
+    }
+
+    public Evaluator(PawnHashTable pawnTable) {
+        this(pawnTable, null);
+    }
+
+    public Evaluator(PawnHashTable pawnTable, NnueNetwork network) {
+        this.pawnTable = pawnTable;
+        this.nnue = network == null ? null
+                : new NnueAccumulator(network, Searcher.MAX_PLY, EngineSettings.isNnueVectorised());
+    }
+
+    public PawnHashTable getPawnTable() {
+        return pawnTable;
+    }
+
+    public boolean usesNetwork() {
+        return nnue != null;
+    }
+
+    /* Position the search starts from. */
+    public void setRoot(Position position) {
+        if (nnue != null) {
+            nnue.reset(position);
+        }
+    }
+
+    /* Called with the position right after a move has been made on it. */
+    public void moveMade(Position position) {
+        if (nnue != null) {
+            nnue.push(position);
+        }
+    }
+
+    public void moveUnmade() {
+        if (nnue != null) {
+            nnue.pop();
+        }
+    }
+
+    /**
+     * With a network, the position has to be the one the search has been following through the three methods above.
+     */
+    public int evaluate(Position position) {
+        if (nnue != null) {
+            return nnue.evaluate(position);
+        }
+        int pawns = pawnTable.probe(position.getPawnKey());
+        if (pawns < 0) {
+            pawns = evaluatePawns(position);
+        }
+        int midgame = position.getMidgameScore() + pawnTable.getMidgame(pawns);
+        int endgame = position.getEndgameScore() + pawnTable.getEndgame(pawns);
+        int phase = Math.min(position.getPhase(), PieceSquareUtil.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareUtil.MAX_PHASE - phase)) / PieceSquareUtil.MAX_PHASE;
+        return position.whiteToMove() ? score : -score;
+    }
+
+    /* Works out the pawn structure terms for both sides and stores them, returning the index they went to. All of it is
+     * done with whole bitboards at once rather than pawn by pawn, except for scoring the passed pawns by rank. */
+    private int evaluatePawns(Position position) {
+        long pawns = position.getPawns();
+        long white = pawns & position.getWhitePieces();
+        long black = pawns & position.getBlackPieces();
+        long whiteAttacks = ((white << 9) & ~H_FILE) | ((white << 7) & ~A_FILE);
+        long blackAttacks = ((black >>> 9) & ~A_FILE) | ((black >>> 7) & ~H_FILE);
+
+        /* Passed: no enemy pawn ahead on the same or a neighbouring file. Only the front one of doubled pawns counts. */
+        long blackFront = southFill(black >>> 8);
+        long whiteFront = northFill(white << 8);
+        long whitePassed = white & ~(blackFront | sideways(blackFront)) & ~southFill(white >>> 8);
+        long blackPassed = black & ~(whiteFront | sideways(whiteFront)) & ~northFill(black << 8);
+
+        /* Isolated: no pawn of our own on a neighbouring file. */
+        long whiteIsolated = white & ~sideways(fileFill(white));
+        long blackIsolated = black & ~sideways(fileFill(black));
+
+        /* Doubled: a pawn of our own ahead on the same file. */
+        long whiteDoubled = white & southFill(white >>> 8);
+        long blackDoubled = black & northFill(black << 8);
+
+        /* Backward: the square ahead is attacked by an enemy pawn and no pawn of ours can ever come up to defend it. */
+        long whiteBackward = ((white << 8) & blackAttacks & ~northFill(whiteAttacks)) >>> 8;
+        long blackBackward = ((black >>> 8) & whiteAttacks & ~southFill(blackAttacks)) << 8;
+
+        int midgame = ISOLATED_MIDGAME * (Long.bitCount(whiteIsolated) - Long.bitCount(blackIsolated))
+                + DOUBLED_MIDGAME * (Long.bitCount(whiteDoubled) - Long.bitCount(blackDoubled))
+                + BACKWARD_MIDGAME * (Long.bitCount(whiteBackward) - Long.bitCount(blackBackward));
+        int endgame = ISOLATED_ENDGAME * (Long.bitCount(whiteIsolated) - Long.bitCount(blackIsolated))
+                + DOUBLED_ENDGAME * (Long.bitCount(whiteDoubled) - Long.bitCount(blackDoubled))
+                + BACKWARD_ENDGAME * (Long.bitCount(whiteBackward) - Long.bitCount(blackBackward));
+        for (long passed = whitePassed; passed != 0; passed &= passed - 1) {
+            int rank = Long.numberOfTrailingZeros(passed) >>> 3;
+            midgame += PASSED_MIDGAME[rank];
+            endgame += PASSED_ENDGAME[rank];
+        }
+        for (long passed = blackPassed; passed != 0; passed &= passed - 1) {
+            int rank = 7 - (Long.numberOfTrailingZeros(passed) >>> 3);
+            midgame -= PASSED_MIDGAME[rank];
+            endgame -= PASSED_ENDGAME[rank];
+        }
+        return pawnTable.store(position.getPawnKey(), midgame, endgame, whitePassed | blackPassed);
+    }
+
+    /* Squares on the files either side of the given ones. Place values go up from h to a, so << 1 heads for the a-file. */
+    private static long sideways(long squares) {
+        return ((squares << 1) & ~H_FILE) | ((squares >>> 1) & ~A_FILE);
+    }
+
+    private static long northFill(long squares) {
+        squares |= squares << 8;
+        squares |= squares << 16;
+        return squares | squares << 32;
+    }
+
+    private static long southFill(long squares) {
+        squares |= squares >>> 8;
+        squares |= squares >>> 16;
+        return squares | squares >>> 32;
+    }
+
+    private static long fileFill(long squares) {
+        return northFill(squares) | southFill(squares);
+    }
+}
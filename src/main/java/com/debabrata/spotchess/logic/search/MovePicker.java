@@ -0,0 +1,268 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.utils.MoveInitUtil;
+
+/**
+ * Hands out the moves of a node one at a time, best guesses first, and only generates the moves it needs. Most nodes
+ * of a search cut off on the first move or two, so most of the time the quiet moves never get generated at all.
+ * <p>
+ * The order is: the hash move, captures and promotions by MVV-LVA, the killers, and then the rest. The hash move and
+ * killers come from elsewhere in the tree and get checked for legality before being handed out. Whatever got handed out
+ * early is skipped when its stage comes around. Quiescence search only gets the captures and promotions, unless it's in
+ * check, when it gets every move as they're all evasions.
+ * <p>
+ * Every ply of the search needs its own picker, as they keep their state between calls to {@link #next()} while the
+ * plies below run. Each picker owns a MoveProcessor for the same reason. They all write to the same move buffer, each
+ * after the one before it, the way perft does it.
+ */
+final class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES = 2;
+    private static final int KILLER_1 = 3;
+    private static final int KILLER_2 = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int DONE = 7;
+
+    /* MVV-LVA values, indexed by the constants below. Victims count eight times as much as attackers, so taking the biggest
+     * piece always goes first and among those the smallest attacker. Promotions count as taking the piece promoted to. */
+    private static final int[] VALUES = { 6, 5, 3, 3, 4, 1 }; /* King, queen, bishop, knight, rook, pawn. */
+    private static final int KING = 0, QUEEN = 1, BISHOP = 2, KNIGHT = 3, ROOK = 4, PAWN = 5;
+
+    private final long[] moveBuffer;
+    private final int[] scores; /* Same indexes as the move buffer. */
+    private final MoveProcessor processor;
+
+    private Position position;
+    private int stage;
+    private int start; /* Where this node's moves start on the buffer. */
+    private int next;
+    private int end;
+    private long hashMove;
+    private long killer1;
+    private long killer2;
+    private int quietRotation;
+    private boolean currentQuiet;
+    private boolean capturesOnly;
+
+    MovePicker(long[] moveBuffer, int[] scores) {
+        this.moveBuffer = moveBuffer;
+        this.scores = scores;
+        this.processor = new MoveProcessor(moveBuffer);
+    }
+
+    /**
+     * Sets up for a new node. The position mustn't change between calls to next(), other than moves made and unmade.
+     *
+     * @param hashMove tried first if legal. 0 for none.
+     * @param killer1  quiet move that cut off at this ply elsewhere. Tried after the captures if legal, 0 for none.
+     */
+    void init(Position position, int writeAt, long hashMove, long killer1, long killer2) {
+        this.position = position;
+        this.start = writeAt;
+        this.next = writeAt;
+        this.end = writeAt;
+        this.hashMove = hashMove;
+        this.killer1 = killer1 == hashMove ? 0 : killer1;
+        this.killer2 = killer2 == hashMove || killer2 == killer1 ? 0 : killer2;
+        this.quietRotation = 0;
+        this.capturesOnly = false;
+        this.stage = HASH;
+        processor.analysePosition(position);
+    }
+
+    /**
+     * Sets up for a quiescence node, where only captures and promotions are tried. If in check it hands out all the
+     * evasions though, a quiet one is as good as any when it's the only way out.
+     */
+    void initQuiescence(Position position, int writeAt) {
+        init(position, writeAt, 0, 0, 0);
+        this.capturesOnly = !processor.isCheck();
+        this.stage = GENERATE_CAPTURES;
+    }
+
+    /* Searchers helping out in a parallel search use this at the root to each try the quiets in their own order. */
+    void rotateQuiets(int count) {
+        this.quietRotation = count;
+    }
+
+    boolean isCheck() {
+        return processor.isCheck();
+    }
+
+    /**
+     * @return where the plies below can write their moves. It moves on as the stages generate more moves.
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return true if the move last handed out is neither a capture nor a promotion. Those are the ones worth keeping as
+     *         killers.
+     */
+    boolean isCurrentQuiet() {
+        return currentQuiet;
+    }
+
+    /**
+     * @return the next move to try, 0 once there are none left.
+     */
+    long next() {
+        while (true) {
+            switch (stage) {
+                case HASH -> {
+                    stage = GENERATE_CAPTURES;
+                    /* end is where the captures go, so it's free to use till then. */
+                    if (hashMove != 0 && processor.isLegal(hashMove, end)) {
+                        currentQuiet = isQuiet(hashMove);
+                        return hashMove;
+                    }
+                    hashMove = 0;
+                }
+                case GENERATE_CAPTURES -> {
+                    end = processor.addCaptureMoves(start);
+                    for (int i = start; i < end; i++) {
+                        scores[i] = moveBuffer[i] == hashMove ? Integer.MIN_VALUE : getCaptureScore(moveBuffer[i]);
+                    }
+                    next = start;
+                    stage = CAPTURES;
+                }
+                case CAPTURES -> {
+                    long move = pickBest();
+                    if (move != 0) {
+                        currentQuiet = false;
+                        return move;
+                    }
+                    stage = capturesOnly ? DONE : KILLER_1;
+                }
+                case KILLER_1 -> {
+                    stage = KILLER_2;
+                    if (killer1 != 0 && processor.isLegal(killer1, end) && isQuiet(killer1)) {
+                        currentQuiet = true;
+                        return killer1;
+                    }
+                    killer1 = 0;
+                }
+                case KILLER_2 -> {
+                    stage = GENERATE_QUIETS;
+                    if (killer2 != 0 && processor.isLegal(killer2, end) && isQuiet(killer2)) {
+                        currentQuiet = true;
+                        return killer2;
+                    }
+                    killer2 = 0;
+                }
+                case GENERATE_QUIETS -> {
+                    /* The captures handed out so far are done with, the quiets can start right after them. */
+                    next = end;
+                    end = processor.addQuietMoves(end);
+                    if (quietRotation != 0) {
+                        rotate(next, end, quietRotation);
+                    }
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    while (next < end) {
+                        long move = moveBuffer[next++];
+                        if (move != hashMove && move != killer1 && move != killer2) {
+                            currentQuiet = true;
+                            return move;
+                        }
+                    }
+                    stage = DONE;
+                }
+                default -> {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    /* Selection sort, one step at a time. Cheaper than sorting the lot as we rarely get far down the list. */
+    private long pickBest() {
+        int best = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = next; i < end; i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                best = i;
+            }
+        }
+        if (best < 0) {
+            next = end;
+            return 0;
+        }
+        long move = moveBuffer[best];
+        moveBuffer[best] = moveBuffer[next];
+        scores[best] = scores[next];
+        moveBuffer[next++] = move;
+        return move;
+    }
+
+    private int getCaptureScore(long move) {
+        if (MoveInitUtil.isSpecialMove(move)) {
+            if (MoveInitUtil.isEnPassant(move)) {
+                return VALUES[PAWN] * 8 - VALUES[PAWN];
+            }
+            /* A promotion, with or without a capture. */
+            long squares = MoveInitUtil.getPromotionMove(move, position.whiteToMove());
+            int gain = switch (MoveInitUtil.promotesTo(move)) {
+                case QUEEN -> VALUES[QUEEN];
+                case ROOK -> VALUES[ROOK];
+                default -> VALUES[BISHOP];
+            };
+            long victim = squares & (position.whiteToMove() ? position.getBlackPieces() : position.getWhitePieces());
+            return (victim == 0 ? 0 : VALUES[getPiece(victim)]) * 8 + gain * 8 - VALUES[PAWN];
+        }
+        long ours = position.whiteToMove() ? position.getWhitePieces() : position.getBlackPieces();
+        return VALUES[getPiece(move & ~ours)] * 8 - VALUES[getPiece(move & ours)];
+    }
+
+    private int getPiece(long square) {
+        if ((square & position.getPawns()) != 0) {
+            return PAWN;
+        }
+        if ((square & position.getKnights()) != 0) {
+            return KNIGHT;
+        }
+        if ((square & position.getBishops()) != 0) {
+            return BISHOP;
+        }
+        if ((square & position.getRooks()) != 0) {
+            return ROOK;
+        }
+        if ((square & position.getQueens()) != 0) {
+            return QUEEN;
+        }
+        return KING;
+    }
+
+    private boolean isQuiet(long move) {
+        if (MoveInitUtil.isSpecialMove(move)) {
+            return MoveInitUtil.isCastle(move) || MoveInitUtil.isDoublePawnMove(move);
+        }
+        return (move & (position.whiteToMove() ? position.getBlackPieces() : position.getWhitePieces())) == 0;
+    }
+
+    /* Rotates the moves in [from, to) left by count, by reversing the two parts and then the whole. */
+    private void rotate(int from, int to, int count) {
+        if (to - from < 2) {
+            return;
+        }
+        int split = from + count % (to - from);
+        reverse(from, split);
+        reverse(split, to);
+        reverse(from, to);
+    }
+
+    private void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            long move = moveBuffer[i];
+            moveBuffer[i] = moveBuffer[j];
+            moveBuffer[j] = move;
+        }
+    }
+}
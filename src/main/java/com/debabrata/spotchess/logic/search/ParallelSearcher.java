@@ -0,0 +1,167 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.records.SearchResult;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP. Every thread runs its own {@link Searcher} on the same position, with its own Position, MoveProcessor and
+ * move buffer, and the only thing they share is the transposition table. The helpers don't split the tree in any
+ * deliberate way, they just fill the table with results that the others pick up. To keep them from all walking the same
+ * path in lockstep, half of them start an iteration deeper and each tries the root moves in a different order.
+ * <p>
+ * The calling thread runs the main searcher, which is the one that keeps time, reports iterations and decides when it's
+ * over. Once it's done the helpers are stopped, and the deepest result any thread completed is the one we play.
+ */
+public final class ParallelSearcher implements AutoCloseable {
+    /* Lazy SMP is nothing without a table to share, so we use one of this size if EngineSettings doesn't ask for one. */
+    private static final int DEFAULT_TT_SIZE_MB = 16;
+
+    private final TranspositionTable transpositionTable;
+    private final Searcher main;
+    private final Searcher[] helpers;
+    private final Future<?>[] helperRuns;
+    private final SearchResult[] helperResults;
+    private final ExecutorService executor; /* Null when there are no helpers. */
+    private volatile boolean prepared; /* Stops were reset by prepare, search leaves them be. */
+
+    /**
+     * Threads and table size from EngineSettings.
+     */
+    public ParallelSearcher() {
+        this(EngineSettings.getThreadCount(), new TranspositionTable(
+                EngineSettings.getTtTableSizeMb() > 0 ? EngineSettings.getTtTableSizeMb() : DEFAULT_TT_SIZE_MB));
+    }
+
+    public ParallelSearcher(int threadCount, TranspositionTable transpositionTable) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Need at least one thread to search, got " + threadCount);
+        }
+        this.transpositionTable = transpositionTable;
+        this.main = new Searcher(transpositionTable, 0);
+        this.helpers = new Searcher[threadCount - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Searcher(transpositionTable, i + 1);
+        }
+        this.helperRuns = new Future<?>[helpers.length];
+        this.helperResults = new SearchResult[helpers.length];
+        this.executor = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public int getThreadCount() {
+        return helpers.length + 1;
+    }
+
+    /**
+     * Hears about the main thread's iterations, with node counts for all threads.
+     */
+    public void setListener(SearchListener listener) {
+        main.setListener(listener == null ? null : result -> listener.iterationCompleted(withTotalNodes(result)));
+    }
+
+    /**
+     * Gets ready for the next search by resetting the stops. A search that's going to run on another thread needs this
+     * called before it's handed over, so that a stop coming in before the search gets going isn't lost. The search
+     * starts out stopped instead, and comes back with whatever move it has.
+     */
+    public void prepare() {
+        main.resetStop();
+        for (Searcher helper : helpers) {
+            helper.resetStop();
+        }
+        prepared = true;
+    }
+
+    /** Stops the search as soon as the threads notice. Meant to be called from another thread. */
+    public void stop() {
+        main.stop();
+        for (Searcher helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    public SearchResult search(Position position, SearchLimits limits) {
+        return search(position, new long[0], 0, limits);
+    }
+
+    /**
+     * Same as {@link Searcher#search(Position, long[], int, SearchLimits)}, on all threads. Blocks till the helpers have
+     * stopped too. Calls {@link #prepare()} itself unless that was done already.
+     */
+    public SearchResult search(Position position, long[] gameKeys, int gameKeyCount, SearchLimits limits) {
+        if (!prepared) {
+            prepare();
+        }
+        prepared = false;
+        transpositionTable.newSearch();
+        /* The helpers go on till they're stopped, only the main thread keeps to the limits. */
+        SearchLimits helperLimits = new SearchLimits.Builder().depth(limits.getDepth()).build();
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = helpers[i];
+            int id = i;
+            helperResults[i] = null;
+            helperRuns[i] = executor.submit(() -> {
+                helperResults[id] = helper.run(position, gameKeys, gameKeyCount, helperLimits);
+            });
+        }
+        SearchResult result = main.run(position, gameKeys, gameKeyCount, limits);
+        for (Searcher helper : helpers) {
+            helper.stop();
+        }
+        for (Future<?> run : helperRuns) {
+            waitFor(run);
+        }
+
+        /* A deeper iteration beats a shallower one. At the same depth it's the higher score, as the threads all search
+         * the same moves and the one that saw more of the tree within the window is the one to trust. */
+        for (SearchResult helperResult : helperResults) {
+            if (helperResult != null && helperResult.bestMove() != 0 && (helperResult.depth() > result.depth()
+                    || (helperResult.depth() == result.depth() && helperResult.score() > result.score()))) {
+                result = helperResult;
+            }
+        }
+        return withTotalNodes(result);
+    }
+
+    /* The helpers are only stopped between searches, so this is a fair count once they're done and a rough one
+     * before that. */
+    private SearchResult withTotalNodes(SearchResult result) {
+        long nodes = main.getNodes();
+        for (Searcher helper : helpers) {
+            nodes = nodes + helper.getNodes();
+        }
+        return new SearchResult(result.depth(), result.score(), result.bestMove(), result.principalVariation(), nodes,
+                result.timeMillis());
+    }
+
+    private static void waitFor(Future<?> run) {
+        try {
+            run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.debabrata.spotchess.logic.search;
+
+import java.util.Arrays;
+
+/**
+ * Cache of pawn structure evaluations keyed by {@link com.debabrata.spotchess.types.Position#getPawnKey()}. Pawns move
+ * a lot less than everything else, so within a search the same few structures come up over and over and nearly every
+ * probe hits.
+ * <p>
+ * Direct mapped, a key has one slot and a new structure just overwrites whatever was there. Unlike the transposition
+ * table it isn't shared, every searcher has its own. It's small enough for that and it saves all the care about threads.
+ * <p>
+ * An empty slot reads as key 0 with nothing in it, which also happens to be right for a board without pawns.
+ */
+public final class PawnHashTable {
+    private static final int ENTRY_BYTES = 8 + 8 + 4;
+
+    private final long[] keys;
+    private final long[] passedPawns;
+    private final int[] scores; /* Middlegame in the upper 16 bits, endgame in the lower, both signed. */
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    /**
+     * @param sizeKb size of the table. It's rounded down to a power of two number of entries.
+     */
+    public PawnHashTable(int sizeKb) {
+        if (sizeKb <= 0) {
+            throw new IllegalArgumentException("Pawn hash table needs at least a kilobyte, got " + sizeKb);
+        }
+        int entries = Integer.highestOneBit(sizeKb * 1024 / ENTRY_BYTES);
+        this.keys = new long[entries];
+        this.passedPawns = new long[entries];
+        this.scores = new int[entries];
+        this.mask = entries - 1;
+    }
+
+    /**
+     * @return index of the pawn structure's entry, to read it with the getters. -1 if it isn't in the table.
+     */
+    public int probe(long pawnKey) {
+        probes++;
+        int index = (int) pawnKey & mask;
+        if (keys[index] == pawnKey) {
+            hits++;
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * @param midgame     score for the pawn structure, from white's point of view. Has to fit in a short, as does
+     *                    endgame.
+     * @param passedPawns pawns of both colours that are passed.
+     * @return index of the entry it went to.
+     */
+    public int store(long pawnKey, int midgame, int endgame, long passedPawns) {
+        int index = (int) pawnKey & mask;
+        this.keys[index] = pawnKey;
+        this.passedPawns[index] = passedPawns;
+        this.scores[index] = midgame << 16 | (endgame & 0xFFFF);
+        return index;
+    }
+
+    public int getMidgame(int index) {
+        return scores[index] >> 16;
+    }
+
+    public int getEndgame(int index) {
+        return (short) scores[index];
+    }
+
+    public long getPassedPawns(int index) {
+        return passedPawns[index];
+    }
+
+    public int getEntryCount() {
+        return keys.length;
+    }
+
+    /* Fraction of probes that found their pawn structure. */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public void resetCounters() {
+        probes = 0;
+        hits = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(passedPawns, 0);
+        Arrays.fill(scores, 0);
+        resetCounters();
+    }
+}
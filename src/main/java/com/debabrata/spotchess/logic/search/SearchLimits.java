@@ -0,0 +1,97 @@
+package com.debabrata.spotchess.logic.search;
+
+/**
+ * When to stop searching. Everything is optional, a search with no limits at all goes on till it's stopped or hits
+ * {@link Searcher#MAX_PLY}. If both a move time and a clock are given the move time wins.
+ */
+public final class SearchLimits {
+    private final int depth;
+    private final long nodes;
+    private final long moveTimeMillis;
+    private final long timeLeftMillis;
+    private final long incrementMillis;
+    private final int movesToGo;
+
+    private SearchLimits(Builder builder) {
+        this.depth = builder.depth;
+        this.nodes = builder.nodes;
+        this.moveTimeMillis = builder.moveTimeMillis;
+        this.timeLeftMillis = builder.timeLeftMillis;
+        this.incrementMillis = builder.incrementMillis;
+        this.movesToGo = builder.movesToGo;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getTimeLeftMillis() {
+        return timeLeftMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+
+    public boolean isTimed() {
+        return moveTimeMillis > 0 || timeLeftMillis > 0;
+    }
+
+    public static class Builder {
+        private int depth;
+        private long nodes;
+        private long moveTimeMillis;
+        private long timeLeftMillis;
+        private long incrementMillis;
+        private int movesToGo;
+
+        public Builder depth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Builder nodes(long nodes) {
+            this.nodes = nodes;
+            return this;
+        }
+
+        /** Exactly how long to think. */
+        public Builder moveTime(long moveTimeMillis) {
+            this.moveTimeMillis = moveTimeMillis;
+            return this;
+        }
+
+        /** Time left on our clock. The search decides how much of it to use. */
+        public Builder timeLeft(long timeLeftMillis) {
+            this.timeLeftMillis = timeLeftMillis;
+            return this;
+        }
+
+        public Builder increment(long incrementMillis) {
+            this.incrementMillis = incrementMillis;
+            return this;
+        }
+
+        /** Moves till the next time control, 0 if the rest of the game has to be played on the time left. */
+        public Builder movesToGo(int movesToGo) {
+            this.movesToGo = movesToGo;
+            return this;
+        }
+
+        public SearchLimits build() {
+            return new SearchLimits(this);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.types.records.SearchResult;
+
+/**
+ * Hears about the search as it goes. Called on the searching thread, so it should return quickly.
+ */
+public interface SearchListener {
+    void iterationCompleted(SearchResult result);
+}
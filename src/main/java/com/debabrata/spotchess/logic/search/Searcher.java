@@ -0,0 +1,466 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.records.SearchResult;
+import com.debabrata.spotchess.utils.CompactMoveUtil;
+
+import java.util.Arrays;
+
+/**
+ * Negamax alpha-beta with principal variation search, driven by iterative deepening with aspiration windows.
+ * <p>
+ * Like perft, the search works on a single Position with makeMove/unmakeMove and a single move buffer, each ply writing
+ * its moves right after those of the ply before it. With the PV table and key history allocated up front nothing gets
+ * allocated per node. A Searcher isn't thread safe, every searching thread needs its own. The transposition table they
+ * can share.
+ */
+public final class Searcher {
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    /* Getting mated at ply n scores -(MATE - n), so quicker mates score higher. */
+    public static final int MATE = 31000;
+    public static final int DRAW = 0;
+
+    /* Before this depth the scores jump around too much between iterations for a window to help. */
+    private static final int ASPIRATION_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = 25;
+    /* We look at the clock every 2048 nodes. */
+    private static final long LIMITS_CHECK_MASK = 2047;
+    /* Assumed when we're told the time left but not how many moves it's for. */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    /* Time lost to the GUI, the OS and so on between deciding a move and it showing up on the other end. */
+    private static final long MOVE_OVERHEAD_MILLIS = 50;
+    /* We only need as much game history as can still repeat, and the fifty move rule caps that at 100 plies. */
+    private static final int MAX_HISTORY = 128;
+
+    private final long[] moveBuffer = new long[MAX_PLY * 256];
+    private final int[] moveScores = new int[moveBuffer.length];
+    private final MoveProcessor processor = new MoveProcessor(moveBuffer); /* For the root, before the search starts. */
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final Evaluator evaluator = new Evaluator(); /* Each searcher has its own, the pawn table isn't shared. */
+    /* Two quiet moves per ply that last cut off there. Siblings tend to be refuted by the same moves. */
+    private final short[] killers = new short[MAX_PLY * 2];
+
+    /* Triangular PV table. pvTable[ply] holds the best line found from ply onwards, up to pvLength[ply]. */
+    private final long[][] pvTable = new long[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    /* Last iteration's PV. Searched first in the next iteration, which is most of what makes iterative deepening pay. */
+    private final long[] previousPv = new long[MAX_PLY + 1];
+    private int previousPvLength;
+    private boolean followPv;
+
+    /* Keys of the positions in the game so far followed by those on the current search path. */
+    private final long[] keyHistory = new long[MAX_HISTORY + MAX_PLY + 1];
+    private int keyCount;
+
+    private final TranspositionTable transpositionTable; /* Null if we're searching without one. */
+    /* 0 for a searcher on its own or the main thread of a parallel search. Helpers get their own ids, which they use to
+     * search differently from each other. */
+    private final int threadId;
+
+    private Position position;
+    private SearchListener listener;
+    private volatile boolean stopped;
+    private long nodes;
+    private long nodeLimit;
+    private long startTime;
+    private long softDeadline; /* Don't start another iteration after this. */
+    private long hardDeadline; /* Stop right where we are after this. */
+
+    /**
+     * Searches with a transposition table of EngineSettings' size, or without one if the size is 0.
+     */
+    public Searcher() {
+        this(EngineSettings.getTtTableSizeMb() > 0 ? new TranspositionTable(EngineSettings.getTtTableSizeMb()) : null);
+    }
+
+    public Searcher(TranspositionTable transpositionTable) {
+        this(transpositionTable, 0);
+    }
+
+    Searcher(TranspositionTable transpositionTable, int threadId) {
+        this.transpositionTable = transpositionTable;
+        this.threadId = threadId;
+        for (int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker(moveBuffer, moveScores);
+        }
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /** Stops the search as soon as it notices. Meant to be called from another thread. */
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public SearchResult search(Position position, SearchLimits limits) {
+        return search(position, new long[0], 0, limits);
+    }
+
+    /**
+     * Searches the position, which isn't changed. The search runs on a copy.
+     *
+     * @param gameKeys keys of the positions played in the game before this one, oldest first. Needed to see repetitions.
+     * @return result of the last iteration that completed.
+     */
+    public SearchResult search(Position position, long[] gameKeys, int gameKeyCount, SearchLimits limits) {
+        resetStop();
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+        return run(position, gameKeys, gameKeyCount, limits);
+    }
+
+    /* A stop coming in before the search starts would be lost if run() reset the flag itself, so callers do it. */
+    void resetStop() {
+        stopped = false;
+    }
+
+    /* Same as search, but leaves aging the transposition table and resetting the stop to the caller. For searchers
+     * sharing a table. */
+    SearchResult run(Position position, long[] gameKeys, int gameKeyCount, SearchLimits limits) {
+        this.position = new Position(position);
+        evaluator.setRoot(this.position);
+        keyCount = 0;
+        for (int i = Math.max(0, gameKeyCount - MAX_HISTORY); i < gameKeyCount; i++) {
+            keyHistory[keyCount++] = gameKeys[i];
+        }
+        if (keyCount == 0 || keyHistory[keyCount - 1] != this.position.getKey()) {
+            keyHistory[keyCount++] = this.position.getKey();
+        }
+        nodes = 0;
+        nodeLimit = limits.getNodes();
+        previousPvLength = 0;
+        Arrays.fill(killers, (short) 0);
+        setUpTime(limits);
+
+        int moveCount = processor.addAllLegalMoves(this.position, 0);
+        if (moveCount == 0) {
+            return new SearchResult(0, processor.isCheck() ? -MATE : DRAW, 0, new long[0], 0, 0);
+        }
+        long firstMove = moveBuffer[0];
+
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        SearchResult result = null;
+        int score = 0;
+        /* Half the helpers skip the first iteration so the threads are on different depths, and so on different parts of
+         * the tree, most of the time. */
+        int startDepth = Math.min(1 + (threadId & 1), maxDepth);
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            score = aspirationSearch(depth, score);
+            if (stopped) {
+                if (result == null) {
+                    /* Stopped before the first iteration was through, it happens with really short move times. Any move
+                     * beats none, but it gets depth 0 as we don't know what it's worth. */
+                    long move = pvLength[0] > 0 ? pvTable[0][0] : firstMove;
+                    return new SearchResult(0, score, move, new long[]{move}, nodes, getElapsedMillis());
+                }
+                break; /* An unfinished iteration can't be trusted, we go with the last one. */
+            }
+            result = new SearchResult(depth, score, pvTable[0][0], Arrays.copyOf(pvTable[0], pvLength[0]), nodes,
+                    getElapsedMillis());
+            previousPvLength = pvLength[0];
+            System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+            if (listener != null) {
+                listener.iterationCompleted(result);
+            }
+            if (stopped || System.nanoTime() >= softDeadline) {
+                break;
+            }
+            if (Math.abs(score) >= MATE - MAX_PLY && MATE - Math.abs(score) <= depth) {
+                break; /* Found a mate and looked at everything that could be a quicker one. */
+            }
+        }
+        return result;
+    }
+
+    private void setUpTime(SearchLimits limits) {
+        startTime = System.nanoTime();
+        long softBudget, hardBudget;
+        if (limits.getMoveTimeMillis() > 0) {
+            softBudget = hardBudget = limits.getMoveTimeMillis();
+        } else if (limits.getTimeLeftMillis() > 0) {
+            int movesToGo = limits.getMovesToGo() > 0 ? limits.getMovesToGo() : DEFAULT_MOVES_TO_GO;
+            long share = limits.getTimeLeftMillis() / movesToGo + limits.getIncrementMillis() * 3 / 4;
+            long maxBudget = Math.max(1, (limits.getTimeLeftMillis() - MOVE_OVERHEAD_MILLIS) / 2);
+            softBudget = Math.min(share, maxBudget);
+            hardBudget = Math.min(share * 4, maxBudget);
+        } else {
+            softDeadline = hardDeadline = Long.MAX_VALUE;
+            return;
+        }
+        softDeadline = startTime + softBudget * 1_000_000;
+        hardDeadline = startTime + hardBudget * 1_000_000;
+    }
+
+    private long getElapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    /* Searches with a narrow window around the last iteration's score, widening it on whichever side it fails. */
+    private int aspirationSearch(int depth, int previousScore) {
+        followPv = true;
+        if (depth < ASPIRATION_DEPTH) {
+            return search(-INFINITY, INFINITY, depth, 0, 0);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - delta, -INFINITY);
+        int beta = Math.min(previousScore + delta, INFINITY);
+        while (true) {
+            int score = search(alpha, beta, depth, 0, 0);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            delta = delta * 2;
+            followPv = true;
+        }
+    }
+
+    private int search(int alpha, int beta, int depth, int ply, int writeAt) {
+        pvLength[ply] = ply;
+        if (ply > 0 && (isRepetition() || position.isDrawByFiftyMoveRule())) {
+            return DRAW;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply, writeAt);
+        }
+        if ((++nodes & LIMITS_CHECK_MASK) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(position);
+        }
+
+        long key = position.getKey();
+        long hashMove = 0;
+        if (transpositionTable != null) {
+            long entry = transpositionTable.probe(key);
+            if (entry != 0) {
+                hashMove = TranspositionTable.getMove(entry);
+                /* Not at PV nodes though, cutting there would cut the PV short. */
+                if (beta - alpha == 1 && TranspositionTable.getDepth(entry) >= depth) {
+                    int score = fromHashScore(TranspositionTable.getScore(entry), ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        long pvMove = 0;
+        if (followPv) {
+            if (ply < previousPvLength) {
+                pvMove = previousPv[ply];
+            } else {
+                followPv = false;
+            }
+        }
+        MovePicker picker = pickers[ply];
+        picker.init(position, writeAt, pvMove != 0 ? pvMove : hashMove, CompactMoveUtil.toMove(killers[ply * 2]),
+                CompactMoveUtil.toMove(killers[ply * 2 + 1]));
+        if (ply == 0 && threadId > 0) {
+            picker.rotateQuiets(threadId); /* Helpers try the root moves in their own orders. */
+        }
+
+        int flags = position.getFlags();
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        long bestMove = 0;
+        int moveCount = 0;
+        for (long move = picker.next(); move != 0; move = picker.next()) {
+            int taken = position.makeMove(move);
+            evaluator.moveMade(position);
+            keyHistory[keyCount++] = position.getKey();
+            int score;
+            if (moveCount++ == 0) {
+                if (move != pvMove) {
+                    followPv = false;
+                }
+                score = -search(-beta, -alpha, depth - 1, ply + 1, picker.getEnd());
+                followPv = false; /* Only the first line searched can be the old PV. */
+            } else {
+                /* Once we have a PV move we only try to prove the others are worse, and search them properly only
+                 * if that fails. */
+                score = -search(-alpha - 1, -alpha, depth - 1, ply + 1, picker.getEnd());
+                if (score > alpha && score < beta) {
+                    score = -search(-beta, -alpha, depth - 1, ply + 1, picker.getEnd());
+                }
+            }
+            keyCount--;
+            position.unmakeMove(move, taken, flags);
+            evaluator.moveUnmade();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (picker.isCurrentQuiet()) {
+                            addKiller(ply, move);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (moveCount == 0) {
+            return picker.isCheck() ? -MATE + ply : DRAW;
+        }
+        if (transpositionTable != null) {
+            int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+            /* When nothing raised alpha, the best of a bunch of upper bounds isn't worth ordering first. */
+            long move = bound == TranspositionTable.UPPER_BOUND ? 0 : bestMove;
+            transpositionTable.store(key, move, toHashScore(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    /* Searches captures till the position is quiet, so we don't evaluate in the middle of an exchange. The side to move
+     * can always "stand pat" on the evaluation instead of capturing, unless it's in check, so captures that lose material
+     * by static exchange aren't worth trying. No repetitions here, captures can't repeat, and no transposition table as
+     * these nodes are cheap and many. */
+    private int quiesce(int alpha, int beta, int ply, int writeAt) {
+        pvLength[ply] = ply;
+        if ((++nodes & LIMITS_CHECK_MASK) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(position);
+        }
+        MovePicker picker = pickers[ply];
+        picker.initQuiescence(position, writeAt);
+        boolean inCheck = picker.isCheck();
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = evaluator.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        int flags = position.getFlags();
+        boolean anyMove = false;
+        for (long move = picker.next(); move != 0; move = picker.next()) {
+            anyMove = true;
+            if (!inCheck && position.staticExchange(move) < 0) {
+                continue; /* Loses material even if it's followed through, standing pat does better. */
+            }
+            int taken = position.makeMove(move);
+            evaluator.moveMade(position);
+            int score = -quiesce(-beta, -alpha, ply + 1, picker.getEnd());
+            position.unmakeMove(move, taken, flags);
+            evaluator.moveUnmade();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (inCheck && !anyMove) {
+            return -MATE + ply;
+        }
+        return bestScore;
+    }
+
+    /* Mate scores are stored as distance from the node rather than from the root, so they stay right when the node is
+     * reached at another ply. */
+    private static int toHashScore(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromHashScore(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private void addKiller(int ply, long move) {
+        short killer = CompactMoveUtil.toCompact(move);
+        if (killers[ply * 2] != killer) {
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = killer;
+        }
+    }
+
+    private void updatePv(int ply, long move) {
+        long[] pv = pvTable[ply];
+        pv[ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pv, ply + 1, childLength - (ply + 1));
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    /* Only positions since the last irreversible move can repeat, and only ones with the same side to move. We call it
+     * a draw on the first repetition, if it was good for anyone they can repeat it again. */
+    private boolean isRepetition() {
+        long key = keyHistory[keyCount - 1];
+        int limit = Math.max(0, keyCount - 1 - position.getReversibleHalfMoveCount());
+        for (int i = keyCount - 3; i >= limit; i -= 2) {
+            if (keyHistory[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkLimits() {
+        if ((nodeLimit > 0 && nodes >= nodeLimit) || System.nanoTime() >= hardDeadline) {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.utils.CompactMoveUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size hash table of search results keyed by position, shared by every thread searching the same game. Hashed
+ * perft uses it to store leaf counts too.
+ * <p>
+ * The table is one flat long[] of buckets. A bucket has four entries of two longs each, 64 bytes in all, so probing a
+ * bucket costs about one cache line. Every entry is (key ^ data) followed by data, same as {@link
+ * com.debabrata.spotchess.support.perft.PerftHashTable}. Threads read and write without locking and an entry torn by two
+ * writers just reads as a miss.
+ * <p>
+ * Data is laid out as:
+ * <pre>
+ *   0x00000000000000FF depth
+ *   0x0000000000000300 bound, never 0 for a filled entry
+ *   0x000000000000FC00 age, i.e. the search it was written in
+ *   0x00000000FFFF0000 score, signed
+ *   0x0000FFFF00000000 move, in the 16 bit form of {@link CompactMoveUtil}
+ * </pre>
+ * Perft entries use all of the upper 48 bits for the leaf count instead of the score and move.
+ */
+public final class TranspositionTable {
+    public static final int UPPER_BOUND = 1; /* Failed low, the score is at most this. */
+    public static final int LOWER_BOUND = 2; /* Failed high, the score is at least this. */
+    public static final int EXACT = 3;
+
+    private static final int BUCKET_LONGS = 8;
+    private static final int AGE_MASK = 0x3F;
+    /* How many plies of depth an entry is worth per search it has aged. Old entries should give way even if deep. */
+    private static final int AGE_WEIGHT = 8;
+    /* Entries looked at to estimate how full the table is, the same number UCI's hashfull is given in. */
+    private static final int FILL_SAMPLE_ENTRIES = 1000;
+
+    private long[] table;
+    private int bucketMask;
+    private int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param sizeMb size of the table. It's rounded down to a power of two number of buckets.
+     */
+    public TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Throws the table away and allocates one of the new size. Not to be called while anything is searching.
+     */
+    public void resize(int sizeMb) {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("Transposition table needs at least a megabyte, got " + sizeMb);
+        }
+        long buckets = Long.highestOneBit(((long) sizeMb << 20) / (BUCKET_LONGS * 8));
+        buckets = Math.min(buckets, 1L << 27); /* Java arrays can't be indexed past an int. */
+        this.table = null; /* So the old table can be collected before we ask for the new one. */
+        this.table = new long[(int) buckets * BUCKET_LONGS];
+        this.bucketMask = (int) buckets - 1;
+        this.age = 0;
+        resetCounters();
+    }
+
+    public int getSizeMb() {
+        return (int) (((long) table.length * 8) >>> 20);
+    }
+
+    /**
+     * Not to be called while anything is searching.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        age = 0;
+        resetCounters();
+    }
+
+    /**
+     * To be called once before every search, not once per thread. Entries from earlier searches get replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * @return data of the entry for the key, read with the static getters. 0 if there isn't one.
+     */
+    public long probe(long key) {
+        probes.increment();
+        int bucket = getBucket(key);
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param move best move found, 0 if none. If it's 0 any move already stored for the position is kept.
+     * @param score has to fit in a short. Mate scores need to be made relative to the node storing them.
+     */
+    public void store(long key, long move, int score, int depth, int bound) {
+        int index = getReplacementIndex(key);
+        long previous = table[index + 1];
+        if (move == 0 && (table[index] ^ previous) == key) {
+            move = getMove(previous);
+        }
+        long data = (long) (CompactMoveUtil.toCompact(move) & 0xFFFF) << 32 | (long) (score & 0xFFFF) << 16
+                | (long) age << 10 | (long) bound << 8 | depth;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    /**
+     * @return the leaf count stored for the position and depth, or -1 if there isn't one.
+     */
+    public long probeCount(long key, int depth) {
+        long data = probe(key);
+        if (data == 0 || getDepth(data) != depth) {
+            return -1;
+        }
+        return data >>> 16;
+    }
+
+    public void storeCount(long key, int depth, long count) {
+        int index = getReplacementIndex(key);
+        long data = count << 16 | (long) age << 10 | (long) EXACT << 8 | depth;
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) data & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> 8) & 0x03;
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static long getMove(long data) {
+        return CompactMoveUtil.toMove((short) (data >>> 32));
+    }
+
+    /* Fraction of probes that found their position. */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * @return permille of entries written in the current search, from a sample at the start of the table.
+     */
+    public int getFillPermille() {
+        int sample = Math.min(FILL_SAMPLE_ENTRIES, table.length / 2);
+        int filled = 0;
+        for (int i = 0; i < sample * 2; i += 2) {
+            long data = table[i + 1];
+            if (data != 0 && ((int) (data >>> 10) & AGE_MASK) == age) {
+                filled++;
+            }
+        }
+        return filled * 1000 / sample;
+    }
+
+    public void resetCounters() {
+        probes.reset();
+        hits.reset();
+    }
+
+    private int getBucket(long key) {
+        return ((int) key & bucketMask) * BUCKET_LONGS;
+    }
+
+    /* The entry holding the key if there is one, else an empty entry, else the one least worth keeping. */
+    private int getReplacementIndex(long key) {
+        int bucket = getBucket(key);
+        int replace = bucket;
+        int lowestWorth = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if (data == 0 || (table[i] ^ data) == key) {
+                return i;
+            }
+            int worth = getDepth(data) - AGE_WEIGHT * ((age - ((int) (data >>> 10) & AGE_MASK)) & AGE_MASK);
+            if (worth < lowestWorth) {
+                lowestWorth = worth;
+                replace = i;
+            }
+        }
+        return replace;
+    }
+}
@@ -7,6 +7,8 @@ public class EngineSettings {
     private static int threadCount = 1;
     private static int ttTableSizeMb = 0;
     private static MoveNotation moveFormat = MoveNotation.UCI;
+    private static String nnueFile = null; /* Evaluate with the network in this file, if there is one. */
+    private static boolean nnueVectorised = false; /* Needs --add-modules jdk.incubator.vector to have any effect. */
 
     public static int getThreadCount() {
         return threadCount;
@@ -31,4 +33,20 @@ public class EngineSettings {
     public static void setMoveFormat(MoveNotation moveFormat) {
         EngineSettings.moveFormat = moveFormat;
     }
+
+    public static String getNnueFile() {
+        return nnueFile;
+    }
+
+    public static void setNnueFile(String nnueFile) {
+        EngineSettings.nnueFile = nnueFile;
+    }
+
+    public static boolean isNnueVectorised() {
+        return nnueVectorised;
+    }
+
+    public static void setNnueVectorised(boolean nnueVectorised) {
+        EngineSettings.nnueVectorised = nnueVectorised;
+    }
 }
@@ -1,120 +1,210 @@
 package com.debabrata.spotchess.support.notation.game;
 
-import com.debabrata.spotchess.exception.InvalidPositionException;
 import com.debabrata.spotchess.types.Game;
 import com.debabrata.spotchess.types.Position;
-import com.debabrata.spotchess.types.Square;
-import com.debabrata.spotchess.types.enums.Colour;
-import com.debabrata.spotchess.types.enums.PieceType;
+import com.debabrata.spotchess.types.enums.GameType;
 
-/** Parses and generates Forsyth–Edwards Notation game file format. */
+import java.nio.ByteBuffer;
+
+/**
+ * Parses and generates Forsyth–Edwards Notation game file format.
+ * <p>
+ * EPD suites and training sets run to millions of positions, so under the GameParser methods there's a path that
+ * doesn't go through a Builder, a Square per piece or a String per field. setPosition reads a FEN straight out of a
+ * range of characters or bytes into a Position, appendNotation writes one into a StringBuilder the caller passes. The
+ * half and full move counters can be left out, so the first four fields of an EPD line read as well. A parser holds a
+ * view for reading bytes through, so it's one per thread.
+ */
 public class FENParser implements GameParser {
+    private static final Position TEMPLATE = new Position(GameType.STANDARD); /* To copy, setPosition overwrites it all. */
+    private static final int NO_CASTLING = 0x0F000000;
+
+    private final ByteSequence bytes = new ByteSequence();
+
     @Override
     public Game getGame(String gameContent) {
-        if (!confirmFormat(gameContent)) {
+        if (null == gameContent) {
             return null;
         }
-        gameContent = adjustSpaces(gameContent);
+        Position position = new Position(TEMPLATE);
+        int moveNumber = setPosition(position, gameContent, 0, gameContent.length());
+        return moveNumber == 0 ? null : new Game(position, moveNumber);
+    }
 
-        Position.Builder positionBuilder = new Position.Builder();
-        int readPosition = 0;
-        int skip = 0;
-        for(int i = 0; i < 64; i++) {
-            if (skip > 0) {
-                skip--;
+    /**
+     * @return the position fen[start, end) stands for, null if it can't be read.
+     */
+    public Position getPosition(CharSequence fen, int start, int end) {
+        Position position = new Position(TEMPLATE);
+        return setPosition(position, fen, start, end) == 0 ? null : position;
+    }
+
+    /**
+     * Sets the position up as fen[start, end) has it. Fields are separated by any amount of whitespace, and anything
+     * after the full move number, like the operations of an EPD line, is left alone.
+     *
+     * @return the full move number, 1 if the FEN leaves it out. 0 if the FEN can't be read, which leaves the position
+     *         as it was.
+     */
+    public int setPosition(Position position, CharSequence fen, int start, int end) {
+        if (null == position || null == fen) {
+            return 0;
+        }
+        /* Pieces, from a8 across and down to h1. */
+        long white = 0;
+        long black = 0;
+        long pawnsAndKnights = 0;
+        long knightsAndKings = 0;
+        long rooksAndQueens = 0;
+        long queensAndBishops = 0;
+        int at = skipSpaces(fen, start, end);
+        int rank = 7;
+        int file = 0;
+        for (; at < end && !isSpace(fen.charAt(at)); at++) {
+            char c = fen.charAt(at);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    return 0;
+                }
+                rank--;
+                file = 0;
                 continue;
             }
-            char read = gameContent.charAt(readPosition++);
-            if(i > 0 & (i % 8) == 0) {
-                if(read != '/') {
-                    throw new RuntimeException("Something is wrong with the  FEN format validator 2!");
+            if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) {
+                    return 0;
                 }
-                read = gameContent.charAt(readPosition++);
+                continue;
+            }
+            if (file == 8) {
+                return 0;
             }
-            if(Character.isDigit(read)) {
-                skip = read - '1'; /* Because we are already skipping '1' position due to this char. */
-            } else if (Character.isLetter(read)) {
-                Colour colour = Character.isUpperCase(read) ? Colour.WHITE : Colour.BLACK;
-                PieceType piece = PieceType.getPiece(read);
-                positionBuilder.withPiece(colour,piece,new Square(63 - i));
+            long square = 1L << (rank * 8 + 7 - file);
+            switch (c) {
+                case 'P', 'p' -> pawnsAndKnights |= square;
+                case 'N', 'n' -> {
+                    pawnsAndKnights |= square;
+                    knightsAndKings |= square;
+                }
+                case 'B', 'b' -> queensAndBishops |= square;
+                case 'R', 'r' -> rooksAndQueens |= square;
+                case 'Q', 'q' -> {
+                    rooksAndQueens |= square;
+                    queensAndBishops |= square;
+                }
+                case 'K', 'k' -> knightsAndKings |= square;
+                default -> {
+                    return 0;
+                }
+            }
+            if (c < 'a') {
+                white |= square;
             } else {
-                throw new RuntimeException("Something is wrong with the  FEN format validator 2!");
+                black |= square;
             }
+            file++;
+        }
+        if (rank != 0 || file != 8) {
+            return 0;
+        }
+        long kings = knightsAndKings & ~pawnsAndKnights;
+        long pawns = pawnsAndKnights & ~knightsAndKings;
+        if (Long.bitCount(kings & white) != 1 || Long.bitCount(kings & black) != 1
+                || (pawns & 0xFF000000000000FFL) != 0) {
+            return 0; /* The move generator can't do anything with these. */
+        }
+
+        /* Side to move. */
+        at = skipSpaces(fen, at, end);
+        if (at == end) {
+            return 0;
+        }
+        char side = fen.charAt(at++);
+        boolean whiteToMove = side == 'w' || side == 'W';
+        if ((!whiteToMove && side != 'b' && side != 'B') || !isFieldEnd(fen, at, end)) {
+            return 0;
+        }
+        int flags = whiteToMove ? 0x80000000 : 0;
+
+        /* Castling, a set bit for every rook that can't. */
+        int castling = NO_CASTLING;
+        at = skipSpaces(fen, at, end);
+        if (at < end && fen.charAt(at) == '-') {
+            at++;
+        } else {
+            for (; at < end && !isSpace(fen.charAt(at)); at++) {
+                switch (fen.charAt(at)) {
+                    case 'K' -> castling &= ~0x04000000;
+                    case 'Q' -> castling &= ~0x01000000;
+                    case 'k' -> castling &= ~0x08000000;
+                    case 'q' -> castling &= ~0x02000000;
+                    default -> {
+                        return 0;
+                    }
+                }
+            }
+        }
+        if (!isFieldEnd(fen, at, end)) {
+            return 0;
         }
 
-        /* We expect to have the following information next: <space>side to move<space> */
-        readPosition++;
-        boolean blackToMove = Character.toLowerCase(gameContent.charAt(readPosition++)) == 'b';
-        if (blackToMove) {
-            positionBuilder.toMove(Colour.BLACK);
-        }
-
-        /* We expect the castling flags next. */
-        readPosition++;
-        boolean whiteCanCastleLeft = false;
-        boolean whiteCanCastleRight = false;
-        boolean blackCanCastleLeft = false;
-        boolean blackCanCastleRight = false;
-        char castleFlag;
-        do {
-            castleFlag = gameContent.charAt(readPosition++);
-            if(castleFlag == '-') {
-                readPosition++;
-                break;
+        /* The square behind a pawn that has just moved two, which is what we want. */
+        long enPassantPawn = 0;
+        at = skipSpaces(fen, at, end);
+        if (at < end && fen.charAt(at) == '-') {
+            at++;
+        } else if (at < end) {
+            if (at + 1 == end) {
+                return 0;
             }
-            switch (castleFlag) {
-                case 'K' -> whiteCanCastleRight = true;
-                case 'Q' -> whiteCanCastleLeft = true;
-                case 'k' -> blackCanCastleRight = true;
-                case 'q' -> blackCanCastleLeft = true;
+            char epFile = fen.charAt(at++);
+            char epRank = fen.charAt(at++);
+            if (epFile < 'a' || epFile > 'h' || epRank != (whiteToMove ? '6' : '3')) {
+                return 0;
             }
-        } while (castleFlag != ' ');
-        if (! whiteCanCastleLeft) {
-            positionBuilder.leftRookMoved(Colour.WHITE);
-        }
-        if (! whiteCanCastleRight) {
-            positionBuilder.rightRookMoved(Colour.WHITE);
-        }
-        if (! blackCanCastleLeft) {
-            positionBuilder.leftRookMoved(Colour.BLACK);
-        }
-        if (! blackCanCastleRight) {
-            positionBuilder.rightRookMoved(Colour.BLACK);
-        }
-        /* We expect to have the following information next: <space>en-passant square<space> */
-        char epFile = gameContent.charAt(readPosition++);
-        if (epFile != '-') {
-            char epRank = gameContent.charAt(readPosition++);
-            Square enPassantSquare = new Square(String.valueOf(epFile) + (char)(epRank + (blackToMove ? 1 : -1)));
-            positionBuilder.enPassantSquare(enPassantSquare);
-        }
-        readPosition ++;
-        /* We next expect to have the following information next: half move count */
-        int halfMoveCounter = 0;
-        char halfMoveChar;
-        while(readPosition < gameContent.length()) {
-            halfMoveChar = gameContent.charAt(readPosition++);
-            if (Character.isDigit(halfMoveChar)) {
-                halfMoveCounter = halfMoveCounter * 10 + (halfMoveChar - '0');
-            } else {
-                break;
+            long pawn = 1L << ((whiteToMove ? 4 : 3) * 8 + ('h' - epFile));
+            /* Some write the square after every double push, we only care when there's a pawn to go with it. */
+            enPassantPawn = pawn & pawns & (whiteToMove ? black : white);
+        }
+        if (!isFieldEnd(fen, at, end)) {
+            return 0;
+        }
+
+        /* The counters, if they're there. */
+        int halfMoves = 0;
+        int moveNumber = 1;
+        at = skipSpaces(fen, at, end);
+        int counterEnd = skipNumber(fen, at, end);
+        if (counterEnd > at) {
+            halfMoves = Math.min(readNumber(fen, at, counterEnd), 0xFF); /* All the flags have room for. */
+            at = skipSpaces(fen, counterEnd, end);
+            counterEnd = skipNumber(fen, at, end);
+            if (counterEnd > at) {
+                moveNumber = Math.max(readNumber(fen, at, counterEnd), 1);
             }
         }
-        positionBuilder.halfMovesCount(halfMoveCounter);
+        position.setUp(white, black, pawnsAndKnights, knightsAndKings, rooksAndQueens, queensAndBishops,
+                flags | castling | halfMoves, enPassantPawn);
+        return moveNumber;
+    }
 
-        /* We next expect to have the following information next: full move count */
-        int moveCounter = 0;
-        while (readPosition < gameContent.length()) {
-            char moveCounterChar = gameContent.charAt(readPosition++);
-            moveCounter = moveCounter * 10 + (moveCounterChar - '0');
+    /**
+     * Reads bytes[start, end) as ASCII, the positions are absolute and the buffer's position and limit are left alone.
+     * A memory mapped EPD file can be read this way without decoding it.
+     *
+     * @see #setPosition(Position, CharSequence, int, int)
+     */
+    public int setPosition(Position position, ByteBuffer fen, int start, int end) {
+        if (null == fen) {
+            return 0;
         }
-        Position position;
+        bytes.buffer = fen;
         try {
-            position = positionBuilder.build();
-        } catch (InvalidPositionException e) {
-            return null;
+            return setPosition(position, bytes, start, end);
+        } finally {
+            bytes.buffer = null;
         }
-        return new Game(position, moveCounter);
     }
 
     @Override
@@ -122,43 +212,46 @@ public class FENParser implements GameParser {
         if (null == game) {
              return null;
         }
-        StringBuilder fen = new StringBuilder();
-        Position position = game.getCurrentPosition();
+        return appendNotation(game.getCurrentPosition(), game.getMoveCount(), new StringBuilder(90)).toString();
+    }
+
+    /**
+     * @param moveNumber full move number, which the position doesn't know.
+     * @return the builder, with the FEN appended.
+     */
+    public StringBuilder appendNotation(Position position, int moveNumber, StringBuilder fen) {
+        long white = position.getWhitePieces();
+        long all = position.getAllPieces();
 
         /* Adding board position. */
-        int spaceCounter = 0;
-        for(int i = 63; i >= 0; i--) {
-            Colour colour = position.getPieceColour(i);
-            if (null == colour) {
-                spaceCounter ++;
-            } else {
-                if (spaceCounter > 0) {
-                    fen.append(spaceCounter);
-                    spaceCounter = 0;
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int square = rank * 8 + 7; square >= rank * 8; square--) {
+                long bit = 1L << square;
+                if ((all & bit) == 0) {
+                    empty++;
+                    continue;
                 }
-                PieceType type = position.getPieceType(i);
-                if (colour == Colour.WHITE) {
-                    fen.append(type.getNotation());
-                } else {
-                    fen.append(Character.toLowerCase(type.getNotation()));
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
                 }
+                char piece = position.getPieceTypeOfKnownPiece(bit).getNotation();
+                fen.append((white & bit) != 0 ? piece : Character.toLowerCase(piece));
             }
-            if (i % 8 == 0) {
-                if (spaceCounter > 0) {
-                    fen.append(spaceCounter);
-                    spaceCounter = 0;
-                }
-                if (i != 0) {
-                    fen.append('/');
-                }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                fen.append('/');
             }
         }
 
         // Side to move.
-        fen.append(" ").append(position.whiteToMove() ? 'w' : 'b');
+        fen.append(' ').append(position.whiteToMove() ? 'w' : 'b');
 
         // Castling options.
-        fen.append(" ");
+        fen.append(' ');
         if (position.canPotentiallyCastle(true) || position.canPotentiallyCastle(false)) {
             if(position.canPotentiallyCastleRight(true))  fen.append('K');
             if(position.canPotentiallyCastleLeft(true))   fen.append('Q');
@@ -169,31 +262,89 @@ public class FENParser implements GameParser {
         }
 
         // En-passant.
-        fen.append(" ");
+        fen.append(' ');
         if (position.enPassantAvailable()) {
-            fen.append(new Square(position.getPawnLocationAfterEnPassant(position.whiteToMove())));
+            int square = Long.numberOfTrailingZeros(position.getPawnLocationAfterEnPassant(position.whiteToMove()));
+            fen.append((char) ('h' - (square & 7))).append((char) ('1' + (square >>> 3)));
         } else {
             fen.append('-');
         }
 
         // Half-move counter.
-        fen.append(" ").append(position.getReversibleHalfMoveCount());
+        fen.append(' ').append(position.getReversibleHalfMoveCount());
 
         // Full-move counter.
-        fen.append(" ").append(game.getMoveCount());
+        fen.append(' ').append(moveNumber);
 
-        return fen.toString();
+        return fen;
     }
 
     @Override
     public boolean confirmFormat(String gameContent) {
-        gameContent = adjustSpaces(gameContent);
+        return null != gameContent
+                && setPosition(new Position(TEMPLATE), gameContent, 0, gameContent.length()) != 0;
+    }
+
+    /* What String.trim() takes off, which is more than the regular expression \s matches. */
+    private static boolean isSpace(char c) {
+        return c <= ' ';
+    }
 
-        /* Counting pieces. */
-        return true;
+    private static boolean isFieldEnd(CharSequence fen, int at, int end) {
+        return at == end || isSpace(fen.charAt(at));
     }
 
-    private String adjustSpaces(String fen) {
-        return fen.replaceAll("\\s", " ").trim();
+    private static int skipSpaces(CharSequence fen, int at, int end) {
+        while (at < end && isSpace(fen.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    /* Where the number starting at at ends, at itself if there's no number there, or more than one. */
+    private static int skipNumber(CharSequence fen, int at, int end) {
+        int numberEnd = at;
+        while (numberEnd < end && numberEnd - at < 9 && fen.charAt(numberEnd) >= '0'
+                && fen.charAt(numberEnd) <= '9') {
+            numberEnd++;
+        }
+        return isFieldEnd(fen, numberEnd, end) ? numberEnd : at;
+    }
+
+    private static int readNumber(CharSequence fen, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            number = number * 10 + (fen.charAt(i) - '0');
+        }
+        return number;
+    }
+
+    /* A buffer's bytes as characters, without decoding them. FENs are ASCII. */
+    private static final class ByteSequence implements CharSequence {
+        ByteBuffer buffer;
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder copy = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                copy.append(charAt(i));
+            }
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
     }
 }
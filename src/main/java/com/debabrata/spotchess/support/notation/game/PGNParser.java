@@ -2,20 +2,48 @@ package com.debabrata.spotchess.support.notation.game;
 
 import com.debabrata.spotchess.types.Game;
 
-/** Parses and generates Portable Game Notation game file format. */
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Parses and generates Portable Game Notation game file format. Only the first game of the content is read, use
+ * {@link PGNReader} and {@link PGNWriter} for more than one and for anything big enough to stream.
+ */
 public class PGNParser implements GameParser {
     @Override
     public Game getGame(String gameContent) {
-        return null;
+        if (!confirmFormat(gameContent)) {
+            return null;
+        }
+        try (PGNReader reader = new PGNReader(new StringReader(gameContent))) {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); /* Reading a String doesn't fail. */
+        }
     }
 
     @Override
     public String getNotation(Game game) {
-        return null;
+        if (null == game) {
+            return null;
+        }
+        StringWriter notation = new StringWriter();
+        try (PGNWriter writer = new PGNWriter(notation)) {
+            writer.write(game);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return notation.toString();
     }
 
     @Override
     public boolean confirmFormat(String gameContent) {
-        return false;
+        if (null == gameContent) {
+            return false;
+        }
+        gameContent = gameContent.strip();
+        return !gameContent.isEmpty() && (gameContent.charAt(0) == '[' || Character.isDigit(gameContent.charAt(0)));
     }
 }
@@ -0,0 +1,319 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Move;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads games out of PGN one at a time, so a database of any size goes through in a bounded amount of memory. The input
+ * is read through a fixed buffer and nothing is held on to but the game being read.
+ * <p>
+ * Moves are read with {@link SANParser}, starting from the FEN tag's position if there is one. A comment goes with the
+ * move before it. Variations, numeric annotation glyphs and escaped lines are skipped. A game that can't be read, say
+ * because one of its moves isn't legal, is skipped up to its end and counted, see {@link #getSkippedCount()}.
+ * <p>
+ * Not thread safe, every thread needs a reader of its own.
+ */
+public class PGNReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int readAt;
+    private int readLimit;
+    private int last = '\n';
+    private int beforeLast = '\n'; /* To know if the last character read started a line. */
+
+    private final StringBuilder token = new StringBuilder();
+    private final SANParser sanParser = new SANParser();
+    private final FENParser fenParser = new FENParser();
+    private long skippedCount;
+
+    public PGNReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the channel as UTF-8, which ASCII PGN is too. Bytes that aren't valid UTF-8 read as replacement characters,
+     * so an odd Latin-1 name in a tag doesn't stop anything.
+     */
+    public PGNReader(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return number of games skipped so far because they couldn't be read.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the next game, null once there are no more.
+     */
+    public Game next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        Game game = null;
+        Position position = null;
+        Move lastMove = null;
+        boolean failed = false;
+        int read;
+        while ((read = read()) >= 0) {
+            char c = (char) read;
+            if (c == '%' && isLineStart()) {
+                skipLine();
+            } else if (c == '[') {
+                if (game != null) {
+                    unread(); /* No result, the next game's tags end this one. */
+                    return game;
+                }
+                if (failed) {
+                    skippedCount++;
+                    failed = false;
+                    tags.clear();
+                }
+                readTag(tags);
+            } else if (c == '{') {
+                String comment = readComment();
+                if (lastMove != null) {
+                    lastMove.setComments(lastMove.getComments() == null ? comment
+                            : lastMove.getComments() + " " + comment);
+                }
+            } else if (c == ';') {
+                skipLine();
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readToken(c); /* Numeric annotation glyph. */
+            } else if (!Character.isWhitespace(c)) {
+                readToken(c);
+                if (isResult(token)) {
+                    if (failed) {
+                        skippedCount++;
+                        failed = false;
+                        tags.clear();
+                        continue;
+                    }
+                    if (game == null) {
+                        game = startGame(tags);
+                        if (game == null) {
+                            skippedCount++;
+                            tags.clear();
+                            continue;
+                        }
+                    }
+                    if (game.getTag("Result") == null) {
+                        game.setTag("Result", token.toString());
+                    }
+                    return game;
+                }
+                int san = skipMoveNumber(token);
+                if (san == token.length() || failed) {
+                    continue;
+                }
+                if (game == null) {
+                    game = startGame(tags);
+                    if (game == null) {
+                        failed = true;
+                        continue;
+                    }
+                    position = game.getCurrentPosition();
+                }
+                long move = sanParser.getMove(position, token, san, getSanEnd(token, san));
+                if (move == 0) {
+                    game = null;
+                    lastMove = null;
+                    failed = true;
+                    continue;
+                }
+                position.makeMove(move);
+                lastMove = new Move(move, null);
+                game.addMove(lastMove);
+            }
+        }
+        if (failed) {
+            skippedCount++;
+            return null;
+        }
+        if (game == null && !tags.isEmpty()) {
+            game = startGame(tags); /* Tags but no moves or result. */
+        }
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Game startGame(Map<String, String> tags) {
+        Game game;
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            try {
+                game = fenParser.getGame(fen);
+            } catch (RuntimeException e) {
+                return null; /* FENParser throws on some of what it can't read and returns null on the rest. */
+            }
+            if (game == null) {
+                return null;
+            }
+        } else {
+            game = new Game(new Position(GameType.STANDARD));
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            game.setTag(tag.getKey(), tag.getValue());
+        }
+        return game;
+    }
+
+    private int read() throws IOException {
+        if (readAt == readLimit) {
+            readLimit = reader.read(buffer, 0, BUFFER_SIZE);
+            readAt = 0;
+            if (readLimit <= 0) {
+                readLimit = 0;
+                return -1;
+            }
+        }
+        beforeLast = last;
+        last = buffer[readAt++];
+        return last;
+    }
+
+    private boolean isLineStart() {
+        return beforeLast == '\n' || beforeLast == '\r';
+    }
+
+    /* Only right after a read, which leaves the character in the buffer. */
+    private void unread() {
+        readAt--;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            /* Skipping. */
+        }
+    }
+
+    /* [Name "Value"], the '[' already read. Quotes and backslashes in the value are escaped with a backslash. */
+    private void readTag(Map<String, String> tags) throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = read()) >= 0 && c != '"' && c != ']') {
+            if (!Character.isWhitespace(c)) {
+                token.append((char) c);
+            }
+        }
+        String name = token.toString();
+        token.setLength(0);
+        if (c == '"') {
+            while ((c = read()) >= 0 && c != '"') {
+                if (c == '\\') {
+                    c = read();
+                }
+                if (c >= 0) {
+                    token.append((char) c);
+                }
+            }
+            while (c >= 0 && c != ']') {
+                c = read();
+            }
+        }
+        if (!name.isEmpty()) {
+            tags.put(name, token.toString());
+        }
+    }
+
+    /* Everything up to the closing brace, the opening one already read. Line breaks become spaces. */
+    private String readComment() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = read()) >= 0 && c != '}') {
+            token.append(c == '\n' || c == '\r' ? ' ' : (char) c);
+        }
+        return token.toString().trim();
+    }
+
+    /* Skips to the matching parenthesis, the opening one already read. Variations nest and can hold comments. */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                readComment();
+            } else if (c == ';') {
+                skipLine();
+            }
+        }
+    }
+
+    /* Reads a symbol into token, starting with first. Stops before anything that can't be part of one. */
+    private void readToken(char first) throws IOException {
+        token.setLength(0);
+        token.append(first);
+        int c;
+        while ((c = read()) >= 0) {
+            if (Character.isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == '[' || c == ']'
+                    || c == ';' || c == '$') {
+                unread();
+                return;
+            }
+            token.append((char) c);
+        }
+    }
+
+    private static boolean isResult(CharSequence token) {
+        return contentEquals(token, "1-0") || contentEquals(token, "0-1") || contentEquals(token, "1/2-1/2")
+                || contentEquals(token, "*");
+    }
+
+    private static boolean contentEquals(CharSequence token, String result) {
+        if (token.length() != result.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) != result.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Move numbers like 12. or 12... might be stuck to the move, as in 12.Nf3. Returns where the move starts. */
+    private static int skipMoveNumber(CharSequence token) {
+        int at = 0;
+        while (at < token.length() && Character.isDigit(token.charAt(at))) {
+            at++;
+        }
+        while (at < token.length() && token.charAt(at) == '.') {
+            at++;
+        }
+        return at;
+    }
+
+    /* Where the move from start on ends, before check marks and annotations like !? that SANParser doesn't expect. */
+    private static int getSanEnd(CharSequence token, int start) {
+        int end = token.length();
+        while (end > start && "+#!?".indexOf(token.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return end;
+    }
+}
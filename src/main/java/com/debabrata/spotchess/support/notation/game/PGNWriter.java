@@ -0,0 +1,133 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Move;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes games out as PGN one at a time, the other half of {@link PGNReader}. The seven tag roster comes first and in
+ * its order, with the unknown marker for anything a game doesn't have, then the rest of the tags. A game that doesn't
+ * start from the initial position gets SetUp and FEN tags. Moves are in SAN with check and mate marked, comments in
+ * braces, and lines are kept under 80 characters.
+ * <p>
+ * Output is buffered by whatever it's written to, so wrap a plain Writer in a BufferedWriter. Not thread safe.
+ */
+public class PGNWriter implements Closeable, Flushable {
+    private static final String[] ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+    private static final String[] ROSTER_UNKNOWN = { "?", "?", "????.??.??", "?", "?", "?", "*" };
+    private static final int LINE_LENGTH = 79;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 1);
+    private final StringBuilder word = new StringBuilder();
+    private final SANParser sanParser = new SANParser();
+    private final FENParser fenParser = new FENParser();
+    private final MoveProcessor processor = new MoveProcessor(new long[256]);
+    private final long standardKey = new Position(GameType.STANDARD).getKey();
+
+    public PGNWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public PGNWriter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    public void write(Game game) throws IOException {
+        for (int i = 0; i < ROSTER.length; i++) {
+            String value = game.getTag(ROSTER[i]);
+            writeTag(ROSTER[i], value == null ? ROSTER_UNKNOWN[i] : value);
+        }
+        Position position = game.getInitialPosition();
+        if (game.getTag("FEN") == null && position.getKey() != standardKey) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", fenParser.getNotation(new Game(position, game.getFirstMoveNumber())));
+        }
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            if (!isRosterTag(tag.getKey())) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        writer.write('\n');
+
+        int moveNumber = game.getFirstMoveNumber();
+        if (!position.whiteToMove()) {
+            word.setLength(0);
+            addWord(word.append(moveNumber).append("..."));
+        }
+        for (Move move : game.getMoveHistory()) {
+            word.setLength(0);
+            if (position.whiteToMove()) {
+                addWord(word.append(moveNumber).append('.'));
+                word.setLength(0);
+            } else {
+                moveNumber++;
+            }
+            sanParser.appendNotation(position, move.getMove(), word);
+            position.makeMove(move.getMove());
+            int replies = processor.countLegalMoves(position);
+            if (processor.isCheck()) {
+                word.append(replies == 0 ? '#' : '+');
+            }
+            addWord(word);
+            if (move.getComments() != null) {
+                word.setLength(0);
+                /* A closing brace would end the comment early, and there's no escaping it. */
+                addWord(word.append('{').append(move.getComments().replace('}', ')')).append('}'));
+            }
+        }
+        String result = game.getTag("Result");
+        word.setLength(0);
+        addWord(word.append(result == null ? "*" : result));
+        writer.append(line).append("\n\n");
+        line.setLength(0);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        writer.append('[').append(name).append(" \"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String tag : ROSTER) {
+            if (tag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Long comments might not fit on a line whatever we do, those get one to themselves. */
+    private void addWord(CharSequence word) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + word.length() > LINE_LENGTH) {
+            writer.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(word);
+    }
+}
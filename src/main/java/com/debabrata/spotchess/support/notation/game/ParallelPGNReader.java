@@ -0,0 +1,263 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.types.Game;
+
+import java.io.CharArrayReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a PGN file on several threads. The file is memory mapped once and cut into chunks of a few megabytes, each
+ * ending where a line starting with "[Event " does, so no game is split between two chunks. Worker threads read the
+ * chunks with a {@link PGNReader} each and the games come out of {@link #next()}, in file order or in whatever order
+ * the chunks get done.
+ * <p>
+ * Only so many chunks are in flight at once, read or being read but not yet handed out, so memory stays bounded however
+ * big the file and however slow the caller. The cutting happens on a thread of its own, ahead of the workers.
+ * <p>
+ * Games are expected to start with their Event tag, as the PGN standard has it. A game that doesn't stays with the one
+ * before it, which only matters in that their chunk gets bigger. {@link #next()} is for a single consumer thread.
+ */
+public final class ParallelPGNReader implements Closeable {
+    private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+    private static final int PROBE_BYTES = 64 << 10;
+    /* Windows start this far apart and are twice as long, less a byte to fit an int. So any stretch of up to a
+       gigabyte lies whole in one of them. */
+    private static final long WINDOW_STEP = 1L << 30;
+    private static final int WINDOW_BYTES = Integer.MAX_VALUE;
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.US_ASCII);
+    private static final Chunk END = new Chunk(List.of(), 0, null, false);
+
+    private final FileChannel channel;
+    private final long size;
+    /* The whole file, mapped once. Chunks and probes are slices of these. */
+    private final MappedByteBuffer[] windows;
+    private final boolean ordered;
+    private final int chunkBytes;
+    private final ExecutorService workers;
+    private final Thread splitter;
+    private final Semaphore inFlight;
+    /* Futures in file order when ordered, finished chunks as they come otherwise. Either way END comes last. */
+    private final BlockingQueue<Object> chunks = new LinkedBlockingQueue<>();
+    /* Unordered, chunks not yet queued plus one for the splitter. Whoever brings it to 0 queues END. */
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private List<Game> current = List.of();
+    private int currentAt;
+    private long skippedCount;
+    private boolean finished;
+
+    /* heldPermit is false only for chunks that never took one from inFlight, END and the splitter's own error. */
+    private record Chunk(List<Game> games, long skipped, Throwable error, boolean heldPermit) {
+    }
+
+    /**
+     * @param ordered whether games come out in file order. Without that a slow chunk doesn't hold up the others.
+     */
+    public ParallelPGNReader(Path file, int threadCount, boolean ordered) throws IOException {
+        this(file, threadCount, ordered, DEFAULT_CHUNK_BYTES);
+    }
+
+    ParallelPGNReader(Path file, int threadCount, boolean ordered, int chunkBytes) throws IOException {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Need at least one thread to read with, got " + threadCount);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.windows = map(channel, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.ordered = ordered;
+        this.chunkBytes = chunkBytes;
+        this.inFlight = new Semaphore(threadCount * 2);
+        this.workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.splitter = new Thread(this::split, "pgn-splitter");
+        this.splitter.setDaemon(true);
+        this.splitter.start();
+    }
+
+    /**
+     * @return the next game, null once there are no more.
+     * @throws IOException if the file couldn't be read, as soon as the chunk where that happened comes up.
+     */
+    public Game next() throws IOException {
+        while (currentAt == current.size()) {
+            if (finished) {
+                return null;
+            }
+            Chunk chunk = takeChunk();
+            if (chunk == END) {
+                finished = true;
+                return null;
+            }
+            if (chunk.heldPermit()) {
+                inFlight.release();
+            }
+            if (chunk.error() != null) {
+                throw new IOException("Couldn't read a chunk of the PGN file", chunk.error());
+            }
+            current = chunk.games();
+            currentAt = 0;
+            skippedCount += chunk.skipped();
+        }
+        return current.get(currentAt++);
+    }
+
+    /**
+     * @return number of games skipped so far because they couldn't be read, in the chunks handed out.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        current = List.of();
+        splitter.interrupt();
+        workers.shutdownNow();
+        channel.close();
+    }
+
+    private Chunk takeChunk() throws IOException {
+        try {
+            Object taken = chunks.take();
+            if (taken instanceof Future<?> future) {
+                return (Chunk) future.get();
+            }
+            return (Chunk) taken;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for games");
+        } catch (ExecutionException e) {
+            return new Chunk(List.of(), 0, e.getCause(), true);
+        }
+    }
+
+    /* Runs on the splitter thread. Cuts the file up and hands the chunks to the workers. */
+    private void split() {
+        try {
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkBytes >= size ? size : findGameStart(start + chunkBytes, size);
+                inFlight.acquire();
+                long from = start;
+                if (ordered) {
+                    chunks.put(workers.submit(() -> read(from, end)));
+                } else {
+                    pending.incrementAndGet();
+                    workers.execute(() -> deliver(read(from, end)));
+                }
+                start = end;
+            }
+        } catch (InterruptedException e) {
+            return; /* Closed. */
+        } catch (IOException | RuntimeException e) {
+            chunks.add(new Chunk(List.of(), 0, e, false));
+        }
+        if (ordered) {
+            chunks.add(END);
+        } else {
+            deliver(null);
+        }
+    }
+
+    /* Unordered: queues the chunk, and END after it if it was the last one. Null for the splitter being done. */
+    private void deliver(Chunk chunk) {
+        if (chunk != null) {
+            chunks.add(chunk);
+        }
+        if (pending.decrementAndGet() == 0) {
+            chunks.add(END);
+        }
+    }
+
+    private Chunk read(long start, long end) {
+        try {
+            ByteBuffer bytes = slice(start, end);
+            CharBuffer text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes);
+            PGNReader reader = new PGNReader(
+                    new CharArrayReader(text.array(), text.arrayOffset() + text.position(), text.remaining()));
+            List<Game> games = new ArrayList<>();
+            for (Game game = reader.next(); game != null; game = reader.next()) {
+                games.add(game);
+            }
+            return new Chunk(games, reader.getSkippedCount(), null, true);
+        } catch (IOException | RuntimeException e) {
+            return new Chunk(List.of(), 0, e, true);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        List<MappedByteBuffer> windows = new ArrayList<>();
+        for (long at = 0; ; at += WINDOW_STEP) {
+            windows.add(channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW_BYTES, size - at)));
+            if (at + WINDOW_BYTES >= size) {
+                return windows.toArray(new MappedByteBuffer[0]);
+            }
+        }
+    }
+
+    /* The bytes from start to end, out of the window they lie in. Safe on any thread, the windows are never moved. */
+    private ByteBuffer slice(long start, long end) throws IOException {
+        int window = (int) Math.min(start / WINDOW_STEP, windows.length - 1);
+        long windowStart = window * WINDOW_STEP;
+        if (end - windowStart > windows[window].capacity()) {
+            throw new IOException("A game of over a gigabyte at byte " + start);
+        }
+        return windows[window].slice((int) (start - windowStart), (int) (end - start));
+    }
+
+    /* Offset of the first "[Event " at the start of a line at or after from, or size if there isn't one. */
+    private long findGameStart(long from, long size) throws IOException {
+        /* Starting a byte early so a game starting right at from has its line break seen. */
+        for (long probe = from - 1; probe < size; probe += PROBE_BYTES) {
+            long length = Math.min(PROBE_BYTES + GAME_START.length, size - probe);
+            ByteBuffer bytes = slice(probe, probe + length);
+            for (int i = 0; i + GAME_START.length <= length; i++) {
+                if (matchesGameStart(bytes, i)) {
+                    return probe + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static boolean matchesGameStart(ByteBuffer bytes, int at) {
+        for (int i = 0; i < GAME_START.length; i++) {
+            if (bytes.get(at + i) != GAME_START[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,7 +1,6 @@
 package com.debabrata.spotchess.support.notation.move;
 
 import com.debabrata.spotchess.types.Position;
-import com.debabrata.spotchess.types.Square;
 import com.debabrata.spotchess.types.enums.Colour;
 import com.debabrata.spotchess.types.enums.PieceType;
 import com.debabrata.spotchess.utils.BitUtil;
@@ -9,25 +8,59 @@ import com.debabrata.spotchess.utils.KingAndKnightMovesUtil;
 import com.debabrata.spotchess.utils.MoveInitUtil;
 import com.debabrata.spotchess.utils.RookAndBishopMovesUtil;
 
-/** Parses and generates Standard Algebraic Notation moves. */
+/**
+ * Parses and generates Standard Algebraic Notation moves.
+ * <p>
+ * Replaying a big collection of games goes through this once a move, so nothing here allocates but the String methods
+ * of MoveParser. Moves are read a character at a time straight out of whatever they came in, and written into a
+ * StringBuilder the caller passes. A parser holds a buffer for notation with whitespace in it, so it's one per thread.
+ */
 public class SANParser implements MoveParser {
+    private final StringBuilder compacted = new StringBuilder(16);
+
     @Override
     public long getMove(Position position, String notation) {
-        /* We don't do all checks for legality, only enough to avoid misinterpretation. */
+        return null == notation ? 0 : getMove(position, notation, 0, notation.length());
+    }
+
+    /**
+     * Whitespace anywhere in the range is ignored, so "N f3" reads as Nf3.
+     *
+     * @return the move notation[start, end) stands for, 0 if it can't be read.
+     */
+    public long getMove(Position position, CharSequence notation, int start, int end) {
         if (null == notation || null == position) {
             return 0;
         }
-        notation = notation.replaceAll("\\s", "");
-        if (notation.length() < 2) {
+        for (int i = start; i < end; i++) {
+            if (isSpace(notation.charAt(i))) {
+                compacted.setLength(0);
+                for (int j = start; j < end; j++) {
+                    char c = notation.charAt(j);
+                    if (!isSpace(c)) {
+                        compacted.append(c);
+                    }
+                }
+                return parse(position, compacted, 0, compacted.length());
+            }
+        }
+        return parse(position, notation, start, end);
+    }
+
+    /* notation[start, end) has no whitespace in it. Indices below are from start. */
+    private static long parse(Position position, CharSequence notation, int start, int end) {
+        /* We don't do all checks for legality, only enough to avoid misinterpretation. */
+        int length = end - start;
+        if (length < 2) {
             return 0;
         }
         boolean whiteToMove = position.whiteToMove();
-        if (notation.equalsIgnoreCase("O-O-O") || notation.equalsIgnoreCase("0-0-0")) {
+        if (equalsIgnoreCase(notation, start, end, "O-O-O") || equalsIgnoreCase(notation, start, end, "0-0-0")) {
             if (whiteToMove) {
                 return MoveInitUtil.newLeftCastle();
             }
             return MoveInitUtil.newLeftCastle();
-        } else if (notation.equalsIgnoreCase("O-O") || notation.equalsIgnoreCase("0-0")) {
+        } else if (equalsIgnoreCase(notation, start, end, "O-O") || equalsIgnoreCase(notation, start, end, "0-0")) {
             if (whiteToMove) {
                 return MoveInitUtil.newRightCastle();
             }
@@ -35,8 +68,8 @@ public class SANParser implements MoveParser {
         }
         int endOfToCoOrdinate;
         int to;
-        for (endOfToCoOrdinate = notation.length() - 1; endOfToCoOrdinate > 0; endOfToCoOrdinate--) {
-            char rank = notation.charAt(endOfToCoOrdinate);
+        for (endOfToCoOrdinate = length - 1; endOfToCoOrdinate > 0; endOfToCoOrdinate--) {
+            char rank = notation.charAt(start + endOfToCoOrdinate);
             if (rank >= '0' && rank <= '8') {
                 break; /* We keep looking till we find the rank. */
             }
@@ -45,8 +78,8 @@ public class SANParser implements MoveParser {
             return 0; /* Not a valid message. All valid message have at least one number after first char. */
         }
         /* Reached the to position. */
-        to = notation.charAt(endOfToCoOrdinate) - '1';
-        char file = notation.charAt(endOfToCoOrdinate - 1);
+        to = notation.charAt(start + endOfToCoOrdinate) - '1';
+        char file = notation.charAt(start + endOfToCoOrdinate - 1);
         if (file >= 'a' && file <= 'h') {
             to = 8 * to + ('h' - file);
         } else {
@@ -64,7 +97,7 @@ public class SANParser implements MoveParser {
         }
         /* Finding the 'from' position. */
         if (endOfToCoOrdinate > 1) {
-            char startsWith = notation.charAt(0);
+            char startsWith = notation.charAt(start);
             if (Character.isUpperCase(startsWith)) {
                 /*Dealing with pieces. */
                 long attackers;
@@ -95,7 +128,7 @@ public class SANParser implements MoveParser {
                 }
                 boolean xEncountered = false;
                 for (int i = 1; i < endOfToCoOrdinate - 1; i++) {
-                    char disambiguator = notation.charAt(i);
+                    char disambiguator = notation.charAt(start + i);
                     if (disambiguator >= 'a' && disambiguator <= 'h') {
                         attackers = attackers & (0x0101010101010101L << ('h' - disambiguator));
                     } else if (disambiguator >= '1' && disambiguator <= '8') {
@@ -109,6 +142,9 @@ public class SANParser implements MoveParser {
                 if (pieceTaken != xEncountered) {
                     return 0; /* Piece taken but not notated or piece not taken but takes notated. */
                 }
+                if (Long.bitCount(attackers) > 1) {
+                    attackers = withoutPinned(position, attackers, to, sideToMove);
+                }
                 if (Long.bitCount(attackers) != 1) {
                     return 0; /* Despite disambiguation there are multiple attackers or no attackers for the position. */
                 }
@@ -144,9 +180,10 @@ public class SANParser implements MoveParser {
         }
         /* Taking care of pawn takes. from == 0 works because there are no legal pawn moves from h1. */
         if (from == 0) {
-            char takerFile = notation.charAt(0);
+            char takerFile = notation.charAt(start);
             if (takerFile >= 'a' && takerFile <= 'h') {
-                if (Character.toLowerCase(notation.charAt(1)) != 'x' && Character.toLowerCase(notation.charAt(2)) != 'x') {
+                if (Character.toLowerCase(notation.charAt(start + 1)) != 'x'
+                        && Character.toLowerCase(notation.charAt(start + 2)) != 'x') {
                     return 0; /* We expect a taker. We see no takes in notation. */
                 }
                 if (whiteToMove) {
@@ -166,11 +203,11 @@ public class SANParser implements MoveParser {
         }
         /* Checking for promotion. */
         boolean reachedLastRank = (whiteToMove && to / 8 == 7) || (!whiteToMove && to / 8 == 0);
-        if (endOfToCoOrdinate + 1 < notation.length()) {
+        if (endOfToCoOrdinate + 1 < length) {
             /* There's more to read. It can be +, # etc. Or it could be promotion. We check for promotion. */
-            if (notation.charAt(endOfToCoOrdinate + 1) == '=') {
-                if (endOfToCoOrdinate + 2 < notation.length()) {
-                    char promotesTo = Character.toUpperCase(notation.charAt(endOfToCoOrdinate + 2));
+            if (notation.charAt(start + endOfToCoOrdinate + 1) == '=') {
+                if (endOfToCoOrdinate + 2 < length) {
+                    char promotesTo = Character.toUpperCase(notation.charAt(start + endOfToCoOrdinate + 2));
                     if (reachedLastRank) {
                         if ( promotesTo == 'Q' ) {
                             return MoveInitUtil.newPawnPromotion(1L << from, 1L << to, whiteToMove, PieceType.QUEEN);
@@ -200,36 +237,35 @@ public class SANParser implements MoveParser {
 
     @Override
     public String getNotation(Position position, long move) {
+        return appendNotation(position, move, new StringBuilder(8)).toString();
+    }
+
+    /**
+     * @return the builder, with the move appended.
+     */
+    public StringBuilder appendNotation(Position position, long move, StringBuilder notation) {
         if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isCastle(move)) {
-            return MoveInitUtil.isRightCastle(move) ? "O-O" : "O-O-O";
+            return notation.append(MoveInitUtil.isRightCastle(move) ? "O-O" : "O-O-O");
         }
 
         long to = MoveInitUtil.getTo(move, position);
-        String notation = new Square(to).toString();
-
         long from = MoveInitUtil.getFrom(move, position);
+        int toPv = BitUtil.getLastBitPlaceValue(to);
+        int fromPv = BitUtil.getLastBitPlaceValue(from);
         PieceType pieceType = position.getPieceType(from);
+        boolean takes = position.getPieceType(to) != null
+                || (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isEnPassant(move));
 
-        if (position.getPieceType(to) != null || (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isEnPassant(move))) {
-            notation = "x" + notation;
-            if (pieceType == PieceType.PAWN) {
-                notation = new Square(from).toString().charAt(0) + notation;
-            }
-        }
         if (pieceType == PieceType.PAWN) {
-            if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isPromotion(move)) {
-                PieceType promotesTo = MoveInitUtil.promotesTo(move);
-                if (null == promotesTo) {
-                    throw new RuntimeException("Invalid promotion!");
-                }
-                notation = notation + "=" + promotesTo.getNotation();
+            if (takes) {
+                notation.append(getFile(fromPv));
             }
         } else {
+            notation.append(pieceType.getNotation());
             /* We calculate as if the attacker is at the attacked position. Then we find all legal moves it can make
              * from the attacked position and see if it hits another piece of the same kind. */
             long attackers = 0;
             long allPieces = position.getAllPieces();
-            int toPv = BitUtil.getLastBitPlaceValue(to);
             switch (pieceType) {
                 case KNIGHT:
                     attackers = KingAndKnightMovesUtil.getKnightMoves(toPv);
@@ -253,33 +289,86 @@ public class SANParser implements MoveParser {
             attackers = attackers & ~from;
             /* We only care about attacking pieces of the same colour. */
             Colour moversColour = position.getPieceColour(from);
-            if (moversColour == Colour.BLACK) {
-                attackers = attackers & position.getBlackPieces();
-            } else {
-                attackers = attackers & position.getWhitePieces();
+            long moversPieces = moversColour == Colour.BLACK ? position.getBlackPieces() : position.getWhitePieces();
+            attackers = attackers & moversPieces;
+            /* A pinned piece can't go there, so it doesn't need telling apart. */
+            if (attackers != 0) {
+                attackers = withoutPinned(position, attackers, toPv, moversPieces);
             }
             if (attackers != 0) {
                 /* There is ambiguity with attackers. */
-                if ((attackers & (0x0101010101010101L << (BitUtil.getLastBitPlaceValue(from) % 8))) == 0) {
+                if ((attackers & (0x0101010101010101L << (fromPv % 8))) == 0) {
                     /* Attackers are not in the same column. */
-                    notation = new Square(from).toString().charAt(0) + notation;
-                } else if ((attackers & (0x00000000000000FFL << (8 * (BitUtil.getLastBitPlaceValue(from) / 8)))) == 0) {
+                    notation.append(getFile(fromPv));
+                } else if ((attackers & (0x00000000000000FFL << (8 * (fromPv / 8)))) == 0) {
                     /* Attackers are in the same column but not same row. */
-                    notation = new Square(from).toString().charAt(1) + notation;
+                    notation.append(getRank(fromPv));
                 } else {
                     /* We share both row and column with some attacker. */
-                    notation = new Square(from) + notation;
+                    notation.append(getFile(fromPv)).append(getRank(fromPv));
                 }
             }
         }
+        if (takes) {
+            notation.append('x');
+        }
+        notation.append(getFile(toPv)).append(getRank(toPv));
+        if (pieceType == PieceType.PAWN && MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isPromotion(move)) {
+            PieceType promotesTo = MoveInitUtil.promotesTo(move);
+            if (null == promotesTo) {
+                throw new RuntimeException("Invalid promotion!");
+            }
+            notation.append('=').append(promotesTo.getNotation());
+        }
+        return notation;
+    }
 
-        char pieceChar = pieceType.getNotation();
-        notation = pieceChar == 'P' ? notation : pieceChar + notation;
-        return notation.trim();
+    /* Drops the pieces that would leave their king in check by going to the square. Not for the king itself. */
+    private static long withoutPinned(Position position, long pieces, int to, long ownPieces) {
+        int king = BitUtil.getLastBitPlaceValue(position.getKings() & ownPieces);
+        long theirs = position.getAllPieces() & ~ownPieces & ~(1L << to);
+        long remaining = pieces;
+        for (long candidates = pieces; candidates != 0; candidates &= candidates - 1) {
+            long from = candidates & -candidates;
+            long occupied = (position.getAllPieces() & ~from) | (1L << to);
+            if ((position.getAttackers(king, occupied) & theirs) != 0) {
+                remaining &= ~from;
+            }
+        }
+        return remaining;
     }
 
     @Override
     public boolean confirmFormat(String moveNotation) {
         return false;
     }
+
+    /* What the regular expression \s matches, which is less than Character.isWhitespace does. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /* Like String.equalsIgnoreCase, for a range. */
+    private static boolean equalsIgnoreCase(CharSequence notation, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char c = notation.charAt(start + i);
+            char e = expected.charAt(i);
+            if (c != e && Character.toUpperCase(c) != Character.toUpperCase(e)
+                    && Character.toLowerCase(c) != Character.toLowerCase(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char getFile(int square) {
+        return (char) ('h' - (square & 7));
+    }
+
+    private static char getRank(int square) {
+        return (char) ('1' + (square >>> 3));
+    }
 }
@@ -1,20 +1,164 @@
 package com.debabrata.spotchess.support.notation.move;
 
+import com.debabrata.spotchess.logic.MoveProcessor;
 import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.PieceType;
+import com.debabrata.spotchess.utils.MoveInitUtil;
 
+/**
+ * Parses and generates the long algebraic moves UCI uses, like e2e4, e1g1 for castling and a7a8q.
+ * <p>
+ * A GUI replays the whole game with every position command, so none of this allocates. Moves are read straight out of
+ * whatever they came in, a range of a line say, and written into a StringBuilder or char array the caller passes. The
+ * String methods of MoveParser are built on those. A parser holds a move buffer, so it's one per thread.
+ */
 public class UCIParser implements MoveParser {
+    private final long[] moveBuffer = new long[256];
+    private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
     @Override
     public long getMove(Position position, String notation) {
-        return 0;
+        return null == notation ? 0 : getMove(position, notation, 0, notation.length());
+    }
+
+    /**
+     * The move is put together from the squares, which tell us everything but the promotion, and then looked for among
+     * the legal moves so that a bad one can't get into the position.
+     *
+     * @return the legal move notation[start, end) stands for, 0 if there isn't one.
+     */
+    public long getMove(Position position, CharSequence notation, int start, int end) {
+        if (null == position || !confirmFormat(notation, start, end)) {
+            return 0;
+        }
+        int fromSquare = getSquare(notation, start);
+        int toSquare = getSquare(notation, start + 2);
+        long from = 1L << fromSquare;
+        long to = 1L << toSquare;
+        boolean whiteToMove = position.whiteToMove();
+        long pawns = position.getPawns();
+        long move;
+        if (end - start == 5) {
+            move = (from & pawns) == 0 ? 0
+                    : MoveInitUtil.newPawnPromotion(from, to, whiteToMove, getPromotion(notation.charAt(start + 4)));
+        } else if ((from & position.getKings()) != 0 && (to == from << 2 || to == from >>> 2)) {
+            /* Left is towards the a-file, up the place values. */
+            move = to == from << 2 ? MoveInitUtil.newLeftCastle() : MoveInitUtil.newRightCastle();
+        } else if ((from & pawns) != 0 && Math.abs(fromSquare - toSquare) == 16) {
+            move = MoveInitUtil.newPawnDoubleMove(from, to);
+        } else if ((from & pawns) != 0 && ((fromSquare ^ toSquare) & 7) != 0 && (to & position.getAllPieces()) == 0) {
+            move = MoveInitUtil.newEnPassant(from, to); /* Diagonally onto an empty square. */
+        } else {
+            move = MoveInitUtil.newMove(from, to);
+        }
+        return move != 0 && isLegal(position, move) ? move : 0;
     }
 
     @Override
     public String getNotation(Position position, long move) {
-        return null;
+        if (null == position || move == 0) {
+            return null;
+        }
+        return appendNotation(position, move, new StringBuilder(5)).toString();
+    }
+
+    /**
+     * @return the builder, with the move appended.
+     */
+    public StringBuilder appendNotation(Position position, long move, StringBuilder notation) {
+        int from = getFromSquare(position, move);
+        int to = getToSquare(position, move, from);
+        notation.append(getFile(from)).append(getRank(from)).append(getFile(to)).append(getRank(to));
+        if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isPromotion(move)) {
+            notation.append(getPromotionChar(move));
+        }
+        return notation;
+    }
+
+    /**
+     * @return where writing stopped, writeAt plus 4 or 5.
+     */
+    public int getNotation(Position position, long move, char[] notation, int writeAt) {
+        int from = getFromSquare(position, move);
+        int to = getToSquare(position, move, from);
+        notation[writeAt++] = getFile(from);
+        notation[writeAt++] = getRank(from);
+        notation[writeAt++] = getFile(to);
+        notation[writeAt++] = getRank(to);
+        if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isPromotion(move)) {
+            notation[writeAt++] = getPromotionChar(move);
+        }
+        return writeAt;
     }
 
     @Override
     public boolean confirmFormat(String moveNotation) {
+        return null != moveNotation && confirmFormat(moveNotation, 0, moveNotation.length());
+    }
+
+    public boolean confirmFormat(CharSequence moveNotation, int start, int end) {
+        if (end - start != 4 && end - start != 5) {
+            return false;
+        }
+        for (int i = start; i < start + 4; i += 2) {
+            char file = moveNotation.charAt(i);
+            char rank = moveNotation.charAt(i + 1);
+            if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+                return false;
+            }
+        }
+        return end - start == 4 || getPromotion(moveNotation.charAt(start + 4)) != null;
+    }
+
+    private boolean isLegal(Position position, long move) {
+        int moveCount = processor.addAllLegalMoves(position, 0);
+        for (int i = 0; i < moveCount; i++) {
+            if (moveBuffer[i] == move) {
+                return true;
+            }
+        }
         return false;
     }
+
+    private static int getSquare(CharSequence notation, int at) {
+        return (notation.charAt(at + 1) - '1') * 8 + ('h' - notation.charAt(at));
+    }
+
+    private static int getFromSquare(Position position, long move) {
+        return Long.numberOfTrailingZeros(MoveInitUtil.getFrom(move, position));
+    }
+
+    private static int getToSquare(Position position, long move, int from) {
+        if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isCastle(move)) {
+            return MoveInitUtil.isLeftCastle(move) ? from + 2 : from - 2; /* The king goes two squares. */
+        }
+        return Long.numberOfTrailingZeros(MoveInitUtil.getTo(move, position));
+    }
+
+    private static char getFile(int square) {
+        return (char) ('h' - (square & 7));
+    }
+
+    private static char getRank(int square) {
+        return (char) ('1' + (square >>> 3));
+    }
+
+    private static PieceType getPromotion(char notation) {
+        return switch (notation) {
+            case 'q' -> PieceType.QUEEN;
+            case 'r' -> PieceType.ROOK;
+            case 'b' -> PieceType.BISHOP;
+            case 'n' -> PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    private static char getPromotionChar(long move) {
+        return switch ((int) (move & 0xF0)) {
+            case 0x10 -> 'q';
+            case 0x20 -> 'n';
+            case 0x30 -> 'b';
+            default -> 'r';
+        };
+    }
 }
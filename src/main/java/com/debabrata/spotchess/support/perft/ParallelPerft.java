@@ -0,0 +1,111 @@
+package com.debabrata.spotchess.support.perft;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.types.Position;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs perft on a fork-join pool. The root is always split, one task per legal move. Below the root a task only splits
+ * further if the subtree is deep enough and its worker has run out of queued work, so narrow roots (a king in check, a
+ * handful of legal moves) still get spread across all workers by stealing the next plies.
+ * <p>
+ * Every worker owns its MoveProcessor and move buffer, every task owns its Position, so nothing on the counting path is
+ * shared between threads other than the hash table, if one is given, which is safe to use without locks. The counts
+ * come from the same {@link Perft#perft(MoveProcessor, long[], PerftHashTable, Position, int, int)} as the single
+ * threaded runner.
+ */
+class ParallelPerft {
+    /* Subtrees with fewer plies than this are counted in place, splitting them costs more than it saves. */
+    private static final int MIN_SPLIT_DEPTH = 3;
+    /* The usual fork-join rule of thumb. If a worker still has this many of its own tasks queued up and no one has come
+     * to steal them, the others are busy enough and there's no point creating more tasks. */
+    private static final int MAX_SURPLUS_TASKS = 2;
+
+    static long perft(Position position, int depth, int threadCount, PerftHashTable hashTable, boolean printDivide) {
+        ForkJoinPool pool = new ForkJoinPool(threadCount, PerftWorker::new, null, false);
+        try {
+            return pool.invoke(new PerftTask(new Position(position), depth, 0, hashTable, printDivide));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static class PerftWorker extends ForkJoinWorkerThread {
+        private final long[] moveBuffer = new long[300 * 20];
+        private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+        private PerftWorker(ForkJoinPool pool) {
+            super(pool);
+        }
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private final Position position;
+        private final int depth;
+        private final long move; /* Move that led to this position, only needed for printing divide. */
+        private final PerftHashTable hashTable; /* Shared by all tasks. Null when hashing is off. */
+        private final boolean printDivide;
+
+        private PerftTask(Position position, int depth, long move, PerftHashTable hashTable, boolean printDivide) {
+            this.position = position;
+            this.depth = depth;
+            this.move = move;
+            this.hashTable = hashTable;
+            this.printDivide = printDivide;
+        }
+
+        @Override
+        protected Long compute() {
+            long[] moveBuffer;
+            MoveProcessor processor;
+            if (Thread.currentThread() instanceof PerftWorker worker) {
+                moveBuffer = worker.moveBuffer;
+                processor = worker.processor;
+            } else {
+                /* The submitting thread may pick the task back up while it waits on it. */
+                moveBuffer = new long[300 * 20];
+                processor = new MoveProcessor(moveBuffer);
+            }
+            boolean root = move == 0;
+            if (!root && (depth < MIN_SPLIT_DEPTH || getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS)) {
+                return Perft.perft(processor, moveBuffer, hashTable, position, 0, depth);
+            }
+            long key = 0;
+            if (hashTable != null && !root) {
+                key = position.getKey();
+                long result = hashTable.probe(key, depth);
+                if (result >= 0) {
+                    return result;
+                }
+            }
+
+            /* The buffer is only used till the children are created. While we wait on them this worker may run other
+             * tasks which will write over it. */
+            int moveCount = processor.addAllLegalMoves(position, 0);
+            PerftTask[] children = new PerftTask[moveCount];
+            int flag = position.getFlags();
+            for (int i = 0; i < moveCount; i++) {
+                int taken = position.makeMove(moveBuffer[i]);
+                children[i] = new PerftTask(new Position(position), depth - 1, moveBuffer[i], hashTable, false);
+                position.unmakeMove(moveBuffer[i], taken, flag);
+            }
+            invokeAll(children);
+
+            long result = 0;
+            for (PerftTask child : children) {
+                long childResult = child.join();
+                if (printDivide) {
+                    Perft.printDivide(child.move, childResult, position);
+                }
+                result = result + childResult;
+            }
+            if (hashTable != null && !root) {
+                hashTable.store(key, depth, result);
+            }
+            return result;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.debabrata.spotchess.support.perft;
 
 import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.settings.EngineSettings;
 import com.debabrata.spotchess.support.notation.game.FENParser;
 import com.debabrata.spotchess.support.notation.move.SANParser;
 import com.debabrata.spotchess.types.Game;
@@ -13,6 +14,11 @@ public class Perft {
     private static final MoveProcessor processor = new MoveProcessor(moveBuffer);
     private static final boolean ENHANCED_STATS = false;
 
+    /* Used when EngineSettings has a table size set. Kept across runs as the counts in it stay valid. */
+    private static PerftHashTable hashTable;
+    private static int hashTableSizeMb;
+    private static PerftHashTable.ReplacementScheme hashReplacementScheme = PerftHashTable.ReplacementScheme.BUCKETED;
+
     /* Enhanced statistics. */
     private static long captures;
     private static long enPassant;
@@ -31,10 +37,13 @@ public class Perft {
             return 1;
         }
         initialize();
+        initializeHashTable();
         long startTime = System.currentTimeMillis();
         long result;
         if (ENHANCED_STATS) {
             result = enhancedPerft(position, 0, maxDepth, printDivide);
+        } else if (EngineSettings.getThreadCount() > 1) {
+            result = ParallelPerft.perft(position, maxDepth, EngineSettings.getThreadCount(), hashTable, printDivide);
         } else {
             result = perft(position, 0, maxDepth, printDivide);
         }
@@ -45,33 +54,96 @@ public class Perft {
         return result;
     }
 
+    public static void setHashReplacementScheme(PerftHashTable.ReplacementScheme scheme) {
+        hashReplacementScheme = scheme;
+    }
+
+    private static void initializeHashTable() {
+        int sizeMb = EngineSettings.getTtTableSizeMb();
+        if (sizeMb <= 0) {
+            hashTable = null;
+        } else if (hashTable == null || hashTableSizeMb != sizeMb || hashTable.getScheme() != hashReplacementScheme) {
+            hashTable = new PerftHashTable(sizeMb, hashReplacementScheme);
+        }
+        hashTableSizeMb = sizeMb;
+    }
+
     private static long perft(Position position, int startWritingAt, int depth, boolean printDivide) {
+        if (!printDivide) {
+            return perft(processor, moveBuffer, hashTable, position, startWritingAt, depth);
+        }
         if (depth < 1) {
             return 1;
         }
         int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
         if (depth == 1) {
-            if (printDivide) {
-                for (int i = startWritingAt; i < newWritingPosition; i++) {
-                    printDivide(i, 1, position);
-                }
+            for (int i = startWritingAt; i < newWritingPosition; i++) {
+                printDivide(moveBuffer[i], 1, position);
             }
             return newWritingPosition - startWritingAt;
         }
         long result = 0;
         int flag = position.getFlags();
         for (int i = startWritingAt; i < newWritingPosition; i++) {
+            int taken = position.makeMove(moveBuffer[i]);
+            long newResults = perft(processor, moveBuffer, hashTable, position, newWritingPosition, depth - 1);
+            position.unmakeMove(moveBuffer[i], taken, flag);
+            printDivide(moveBuffer[i], newResults, position);
+            result = result + newResults;
+        }
+        return  result;
+    }
+
+    /**
+     * Counts leaf nodes using the given processor and the moveBuffer it writes to. Callers running on different threads
+     * must each bring their own processor, buffer and position. The hash table may be shared and may be null.
+     */
+    static long perft(MoveProcessor processor, long[] moveBuffer, PerftHashTable hashTable, Position position, int startWritingAt, int depth) {
+        if (hashTable == null) {
+            return perft(processor, moveBuffer, position, startWritingAt, depth);
+        }
+        return hashedPerft(processor, moveBuffer, hashTable, position, startWritingAt, depth);
+    }
+
+    private static long hashedPerft(MoveProcessor processor, long[] moveBuffer, PerftHashTable hashTable, Position position, int startWritingAt, int depth) {
+        if (depth < 2) {
+            return perft(processor, moveBuffer, position, startWritingAt, depth); /* Leaves are cheaper to count than to look up. */
+        }
+        long key = position.getKey();
+        long result = hashTable.probe(key, depth);
+        if (result >= 0) {
+            return result;
+        }
+        result = 0;
+        int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+        int flag = position.getFlags();
+        for (int i = startWritingAt; i < newWritingPosition; i++) {
+            int taken = position.makeMove(moveBuffer[i]);
+            result = result + hashedPerft(processor, moveBuffer, hashTable, position, newWritingPosition, depth - 1);
+            position.unmakeMove(moveBuffer[i], taken, flag);
+        }
+        hashTable.store(key, depth, result);
+        return result;
+    }
+
+    private static long perft(MoveProcessor processor, long[] moveBuffer, Position position, int startWritingAt, int depth) {
+        if (depth < 1) {
+            return 1;
+        }
+        if (depth == 1) {
+            return processor.countLegalMoves(position); /* No need to write out moves we won't make. */
+        }
+        int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+        long result = 0;
+        int flag = position.getFlags();
+        for (int i = startWritingAt; i < newWritingPosition; i++) {
 //            Position copy = new Position(position);
             int taken = position.makeMove(moveBuffer[i]);
-            long newResults = perft(position, newWritingPosition, depth - 1, false);
+            result = result + perft(processor, moveBuffer, position, newWritingPosition, depth - 1);
             position.unmakeMove(moveBuffer[i], taken, flag);
 //            if(! position.equals(copy)) {
 //                System.out.println(new FENParser().getNotation(new Game(copy)) + " : " + new SANParser().getNotation(copy, moveBuffer[i]) + " : " + moveBuffer[i]);
 //            }
-            if (printDivide) {
-                printDivide(i, newResults, position);
-            }
-            result = result + newResults;
         }
         return  result; /* We are only counting leaf nodes.*/
     }
@@ -118,7 +190,7 @@ public class Perft {
             }
             if (printDivide) {
                 for (int i = startWritingAt; i < newWritingPosition; i++) {
-                    printDivide(i, 1, position);
+                    printDivide(moveBuffer[i], 1, position);
                 }
             }
             return newWritingPosition - startWritingAt;
@@ -130,7 +202,7 @@ public class Perft {
             long newResults = enhancedPerft(position, newWritingPosition, depth - 1, false);
             position.unmakeMove(moveBuffer[i], taken, flag);
             if (printDivide) {
-                printDivide(i, newResults, position);
+                printDivide(moveBuffer[i], newResults, position);
             }
             result = result + newResults;
         }
@@ -160,11 +232,11 @@ public class Perft {
         System.out.println("\n");
     }
 
-    private static void printDivide(int i, long result, Position position) {
-        Square squareFrom = new Square(MoveInitUtil.getFrom(moveBuffer[i], position));
-        Square squareTo = new Square(MoveInitUtil.getTo(moveBuffer[i], position));
-        if (MoveInitUtil.isSpecialMove(moveBuffer[i]) && MoveInitUtil.isPromotion(moveBuffer[i])) {
-            char promotion = Character.toLowerCase(MoveInitUtil.promotesTo(moveBuffer[i]).getNotation());
+    static void printDivide(long move, long result, Position position) {
+        Square squareFrom = new Square(MoveInitUtil.getFrom(move, position));
+        Square squareTo = new Square(MoveInitUtil.getTo(move, position));
+        if (MoveInitUtil.isSpecialMove(move) && MoveInitUtil.isPromotion(move)) {
+            char promotion = Character.toLowerCase(MoveInitUtil.promotesTo(move).getNotation());
             System.out.println(squareFrom.toString() + squareTo + promotion + ": " + result);
         } else {
             System.out.println(squareFrom.toString() + squareTo + ": " + result);
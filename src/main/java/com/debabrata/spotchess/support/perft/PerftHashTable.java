@@ -0,0 +1,119 @@
+package com.debabrata.spotchess.support.perft;
+
+import com.debabrata.spotchess.logic.search.TranspositionTable;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table of (position key, remaining depth) to leaf count, for perft runs where the same subtrees are
+ * reached through different move orders.
+ * <p>
+ * Every entry is two longs: (key ^ data) followed by data, where data holds the count in the upper 56 bits and the depth
+ * in the lower 8. Threads read and write entries without locking. If two writes to the same entry interleave the pair
+ * won't xor back to the key, so a torn entry just reads as a miss. This is the usual lockless hashing trick, see
+ * <a href="https://www.chessprogramming.org/Shared_Hash_Table#Lockless">Lockless</a>.
+ */
+public class PerftHashTable {
+    public enum ReplacementScheme {
+        /** Newest result always wins. */
+        ALWAYS_REPLACE,
+        /** Only replace an entry with a result of the same or a greater depth. Deep subtrees are the expensive ones. */
+        DEPTH_PREFERRED,
+        /** Two entries per bucket, a depth preferred one and an always replaced one. */
+        TWO_TIER,
+        /** Four entries per bucket, the least deep and oldest one replaced. This is the search's transposition table. */
+        BUCKETED
+    }
+
+    private final long[] table;
+    private final int indexMask;
+    private final ReplacementScheme scheme;
+    private final TranspositionTable buckets; /* Only for BUCKETED, which keeps its entries there instead. */
+
+    /**
+     * @param sizeMb size of the table. It's rounded down to a power of two number of entries.
+     */
+    public PerftHashTable(int sizeMb, ReplacementScheme scheme) {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("Perft hash table needs at least a megabyte, got " + sizeMb);
+        }
+        this.scheme = scheme;
+        if (scheme == ReplacementScheme.BUCKETED) {
+            this.buckets = new TranspositionTable(sizeMb);
+            this.table = null;
+            this.indexMask = 0;
+            return;
+        }
+        long entries = Long.highestOneBit(((long) sizeMb << 20) / 16);
+        entries = Math.min(entries, 1L << 29); /* Java arrays can't be indexed past an int. */
+        this.table = new long[(int) entries * 2];
+        this.indexMask = (int) entries - 1;
+        this.buckets = null;
+    }
+
+    public ReplacementScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * @return the leaf count stored for the position and depth, or -1 if there isn't one.
+     */
+    public long probe(long key, int depth) {
+        if (buckets != null) {
+            return buckets.probeCount(key, depth);
+        }
+        int index = ((int) key & indexMask) << 1;
+        long count = read(index, key, depth);
+        if (count < 0 && scheme == ReplacementScheme.TWO_TIER) {
+            count = read(index ^ 2, key, depth);
+        }
+        return count;
+    }
+
+    public void store(long key, int depth, long count) {
+        if (buckets != null) {
+            buckets.storeCount(key, depth, count);
+            return;
+        }
+        int index = ((int) key & indexMask) << 1;
+        long data = (count << 8) | depth;
+        switch (scheme) {
+            case ALWAYS_REPLACE -> write(index, key, data);
+            case DEPTH_PREFERRED -> {
+                if ((table[index + 1] & 0xFF) <= depth) {
+                    write(index, key, data);
+                }
+            }
+            case TWO_TIER -> {
+                /* The even entry of the bucket holds the deeper results, the odd one takes whatever it's given. */
+                int deepIndex = index & ~2;
+                if ((table[deepIndex + 1] & 0xFF) <= depth) {
+                    write(deepIndex, key, data);
+                } else {
+                    write(deepIndex | 2, key, data);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        if (buckets != null) {
+            buckets.clear();
+            return;
+        }
+        Arrays.fill(table, 0);
+    }
+
+    private long read(int index, long key, int depth) {
+        long data = table[index + 1];
+        if ((table[index] ^ data) != key || (data & 0xFF) != depth) {
+            return -1;
+        }
+        return data >>> 8;
+    }
+
+    private void write(int index, long key, long data) {
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+}
@@ -0,0 +1,201 @@
+package com.debabrata.spotchess.support.store;
+
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.BinaryPositionUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A file of positions, memory mapped, to be read in any order by index with no parsing at all. For training data dumps,
+ * test suites and opening books.
+ * <p>
+ * The file is a 16 byte header followed by the positions, every one in the same number of bytes so the index is all it
+ * takes to find one. They're in the raw form of {@link BinaryPositionUtil}, 52 bytes, or the packed form, padded out to
+ * its largest, 26 bytes. The header is:
+ * <pre>
+ *   4 bytes "SPPS"
+ *   1 byte  version, 1
+ *   1 byte  1 if the positions are packed, 0 if they're raw
+ *   2 bytes nothing yet
+ *   8 bytes how many positions there are, little-endian
+ * </pre>
+ * The file is mapped a piece at a time, so it can hold as many positions as the disk will. Positions being added are
+ * kept in memory till they make a whole piece and only then written to the end of the file, so nothing is ever mapped
+ * past its end and the file never has to be cut down. Any number of threads can read a store at once. Adding to one is
+ * for a single thread, with no one reading meanwhile.
+ */
+public final class PositionStore implements Closeable {
+    private static final int MAGIC = 0x53505053; /* "SPPS", little-endian. */
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int PIECE_SHIFT = 16; /* Records mapped at a time, as a power of two. */
+    private static final long PIECE_MASK = (1L << PIECE_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final boolean packed;
+    private final int recordSize;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> pieces = new ArrayList<>();
+    /* Positions added since the last whole piece, not in the file yet. Null when opened to read. */
+    private final ByteBuffer tail;
+    private long size;
+
+    private PositionStore(FileChannel channel, MappedByteBuffer header, boolean writable) {
+        this.channel = channel;
+        this.header = header;
+        this.writable = writable;
+        this.packed = header.get(5) == 1;
+        this.recordSize = packed ? BinaryPositionUtil.MAX_PACKED_SIZE : BinaryPositionUtil.RAW_SIZE;
+        this.tail = writable ? ByteBuffer.allocate((1 << PIECE_SHIFT) * recordSize) : null;
+        this.size = header.getLong(8);
+    }
+
+    /**
+     * Creates an empty store, replacing the file if there is one.
+     *
+     * @param packed whether positions go in the packed form, half the size but a little slower to read.
+     */
+    public static PositionStore create(Path file, boolean packed) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(0, MAGIC).put(4, (byte) VERSION).put(5, (byte) (packed ? 1 : 0)).putLong(8, 0);
+            return new PositionStore(channel, header, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a store to read.
+     *
+     * @throws IOException if the file isn't a store, or is shorter than its header says.
+     */
+    public static PositionStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a position store, too short: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.get(4) != VERSION) {
+                throw new IOException("Not a position store of a version we know: " + file);
+            }
+            PositionStore store = new PositionStore(channel, header, false);
+            if (channel.size() < HEADER_SIZE + store.size * store.recordSize) {
+                throw new IOException("Position store " + file + " should have " + store.size + " positions but is "
+                        + channel.size() + " bytes");
+            }
+            for (long start = 0; start < store.size; start += 1L << PIECE_SHIFT) {
+                long length = Math.min(1L << PIECE_SHIFT, store.size - start) * store.recordSize;
+                store.pieces.add(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start * store.recordSize,
+                        length));
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return how many positions there are.
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    public Position get(long index) {
+        Position position = new Position(GameType.STANDARD);
+        get(index, position);
+        return position;
+    }
+
+    /**
+     * Sets the position up as the one at index, so it can be used over and over.
+     */
+    public void get(long index, Position position) {
+        Objects.checkIndex(index, size);
+        int pieceIndex = (int) (index >>> PIECE_SHIFT);
+        ByteBuffer piece = pieceIndex < pieces.size() ? pieces.get(pieceIndex) : tail;
+        int at = (int) (index & PIECE_MASK) * recordSize;
+        if (packed) {
+            BinaryPositionUtil.readPacked(piece, at, position);
+        } else {
+            BinaryPositionUtil.readRaw(piece, at, position);
+        }
+    }
+
+    /**
+     * @return the index the position went in at.
+     * @throws IllegalStateException if the store was opened to read.
+     */
+    public long add(Position position) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Position store was opened to read, it can't be added to");
+        }
+        long index = size;
+        int at = (int) (index & PIECE_MASK) * recordSize;
+        if (packed) {
+            BinaryPositionUtil.writePacked(position, tail, at);
+        } else {
+            BinaryPositionUtil.writeRaw(position, tail, at);
+        }
+        size++;
+        if ((size & PIECE_MASK) == 0) {
+            long start = writeTail();
+            pieces.add(channel.map(FileChannel.MapMode.READ_ONLY, start, tail.capacity()));
+        }
+        return index;
+    }
+
+    /* Appends the positions in the tail to the file and counts them in the header. Returns where they went. */
+    private long writeTail() throws IOException {
+        long start = HEADER_SIZE + (long) pieces.size() * tail.capacity();
+        ByteBuffer bytes = tail.slice(0, (int) (HEADER_SIZE + size * recordSize - start));
+        for (long at = start; bytes.hasRemaining(); ) {
+            at += channel.write(bytes, at);
+        }
+        header.putLong(8, size);
+        return start;
+    }
+
+    /**
+     * Writes out what was added. The file ends up just as long as the positions in it take.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writable) {
+                if ((size & PIECE_MASK) != 0) {
+                    writeTail();
+                }
+                channel.force(false);
+                header.force();
+            }
+        } finally {
+            pieces.clear();
+            channel.close();
+        }
+    }
+}
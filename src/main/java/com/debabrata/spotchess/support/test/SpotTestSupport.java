@@ -4,14 +4,19 @@ import com.debabrata.spotchess.console.PositionPrinter;
 import com.debabrata.spotchess.exception.InvalidPositionException;
 import com.debabrata.spotchess.logic.MoveProcessor;
 import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Move;
 import com.debabrata.spotchess.types.Position;
 import com.debabrata.spotchess.types.Square;
 import com.debabrata.spotchess.types.enums.Colour;
+import com.debabrata.spotchess.types.enums.GameType;
 import com.debabrata.spotchess.types.enums.PieceType;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -303,6 +308,9 @@ public class SpotTestSupport {
     public static void assertStrictlyEquals(Position expectedPosition, Position actualPosition) {
         assertEquals(expectedPosition, actualPosition);
         if (expectedPosition.getFlags() == actualPosition.getFlags()) {
+            if (expectedPosition.getKey() != actualPosition.getKey()) {
+                throw new AssertionError("Actual and expected have the same board and flags but different keys.");
+            }
             return;
         }
         List<String> flagInfoExpected = PositionPrinter.getAdditionalStateInfo(expectedPosition);
@@ -404,6 +412,86 @@ public class SpotTestSupport {
         }
     }
 
+    /**
+     * Positions along random games, every one a random legal move on from the one before. A game that ends in mate,
+     * stalemate or a fifty move draw starts over from the start position. The same seed gives the same positions.
+     */
+    public static Position[] randomGamePositions(long seed, int count) {
+        Random random = new Random(seed);
+        long[] moves = new long[256];
+        MoveProcessor processor = new MoveProcessor(moves);
+        Position[] positions = new Position[count];
+        Position position = new Position(GameType.STANDARD);
+        for (int i = 0; i < count; i++) {
+            int moveCount = processor.addAllLegalMoves(position, 0);
+            if (moveCount == 0 || position.isDrawByFiftyMoveRule()) {
+                position = new Position(GameType.STANDARD);
+                moveCount = processor.addAllLegalMoves(position, 0);
+            }
+            position.makeMove(moves[random.nextInt(moveCount)]);
+            positions[i] = new Position(position);
+        }
+        return positions;
+    }
+
+    /**
+     * Random legal moves from the start position, till there are none or there are maxPlies of them. Games are played
+     * out of one Random, so the same Random makes the same games in the same order.
+     */
+    public static long[] randomGameMoves(Random random, int maxPlies) {
+        long[] moveBuffer = new long[256];
+        MoveProcessor processor = new MoveProcessor(moveBuffer);
+        long[] moves = new long[maxPlies];
+        Position position = new Position(GameType.STANDARD);
+        int ply = 0;
+        for (; ply < maxPlies; ply++) {
+            int moveCount = processor.addAllLegalMoves(position, 0);
+            if (moveCount == 0) {
+                break;
+            }
+            moves[ply] = moveBuffer[random.nextInt(moveCount)];
+            position.makeMove(moves[ply]);
+        }
+        return Arrays.copyOf(moves, ply);
+    }
+
+    /**
+     * The moves of {@link #randomGameMoves(Random, int)} as a Game from the start position, with no tags or comments.
+     */
+    public static Game randomGame(Random random, int maxPlies) {
+        Game game = new Game(new Position(GameType.STANDARD));
+        for (long move : randomGameMoves(random, maxPlies)) {
+            game.getCurrentPosition().makeMove(move);
+            game.addMove(new Move(move, null));
+        }
+        return game;
+    }
+
+    public static void assertAllocatesNothing(Runnable operation) {
+        assertAllocatesNothing(operation, operation);
+    }
+
+    /**
+     * Runs warmUp enough times for the JIT to be done with it, escape analysis and all, and then checks that measured
+     * doesn't allocate over a thousand runs. The allocation counter is per thread, so what other threads do doesn't
+     * count.
+     */
+    public static void assertAllocatesNothing(Runnable warmUp, Runnable measured) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 20_000; i++) {
+            warmUp.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            measured.run();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        /* Reading the counter can take a few bytes itself, anything that allocates per run is well past this. */
+        if (allocated >= 1000) {
+            throw new AssertionError(allocated + " bytes allocated over 1000 runs, expected none.");
+        }
+    }
+
     private static List<String> getMoveNotationList(Position position, List<Long> moveList) {
         SANParser sanParser = new SANParser();
         List<String> moves = new ArrayList<>();
@@ -26,12 +26,31 @@ public class MagicHashGenerator {
     private static final AtomicLong TOOL_BENCHMARKING_TIME_SPENT = new AtomicLong();
     private static final AtomicLong TOOL_BENCHMARKING_MAGICS_TRIED = new AtomicLong();
     private static final AtomicLong TOOL_BENCHMARKING_CUTOFF_CROSSED = new AtomicLong();
+    /* How many magics to find per square when looking for a dense one. Each search can take up to ATTEMPT_TIMEOUT. */
+    private static final int DENSE_MAGIC_ATTEMPTS = 8;
 
     public static void main(String[] args) {
         //runForSinglePosition();
+        //runPackingForCurrentMagics();
         runForAllPositions();
     }
 
+    /* Packs the tables for the magics RookAndBishopMovesUtil has right now. There's no searching so it's quick. */
+    public static void runPackingForCurrentMagics() {
+        long[] magics = new long[64];
+        int[] shifts = new int[64];
+        for (int i = 0; i < 64; i++) {
+            magics[i] = RookAndBishopMovesUtil.getBishopMagic(i);
+            shifts[i] = RookAndBishopMovesUtil.getBishopShift(i);
+        }
+        displayPackedTable(PieceType.BISHOP, magics, shifts);
+        for (int i = 0; i < 64; i++) {
+            magics[i] = RookAndBishopMovesUtil.getRookMagic(i);
+            shifts[i] = RookAndBishopMovesUtil.getRookShift(i);
+        }
+        displayPackedTable(PieceType.ROOK, magics, shifts);
+    }
+
     private static void runForSinglePosition() {
         PieceType pieceType = PieceType.BISHOP;
         int position = 0;
@@ -137,7 +156,7 @@ public class MagicHashGenerator {
 
             SearchScope searchScope = new SearchScope(positionCombinations, associatedMoves, associatedPins, targetedShiftNumber);
 
-            long magic = initiateSearch(new SearchConfiguration(), searchScope, new RandomMagicGenerator());
+            long magic = findDenseMagic(searchScope);
             if (magic == 0) {
                 timedOutPositions.append(position).append(",");
             } else {
@@ -149,12 +168,118 @@ public class MagicHashGenerator {
 
         if ( timedOutPositions.length() > 0 ){
             System.out.println("Couldn't figure for the following positions. " + timedOutPositions + "\b. Timed out/not possible.");
+        } else {
+            displayPackedTable(piece, magics, magicNumberShiftTargets);
         }
 
         printBenchmarkingResult();
         System.out.println("\n");
     }
 
+    /* Any magic that works for a shift is as good as another for lookups, but one that leaves the top of its slice
+     * unused makes for a smaller table as the unused tail gets cut off when packing. So we find a few and keep the one
+     * with the lowest utilization. */
+    private static long findDenseMagic(SearchScope searchScope) {
+        long bestMagic = 0;
+        int bestUtilization = Integer.MAX_VALUE;
+        for (int i = 0; i < DENSE_MAGIC_ATTEMPTS; i++) {
+            long magic = initiateSearch(new SearchConfiguration(), searchScope, new RandomMagicGenerator());
+            if (magic == 0) {
+                break; /* If this one timed out the next ones will likely do so too. */
+            }
+            int utilization = getUtilization(magic, searchScope.positionCombinations, searchScope.targetedShiftNumber);
+            if (utilization < bestUtilization) {
+                bestMagic = magic;
+                bestUtilization = utilization;
+            }
+        }
+        return bestMagic;
+    }
+
+    /* Prints the offsets as the packed offset array RookAndBishopMovesUtil reads, to go in along with the magics the
+     * table was packed for. Only worth it if the table comes out smaller than without packing. */
+    private static void displayPackedTable(PieceType piece, long[] magics, int[] shifts) {
+        String capitalCasePieceName = piece == PieceType.BISHOP ? "Bishop" : "Rook";
+        int[] offsets = packTable(piece, magics, shifts);
+
+        StringBuilder offsetArray = new StringBuilder("private static final int [] "
+                + (piece == PieceType.BISHOP ? "bishop" : "rook") + "PackedOffset = {");
+        int unpackedLength = 0;
+        for (int i = 0; i < 64; i++) {
+            offsetArray.append(offsets[i]).append(",");
+            unpackedLength += 2 << (64 - shifts[i]);
+        }
+        offsetArray.append(offsets[64]);
+        System.out.println(offsetArray + "};");
+        System.out.println(capitalCasePieceName + " table length = " + offsets[64] + " (" + offsets[64] * 8
+                + " bytes). Without packing it takes " + unpackedLength + " (" + unpackedLength * 8 + " bytes).");
+    }
+
+    /**
+     * Works out where each square's slice goes in a single table laid out like RookAndBishopMovesUtil's, moves at even
+     * slots and pins right after them. Slices are cut down to what their magic actually uses, and a slice may be laid
+     * over parts of the table that are already taken as long as every entry it needs is either free or already holds
+     * the same moves and pins. It's greedy, biggest slices first, each at the lowest offset it fits. Not optimal, but
+     * it's cheap and gets most of the way.
+     *
+     * @return offsets for each square's slice, with the length of the whole table as the 65th value.
+     */
+    public static int[] packTable(PieceType piece, long[] magics, int[] shifts) {
+        long[][] slices = new long[64][];
+        int totalLength = 0;
+        for (int position = 0; position < 64; position++) {
+            long mask = RookAndBishopMovesUtil.getPieceMask(piece, MaskType.MASK, position);
+            long[] positionCombinations = BitUtil.getAllPossibleBitCombinations(mask);
+            long[] moves = RookAndBishopMovesUtil.getAllPossibleMovesCombinations(piece, position, positionCombinations);
+            long[] pins = RookAndBishopMovesUtil.getAllPossiblePinCombinations(piece, position, positionCombinations);
+
+            long[] slice = new long[(getUtilization(magics[position], positionCombinations, shifts[position]) + 1) * 2];
+            for (int i = 0; i < positionCombinations.length; i++) {
+                int index = (int)((positionCombinations[i] * magics[position]) >>> shifts[position]) << 1;
+                slice[index] = moves[i];
+                slice[index + 1] = pins[i];
+            }
+            slices[position] = slice;
+            totalLength += slice.length;
+        }
+
+        Integer[] order = new Integer[64];
+        for (int i = 0; i < 64; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer position) -> slices[position].length).reversed());
+
+        int[] offsets = new int[65];
+        long[] table = new long[totalLength];
+        for (int position : order) {
+            long[] slice = slices[position];
+            int offset = 0;
+            while (!fitsAt(table, slice, offset)) {
+                offset += 2;
+            }
+            for (int i = 0; i < slice.length; i += 2) {
+                if (slice[i] != 0) {
+                    table[offset + i] = slice[i];
+                    table[offset + i + 1] = slice[i + 1];
+                }
+            }
+            offsets[position] = offset;
+            offsets[64] = Math.max(offsets[64], offset + slice.length);
+        }
+        return offsets;
+    }
+
+    /* Moves are never empty, so an entry with no moves is one nothing maps to. */
+    private static boolean fitsAt(long[] table, long[] slice, int offset) {
+        for (int i = 0; i < slice.length; i += 2) {
+            if (slice[i] != 0 && table[offset + i] != 0
+                    && (table[offset + i] != slice[i] || table[offset + i + 1] != slice[i + 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return Returns a magic number if one is found. Returns zero if the search times out or is invalid.
      * */
@@ -294,7 +419,7 @@ public class MagicHashGenerator {
             if (moveOccupations[position] == 0 && pinOccupations[position] == 0) {
                 moveOccupations[position] = searchScope.associatedMoves[i];
                 pinOccupations[position] = searchScope.associatedPins[i];
-            } else if (moveOccupations[position] == searchScope.associatedMoves[i] || pinOccupations[position] == searchScope.associatedPins[i]) {
+            } else if (moveOccupations[position] == searchScope.associatedMoves[i] && pinOccupations[position] == searchScope.associatedPins[i]) {
                 moveConvergence++;
             } else {
                 return false;
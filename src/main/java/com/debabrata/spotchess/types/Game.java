@@ -1,12 +1,17 @@
 package com.debabrata.spotchess.types;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Game {
     private final Position initialPosition;
     private final Position currentPosition;
     private final List<Move> moveHistory;
+    private final int firstMoveNumber; /* Full move number of the initial position. */
+    private final Map<String, String> tags = new LinkedHashMap<>(); /* PGN tag pairs, in the order they were set. */
 
     public Position getInitialPosition() {
         return new Position(initialPosition);
@@ -20,8 +25,9 @@ public class Game {
         return new ArrayList<>(moveHistory);
     }
 
+    /* Full move number of the current position. */
     public int getMoveCount() {
-        return 1 + moveHistory.size() / 2;
+        return firstMoveNumber + (moveHistory.size() + (initialPosition.whiteToMove() ? 0 : 1)) / 2;
     }
 
     public void addMove(Move move) {
@@ -45,14 +51,33 @@ public class Game {
         return position;
     }
 
+    public int getFirstMoveNumber() {
+        return firstMoveNumber;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
     public Game(Position position) {
+        this(position, 1);
+    }
+
+    /**
+     * @param firstMoveNumber full move number of the position, as a FEN has it. 1 for a game from the start.
+     */
+    public Game(Position position, int firstMoveNumber) {
         this.initialPosition = new Position(position);
         this.currentPosition = new Position(position);
         this.moveHistory = new ArrayList<>();
-    }
-
-    public Game(Position position, int unknownMovesCount) {
-        this(position);
-        /* We don't use "unknownMovesCount" right now. */
+        this.firstMoveNumber = Math.max(firstMoveNumber, 1);
     }
 }
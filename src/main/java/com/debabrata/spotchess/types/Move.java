@@ -3,19 +3,19 @@ package com.debabrata.spotchess.types;
 import com.debabrata.spotchess.utils.MoveInitUtil;
 
 /**
- * The actual move within the game is just a single int. Please refer to {@link MoveInitUtil} for understanding a move's
- * int representation. This Move is a wrapper class for the move which provides for some more meta-data that's not held
- * in the int itself.
+ * The actual move within the game is just a single long. Please refer to {@link MoveInitUtil} for understanding a move's
+ * long representation. This Move is a wrapper class for the move which provides for some more meta-data that's not held
+ * in the long itself.
  */
 public class Move {
-    private int move;
+    private long move;
     private String comments;
 
-    public int getMove() {
+    public long getMove() {
         return move;
     }
 
-    public void setMove(int move) {
+    public void setMove(long move) {
         this.move = move;
     }
 
@@ -27,7 +27,7 @@ public class Move {
         this.comments = comments;
     }
 
-    public Move(int move, String comments) {
+    public Move(long move, String comments) {
         this.move = move;
         this.comments = comments;
     }
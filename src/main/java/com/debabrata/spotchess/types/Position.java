@@ -3,10 +3,16 @@ package com.debabrata.spotchess.types;
 import com.debabrata.spotchess.constants.TypeConstants;
 import com.debabrata.spotchess.exception.InvalidPositionException;
 import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.KingAndKnightMovesUtil;
 import com.debabrata.spotchess.utils.MoveInitUtil;
+import com.debabrata.spotchess.utils.PieceSquareUtil;
+import com.debabrata.spotchess.utils.RookAndBishopMovesUtil;
+import com.debabrata.spotchess.utils.ZobristUtil;
 import com.debabrata.spotchess.types.enums.Colour;
 import com.debabrata.spotchess.types.enums.PieceType;
 
+import static com.debabrata.spotchess.constants.EvaluationConstants.*;
+
 /**
  * @author Debabrata Roy
  * comment Storing Rooks, Queens and Bishops in two variable seems like a good idea. I am sure a lot of
@@ -53,8 +59,21 @@ public final class Position {
      * The white to move flag defaults to 1 because flag < 0 is faster to compute than flags >= 0. */
     private int flags;
 
+    /* Zobrist key of the position. Kept up to date by makeMove and unmakeMove so no one has to compute it from scratch
+     * at every node. See ZobristUtil for what goes into it. */
+    private long key;
+    /* Zobrist key of just the pawns, see ZobristUtil. */
+    private long pawnKey;
+
+    /* Running totals of the piece-square tables, material included, from white's point of view. Kept up to date along
+     * with the key, so evaluating a leaf is a couple of multiplies. See PieceSquareUtil. */
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+
     private Position() {
         flags = 0x80000000; // White moves first by default.
+        key = ZobristUtil.getFlagsKey(flags);
     }
 
     public Position(GameType gameType) {
@@ -73,6 +92,9 @@ public final class Position {
                 throw new UnsupportedOperationException("Unsupported game type selected");
         }
         flags = flags | 0x80000000; // White moves first by default.
+        key = ZobristUtil.computeKey(this);
+        pawnKey = ZobristUtil.computePawnKey(this);
+        computeScores();
     }
 
     public Position(Position position) {
@@ -83,6 +105,37 @@ public final class Position {
         this.rooksAndQueens = position.rooksAndQueens;
         this.queensAndBishops = position.queensAndBishops;
         this.flags = position.flags;
+        this.key = position.key;
+        this.pawnKey = position.pawnKey;
+        this.midgameScore = position.midgameScore;
+        this.endgameScore = position.endgameScore;
+        this.phase = position.phase;
+    }
+
+    /**
+     * Sets the position up from scratch in place of whatever was there, working the key and scores out anew. It's what
+     * Builder does without a Square and an enum per piece, for the readers that set up positions by the million. The
+     * pieces go in as the getters for them hand them out. Nothing is checked, see validate().
+     *
+     * @param flags as getFlags() has them. The en-passant bits are worked out from enPassantPawn rather than taken.
+     * @param enPassantPawn the pawn that has just moved two squares, 0 if none has.
+     */
+    public void setUp(long whitePieces, long blackPieces, long pawnsAndKnights, long knightsAndKings,
+                      long rooksAndQueens, long queensAndBishops, int flags, long enPassantPawn) {
+        this.whitePieces = whitePieces;
+        this.blackPieces = blackPieces;
+        this.pawnsAndKnights = pawnsAndKnights;
+        this.knightsAndKings = knightsAndKings;
+        this.rooksAndQueens = rooksAndQueens;
+        this.queensAndBishops = queensAndBishops;
+        this.flags = flags;
+        resetEnPassantStatusData();
+        if (enPassantPawn != 0) {
+            setEnPassantStatusData(enPassantPawn, !whiteToMove());
+        }
+        key = ZobristUtil.computeKey(this);
+        pawnKey = ZobristUtil.computePawnKey(this);
+        computeScores();
     }
 
     /* We don't addPieces and removePieces in engine. We use this to only setup the board for trying out positions. */
@@ -198,6 +251,39 @@ public final class Position {
         return flags;
     }
 
+    /**
+     * @return the Zobrist key of the position. Positions with the same pieces on the same squares, the same side to move
+     *         and the same castling and en-passant rights have the same key, however they were reached.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return Zobrist key of just the pawns. Two positions with the same pawns have the same pawn key.
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return the middlegame piece-square score with material, from white's point of view.
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return how far from the endgame we are, see {@link PieceSquareUtil#MAX_PHASE}. Can go over it with promotions.
+     */
+    public int getPhase() {
+        return phase;
+    }
+
     public long selectWhitePieces(long pieces) {
         return this.whitePieces & pieces;
     }
@@ -402,6 +488,206 @@ public final class Position {
         return getPieceTypeOfKnownPiece(position);
     }
 
+    /**
+     * Static exchange evaluation. What the side to move wins in material, in centipawns, by making the move and letting
+     * both sides keep capturing on the square it lands on, least valuable piece first, each stopping when that suits it
+     * better. Sliders behind the pieces that leave the square's lines join in. Like most SEEs it ignores pins and
+     * checks, other than the king only taking last.
+     * <p>
+     * Nothing is made, unmade or allocated, so it's cheap enough for every capture in a search. Instead of keeping the
+     * list of gains and going back over it, we narrow the window the result has to lie in as the captures go: each side
+     * can stop where it stands, so that's a floor for the side capturing and a ceiling for the other.
+     * <p>
+     * The move has to be legal in the position. Castles are always 0.
+     */
+    public int staticExchange(long move) {
+        boolean whiteToMove = whiteToMove();
+        long ours = whiteToMove ? whitePieces : blackPieces;
+        long occupied = whitePieces | blackPieces;
+        long from;
+        long to;
+        int balance;
+        int onSquare; /* Value of the piece standing on the square, the next one to be taken. */
+        if (MoveInitUtil.isSpecialMove(move)) {
+            if (MoveInitUtil.isCastle(move)) {
+                return 0;
+            }
+            long squares = MoveInitUtil.isPromotion(move) ? MoveInitUtil.getPromotionMove(move, whiteToMove)
+                                                          : move & 0x00FFFFFFFFFFFF00L;
+            from = squares & ours;
+            to = squares & ~ours;
+            if (MoveInitUtil.isPromotion(move)) {
+                onSquare = getPromotionValue(move);
+                balance = getValue(to) + onSquare - PAWN_VALUE;
+            } else if (MoveInitUtil.isEnPassant(move)) {
+                occupied = occupied ^ getPawnToBeCapturedEnPassant(to, whiteToMove);
+                onSquare = PAWN_VALUE;
+                balance = PAWN_VALUE;
+            } else {
+                onSquare = PAWN_VALUE;
+                balance = 0;
+            }
+        } else {
+            from = move & ours;
+            to = move & ~ours;
+            onSquare = getValue(from);
+            balance = getValue(to);
+        }
+
+        int square = Long.numberOfTrailingZeros(to);
+        occupied = occupied ^ from;
+        long attackers = getAttackers(square, occupied) & occupied;
+        int floor = Integer.MIN_VALUE;
+        int ceiling = Integer.MAX_VALUE;
+        boolean usToTake = false;
+        while (true) {
+            if (usToTake) {
+                floor = Math.max(floor, Math.min(balance, ceiling));
+            } else {
+                ceiling = Math.min(ceiling, Math.max(balance, floor));
+            }
+            long side = attackers & (usToTake ? ours : ~ours);
+            if (floor >= ceiling || side == 0) {
+                break;
+            }
+            long attacker = getLeastValuable(side);
+            if ((attacker & getKings()) != 0 && (attackers & ~side) != 0) {
+                break; /* The king can't take into a defended square. */
+            }
+            balance = usToTake ? balance + onSquare : balance - onSquare;
+            onSquare = getValue(attacker);
+            occupied = occupied ^ attacker;
+            if ((attacker & (getPawns() | queensAndBishops)) != 0) {
+                attackers = attackers | (RookAndBishopMovesUtil.getBishopMoves(square, occupied) & queensAndBishops);
+            }
+            if ((attacker & rooksAndQueens) != 0) {
+                attackers = attackers | (RookAndBishopMovesUtil.getRookMoves(square, occupied) & rooksAndQueens);
+            }
+            attackers = attackers & occupied;
+            usToTake = !usToTake;
+        }
+        return Math.max(floor, Math.min(balance, ceiling));
+    }
+
+    /**
+     * @return pieces of both colours attacking the square, looking through the pieces missing from occupied. May include
+     * pieces that aren't in occupied, the caller masks those out.
+     */
+    public long getAttackers(int square, long occupied) {
+        long squareBit = 1L << square;
+        long pawns = getPawns();
+        return (KingAndKnightMovesUtil.getKnightMoves(square) & getKnights())
+                | (KingAndKnightMovesUtil.getKingMoves(square) & getKings())
+                | (RookAndBishopMovesUtil.getBishopMoves(square, occupied) & queensAndBishops)
+                | (RookAndBishopMovesUtil.getRookMoves(square, occupied) & rooksAndQueens)
+                | ((((squareBit >>> 9) & 0x7F7F7F7F7F7F7F7FL) | ((squareBit >>> 7) & 0xFEFEFEFEFEFEFEFEL)) & pawns & whitePieces)
+                | ((((squareBit << 7) & 0x7F7F7F7F7F7F7F7FL) | ((squareBit << 9) & 0xFEFEFEFEFEFEFEFEL)) & pawns & blackPieces);
+    }
+
+    private long getLeastValuable(long pieces) {
+        long found = pieces & getPawns();
+        if (found == 0 && (found = pieces & getKnights()) == 0 && (found = pieces & getBishops()) == 0
+                && (found = pieces & getRooks()) == 0 && (found = pieces & getQueens()) == 0) {
+            found = pieces;
+        }
+        return found & -found;
+    }
+
+    /* Value of the piece on the square, 0 if it's empty. */
+    private int getValue(long square) {
+        if ((square & (whitePieces | blackPieces)) == 0) {
+            return 0;
+        }
+        if ((square & pawnsAndKnights) != 0) {
+            return (square & knightsAndKings) != 0 ? KNIGHT_VALUE : PAWN_VALUE;
+        }
+        if ((square & queensAndBishops) != 0) {
+            return (square & rooksAndQueens) != 0 ? QUEEN_VALUE : BISHOP_VALUE;
+        }
+        return (square & rooksAndQueens) != 0 ? ROOK_VALUE : KING_VALUE;
+    }
+
+    private static int getPromotionValue(long move) {
+        switch ((int) (move & 0x00000000000000F0L)) {
+            case 0x00000010 : return QUEEN_VALUE;
+            case 0x00000020 : return KNIGHT_VALUE;
+            case 0x00000030 : return BISHOP_VALUE;
+            default         : return ROOK_VALUE;
+        }
+    }
+
+    /* Piece index for the key of our pieces if it's white's move. Xor with ZobristUtil.BLACK for the other side. */
+    private static int colourIndex(boolean whiteToMove) {
+        return whiteToMove ? 0 : ZobristUtil.BLACK;
+    }
+
+    /* The evaluation totals from scratch, for when the position is set up. After that the moves keep them up to date. */
+    private void computeScores() {
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        long pieces = whitePieces | blackPieces;
+        while (pieces != 0) {
+            long square = pieces & -pieces;
+            pieces = pieces ^ square;
+            int pieceIndex = ZobristUtil.getPieceIndex(getPieceTypeOfKnownPiece(square), (square & whitePieces) != 0);
+            int placeValue = Long.numberOfTrailingZeros(square);
+            midgameScore += PieceSquareUtil.getMidgame(pieceIndex, placeValue);
+            endgameScore += PieceSquareUtil.getEndgame(pieceIndex, placeValue);
+            phase += PieceSquareUtil.getPhase(pieceIndex);
+        }
+    }
+
+    /* A piece appearing on a square. Keeps the key and the evaluation totals up to date. */
+    private void pieceAdded(int pieceIndex, long square) {
+        int placeValue = Long.numberOfTrailingZeros(square);
+        key = key ^ ZobristUtil.getPieceKey(pieceIndex, placeValue);
+        pawnKey = pawnKey ^ ZobristUtil.getPawnKey(pieceIndex, placeValue);
+        midgameScore += PieceSquareUtil.getMidgame(pieceIndex, placeValue);
+        endgameScore += PieceSquareUtil.getEndgame(pieceIndex, placeValue);
+        phase += PieceSquareUtil.getPhase(pieceIndex);
+    }
+
+    private void pieceRemoved(int pieceIndex, long square) {
+        int placeValue = Long.numberOfTrailingZeros(square);
+        key = key ^ ZobristUtil.getPieceKey(pieceIndex, placeValue);
+        pawnKey = pawnKey ^ ZobristUtil.getPawnKey(pieceIndex, placeValue);
+        midgameScore -= PieceSquareUtil.getMidgame(pieceIndex, placeValue);
+        endgameScore -= PieceSquareUtil.getEndgame(pieceIndex, placeValue);
+        phase -= PieceSquareUtil.getPhase(pieceIndex);
+    }
+
+    /* Unlike the key the scores care which way the piece went, so from and to have to be the right way round. */
+    private void pieceMoved(int pieceIndex, long from, long to) {
+        int fromPlace = Long.numberOfTrailingZeros(from);
+        int toPlace = Long.numberOfTrailingZeros(to);
+        key = key ^ ZobristUtil.getPieceKey(pieceIndex, fromPlace) ^ ZobristUtil.getPieceKey(pieceIndex, toPlace);
+        pawnKey = pawnKey ^ ZobristUtil.getPawnKey(pieceIndex, fromPlace) ^ ZobristUtil.getPawnKey(pieceIndex, toPlace);
+        midgameScore += PieceSquareUtil.getMidgame(pieceIndex, toPlace) - PieceSquareUtil.getMidgame(pieceIndex, fromPlace);
+        endgameScore += PieceSquareUtil.getEndgame(pieceIndex, toPlace) - PieceSquareUtil.getEndgame(pieceIndex, fromPlace);
+    }
+
+    /* Flags changed from the ones whose key was passed in to the ones we have now. */
+    private void updateFlagsKey(long previousFlagsKey) {
+        key = key ^ previousFlagsKey ^ ZobristUtil.getFlagsKey(flags);
+    }
+
+    private static int getTakenPieceIndex(int pieceTaken) {
+        switch (pieceTaken) {
+            case TypeConstants.QUEEN_TAKEN:
+                return ZobristUtil.QUEEN;
+            case TypeConstants.ROOK_TAKEN:
+                return ZobristUtil.ROOK;
+            case TypeConstants.BISHOP_TAKEN:
+                return ZobristUtil.BISHOP;
+            case TypeConstants.KNIGHT_TAKEN:
+                return ZobristUtil.KNIGHT;
+            default:
+                return ZobristUtil.PAWN;
+        }
+    }
+
+    /* Castling is its own reverse, so this is used by both makeMove and unmakeMove. Same goes for the key. */
     private void castle(long move, boolean whiteToMove) {
         long side = (MoveInitUtil.isLeftCastle(move) ? 0xF8000000000000F8L : 0x0F0000000000000FL);
         if (whiteToMove) {
@@ -413,6 +699,12 @@ public final class Position {
         }
         knightsAndKings = knightsAndKings ^ (0x2A0000000000002AL & side);
         rooksAndQueens  = rooksAndQueens  ^ (0x9500000000000095L & side);
+        int colour = colourIndex(whiteToMove);
+        long kings = 0x2A0000000000002AL & side;
+        long rooks = 0x9500000000000095L & side;
+        /* Whichever way we castle the pieces are now on the squares they went to. */
+        pieceMoved(ZobristUtil.KING | colour, kings & ~knightsAndKings, kings & knightsAndKings);
+        pieceMoved(ZobristUtil.ROOK | colour, rooks & ~rooksAndQueens, rooks & rooksAndQueens);
     }
 
     private int promote(long move, boolean whiteToMove) {
@@ -457,6 +749,8 @@ public final class Position {
         }
 
         pawnsAndKnights = pawnsAndKnights ^ (move ^ to); /* Removing the pawn from "from" position. */
+        int colour = colourIndex(whiteToMove);
+        int promotedIndex = ZobristUtil.QUEEN;
         switch (promoteTo) {
             case QUEEN:
                 queensAndBishops = queensAndBishops | to;
@@ -465,19 +759,28 @@ public final class Position {
             case KNIGHT:
                 knightsAndKings = knightsAndKings | to;
                 pawnsAndKnights = pawnsAndKnights | to;
+                promotedIndex = ZobristUtil.KNIGHT;
                 break;
             case BISHOP:
                 queensAndBishops = queensAndBishops | to;
+                promotedIndex = ZobristUtil.BISHOP;
                 break;
             case ROOK:
                 rooksAndQueens = rooksAndQueens | to;
+                promotedIndex = ZobristUtil.ROOK;
+        }
+        if (captures) {
+            pieceRemoved(getTakenPieceIndex(takes) | (colour ^ ZobristUtil.BLACK), to);
         }
+        pieceRemoved(ZobristUtil.PAWN | colour, move ^ to);
+        pieceAdded(promotedIndex | colour, to);
         return takes;
     }
 
     private void enPassant(long move, boolean whiteToMove) {
         move = move & 0x00FFFFFFFFFFFF00L;
-        long pawnToTake = getPawnToBeCapturedEnPassant(move & 0x0000FF0000FF0000L, whiteToMove);
+        long to = move & 0x0000FF0000FF0000L;
+        long pawnToTake = getPawnToBeCapturedEnPassant(to, whiteToMove);
         if (whiteToMove) {
             whitePieces = whitePieces ^ move;
             blackPieces = blackPieces ^ pawnToTake;
@@ -486,6 +789,9 @@ public final class Position {
             whitePieces = whitePieces ^ pawnToTake;
         }
         pawnsAndKnights = pawnsAndKnights ^ move ^ pawnToTake;
+        int colour = colourIndex(whiteToMove);
+        pieceMoved(ZobristUtil.PAWN | colour, move ^ to, to);
+        pieceRemoved(ZobristUtil.PAWN | (colour ^ ZobristUtil.BLACK), pawnToTake);
     }
 
     private void doublePush(long move, boolean whiteToMove) {
@@ -496,7 +802,9 @@ public final class Position {
         } else {
             blackPieces = blackPieces ^ move;
         }
-        setEnPassantStatusData(move & 0x000000FFFF000000L, whiteToMove);
+        long to = move & 0x000000FFFF000000L;
+        pieceMoved(ZobristUtil.PAWN | colourIndex(whiteToMove), move ^ to, to);
+        setEnPassantStatusData(to, whiteToMove);
     }
 
     /** We rely on passed moves to be legal. We do not perform any move sanity checks. To avoid inconsistent board states
@@ -510,6 +818,7 @@ public final class Position {
      *  */
     public int makeMove(long move) {
         boolean whiteToMove = whiteToMove();
+        long flagsKey = ZobristUtil.getFlagsKey(flags);
         incrementReversibleHalfMoveCount();
         resetEnPassantStatusData();
         toggleWhiteToMove();
@@ -517,6 +826,7 @@ public final class Position {
         long from, to;
         int taken = 0;
         boolean captures = false;
+        int colour = colourIndex(whiteToMove);
 
         if(MoveInitUtil.isSpecialMove(move)) {
             if (MoveInitUtil.isDoublePawnMove(move)) {
@@ -528,9 +838,11 @@ public final class Position {
             } else {
                 castle(move, whiteToMove);
                 kingMoved(whiteToMove);
+                updateFlagsKey(flagsKey);
                 return 0;
             }
             resetReversibleHalfMoveCount();
+            updateFlagsKey(flagsKey);
             return taken;
         }
 
@@ -577,6 +889,7 @@ public final class Position {
                 queensAndBishops = queensAndBishops ^ to; /* Can't take king in chess, taken piece must be a bishop. */
                 taken = TypeConstants.BISHOP_TAKEN;
             }
+            pieceRemoved(getTakenPieceIndex(taken) | (colour ^ ZobristUtil.BLACK), to);
         }
         /* Actually making the move for the piece. */
         if ((pawnsAndKnights & from) != 0) {
@@ -585,9 +898,11 @@ public final class Position {
             if ((knightsAndKings & from) != 0) {
                 /* It's a knight. */
                 knightsAndKings = knightsAndKings ^ move;
+                pieceMoved(ZobristUtil.KNIGHT | colour, from, to);
             } else {
                 /* It's a pawn. */
                 resetReversibleHalfMoveCount();
+                pieceMoved(ZobristUtil.PAWN | colour, from, to);
             }
         } else if ((rooksAndQueens & from) != 0) {
             /* It's a rook/queen. */
@@ -595,25 +910,32 @@ public final class Position {
             if ((queensAndBishops & from) != 0) {
                 /* It's a queen. */
                 queensAndBishops = queensAndBishops ^ move;
+                pieceMoved(ZobristUtil.QUEEN | colour, from, to);
             } else {
                 /* It's a rook. We update rook castling flags. */
                 updateRookFlags(from);
+                pieceMoved(ZobristUtil.ROOK | colour, from, to);
             }
         } else if ((queensAndBishops & from) != 0) {
             /* It's a bishop. */
             queensAndBishops = queensAndBishops ^ move;
+            pieceMoved(ZobristUtil.BISHOP | colour, from, to);
         } else {
             /* It's a king. */
             knightsAndKings = knightsAndKings ^ move;
+            pieceMoved(ZobristUtil.KING | colour, from, to);
             /* We update king castling flags. */
             kingMoved(whiteToMove);
         }
+        updateFlagsKey(flagsKey);
         return taken;
     }
 
     public void unmakeMove(long move, int pieceTaken, int restoreFlags) {
+        key = key ^ ZobristUtil.getFlagsKey(flags) ^ ZobristUtil.getFlagsKey(restoreFlags);
         flags = restoreFlags;
         boolean whiteToMove = whiteToMove();
+        int colour = colourIndex(whiteToMove);
         boolean enPassant = false;
 
         PieceType promoteTo = null;
@@ -652,6 +974,7 @@ public final class Position {
         /* Reversing promotion. */
         if (null != promoteTo) {
             /* Dealing with prawn promotions. */
+            int promotedIndex = ZobristUtil.QUEEN;
             switch (promoteTo) {
                 case QUEEN:
                     queensAndBishops = queensAndBishops ^ to;
@@ -660,15 +983,21 @@ public final class Position {
                     break;
                 case KNIGHT:
                     knightsAndKings = knightsAndKings ^ to;
+                    promotedIndex = ZobristUtil.KNIGHT;
                     break;
                 case BISHOP:
                     queensAndBishops = queensAndBishops ^ to;
                     pawnsAndKnights = pawnsAndKnights ^ to;
+                    promotedIndex = ZobristUtil.BISHOP;
                     break;
                 case ROOK:
                     rooksAndQueens = rooksAndQueens ^ to;
                     pawnsAndKnights = pawnsAndKnights ^ to;
+                    promotedIndex = ZobristUtil.ROOK;
             }
+            /* The promoted piece turns back into a pawn, which gets moved back below. */
+            pieceRemoved(promotedIndex | colour, to);
+            pieceAdded(ZobristUtil.PAWN | colour, to);
         }
 
         /* Moving back our pieces. */
@@ -678,9 +1007,11 @@ public final class Position {
                 /* It's a knight. */
                 knightsAndKings = knightsAndKings ^ move;
                 pawnsAndKnights = pawnsAndKnights ^ move;
+                pieceMoved(ZobristUtil.KNIGHT | colour, to, move ^ to);
             } else {
                 /* It's a pawn. */
                 pawnsAndKnights = pawnsAndKnights ^ move; /* Taking back the pawn. */
+                pieceMoved(ZobristUtil.PAWN | colour, to, move ^ to);
                 /* Deal with en-passant. */
                 if (enPassant) {
                     long toBeTakenEP = getPawnToBeCapturedEnPassant(to, whiteToMove);
@@ -692,6 +1023,7 @@ public final class Position {
                         whitePieces = whitePieces ^ toBeTakenEP;
                     }
                     pawnsAndKnights = pawnsAndKnights ^ toBeTakenEP;
+                    pieceAdded(ZobristUtil.PAWN | (colour ^ ZobristUtil.BLACK), toBeTakenEP);
                 }
             }
         } else if ((rooksAndQueens & to) != 0) {
@@ -700,16 +1032,22 @@ public final class Position {
             if ((queensAndBishops & to) != 0) {
                 /* It's a queen. */
                 queensAndBishops = queensAndBishops ^ move;
+                pieceMoved(ZobristUtil.QUEEN | colour, to, move ^ to);
+            } else {
+                pieceMoved(ZobristUtil.ROOK | colour, to, move ^ to);
             }
         } else if ((queensAndBishops & to) != 0) {
             /* It's a bishop. */
             queensAndBishops = queensAndBishops ^ move;
+            pieceMoved(ZobristUtil.BISHOP | colour, to, move ^ to);
         } else {
             /* It's a king. */
             knightsAndKings = knightsAndKings ^ move;
+            pieceMoved(ZobristUtil.KING | colour, to, move ^ to);
         }
         /* We put back captured pieces. */
         if (pieceTaken != 0) {
+            pieceAdded(getTakenPieceIndex(pieceTaken) | (colour ^ ZobristUtil.BLACK), to);
             if ((pieceTaken & TypeConstants.QUEEN_TAKEN) != 0) {
                 if ((pieceTaken & TypeConstants.BISHOP_TAKEN) != 0) {
                     queensAndBishops = queensAndBishops ^ to;
@@ -759,6 +1097,9 @@ public final class Position {
         if ((getPawns() & 0xFF000000000000FFL) != 0) {
             return false; /* Pawn on the last rank. */
         }
+        if (key != ZobristUtil.computeKey(this)) {
+            return false; /* Key wasn't kept up to date with the board. */
+        }
         return true;
     }
 
@@ -767,7 +1108,8 @@ public final class Position {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Position position = (Position) o;
-        return  whitePieces == position.whitePieces &&
+        return  key == position.key &&
+                whitePieces == position.whitePieces &&
                 blackPieces == position.blackPieces &&
                 pawnsAndKnights == position.pawnsAndKnights &&
                 knightsAndKings == position.knightsAndKings &&
@@ -776,6 +1118,11 @@ public final class Position {
                 flags == position.flags;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+
     public static class Builder {
         private Position position;
         Square enPassantSquare = null;
@@ -849,6 +1196,9 @@ public final class Position {
             if (null != enPassantSquare) {
                 position.setEnPassantStatusData(1L << enPassantSquare.placeValue, !position.whiteToMove());
             }
+            position.key = ZobristUtil.computeKey(position);
+            position.pawnKey = ZobristUtil.computePawnKey(position);
+            position.computeScores();
             position.validate();
             return position;
         }
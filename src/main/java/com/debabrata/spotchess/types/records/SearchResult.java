@@ -0,0 +1,12 @@
+package com.debabrata.spotchess.types.records;
+
+/**
+ * What an iteration of the search came up with.
+ *
+ * @param principalVariation moves the search expects to be played, best move first. Might be just the best move.
+ */
+public record SearchResult(int depth, int score, long bestMove, long[] principalVariation, long nodes, long timeMillis) {
+    public long nodesPerSecond() {
+        return timeMillis == 0 ? nodes * 1000 : nodes * 1000 / timeMillis;
+    }
+}
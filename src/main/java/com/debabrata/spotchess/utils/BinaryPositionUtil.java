@@ -0,0 +1,181 @@
+package com.debabrata.spotchess.utils;
+
+import com.debabrata.spotchess.types.Position;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Positions in bytes, for wherever there are too many of them for FEN: training data, test suites, books. There are two
+ * forms, both little-endian, and both give the position back exactly, key and all. Neither has the full move number,
+ * which the position doesn't know either.
+ * <p>
+ * The raw form is the position's own state in 52 bytes, the six piece sets as Position's getters hand them out and then
+ * the flags. Nothing about it is checked on the way in.
+ * <p>
+ * The packed form takes 10 to 26 bytes, depending on how many pieces are left:
+ * <pre>
+ *   8 bytes   occupancy, a bit for every square with a piece on it
+ *   n/2 bytes a 4-bit code for each of the n pieces, lowest square first, low nibble first
+ *   1 byte    0x80 if white is to move, and the four castling bits of the flags in 0x0F
+ *   1 byte    reversible half move count
+ * </pre>
+ * Codes 0 to 5 are white's pawn, knight, bishop, rook, queen and king, 6 to 11 black's. 12 is a pawn that has just moved
+ * two squares and can be taken en passant, of the side that isn't to move.
+ */
+public class BinaryPositionUtil {
+    public static final int RAW_SIZE = 52;
+    public static final int MAX_PACKED_SIZE = 26;
+
+    private static final int PAWN = 0;
+    private static final int KNIGHT = 1;
+    private static final int BISHOP = 2;
+    private static final int ROOK = 3;
+    private static final int QUEEN = 4;
+    private static final int KING = 5;
+    private static final int BLACK = 6;
+    private static final int EN_PASSANT_PAWN = 12;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Writes RAW_SIZE bytes at at, leaving the buffer's position alone.
+     */
+    public static void writeRaw(Position position, ByteBuffer buffer, int at) {
+        LONGS.set(buffer, at, position.getWhitePieces());
+        LONGS.set(buffer, at + 8, position.getBlackPieces());
+        LONGS.set(buffer, at + 16, position.getPawnsAndKnights());
+        LONGS.set(buffer, at + 24, position.getKnightsAndKings());
+        LONGS.set(buffer, at + 32, position.getRooksAndQueens());
+        LONGS.set(buffer, at + 40, position.getQueensAndBishops());
+        INTS.set(buffer, at + 48, position.getFlags());
+    }
+
+    public static void readRaw(ByteBuffer buffer, int at, Position position) {
+        int flags = (int) INTS.get(buffer, at + 48);
+        /* setUp works the en-passant bits out from the pawn, which comes to the same as what was stored. The flags keep
+         * the pawn in the rank 3 byte, shifted down from rank 5 or rank 4. */
+        long enPassantPawn = (0x00FF0000L & flags) << (flags < 0 ? 16 : 8);
+        position.setUp((long) LONGS.get(buffer, at), (long) LONGS.get(buffer, at + 8),
+                (long) LONGS.get(buffer, at + 16), (long) LONGS.get(buffer, at + 24),
+                (long) LONGS.get(buffer, at + 32), (long) LONGS.get(buffer, at + 40), flags, enPassantPawn);
+    }
+
+    /**
+     * @return how many bytes the packed form of the position takes.
+     */
+    public static int getPackedSize(Position position) {
+        return 10 + (Long.bitCount(position.getAllPieces()) + 1) / 2;
+    }
+
+    /**
+     * Writes the packed form at at, leaving the buffer's position alone.
+     *
+     * @return how many bytes were written, see {@link #getPackedSize(Position)}.
+     */
+    public static int writePacked(Position position, ByteBuffer buffer, int at) {
+        long white = position.getWhitePieces();
+        long pawnsAndKnights = position.getPawnsAndKnights();
+        long knightsAndKings = position.getKnightsAndKings();
+        long rooksAndQueens = position.getRooksAndQueens();
+        long queensAndBishops = position.getQueensAndBishops();
+        boolean whiteToMove = position.whiteToMove();
+        long enPassantPawn = position.getPawnToBeCapturedEnPassant(
+                position.getPawnLocationAfterEnPassant(whiteToMove), whiteToMove);
+        long occupied = position.getAllPieces();
+        LONGS.set(buffer, at, occupied);
+        int writeAt = at + 8;
+        int codes = 0;
+        int codeCount = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            long square = pieces & -pieces;
+            int code;
+            if ((square & enPassantPawn) != 0) {
+                code = EN_PASSANT_PAWN;
+            } else {
+                if ((square & pawnsAndKnights) != 0) {
+                    code = (square & knightsAndKings) != 0 ? KNIGHT : PAWN;
+                } else if ((square & queensAndBishops) != 0) {
+                    code = (square & rooksAndQueens) != 0 ? QUEEN : BISHOP;
+                } else {
+                    code = (square & rooksAndQueens) != 0 ? ROOK : KING;
+                }
+                code += (square & white) != 0 ? 0 : BLACK;
+            }
+            codes |= code << (4 * codeCount++);
+            if (codeCount == 2) {
+                buffer.put(writeAt++, (byte) codes);
+                codes = 0;
+                codeCount = 0;
+            }
+        }
+        if (codeCount != 0) {
+            buffer.put(writeAt++, (byte) codes);
+        }
+        int flags = position.getFlags();
+        buffer.put(writeAt++, (byte) ((whiteToMove ? 0x80 : 0) | ((flags >>> 24) & 0x0F)));
+        buffer.put(writeAt++, (byte) position.getReversibleHalfMoveCount());
+        return writeAt - at;
+    }
+
+    /**
+     * @return how many bytes were read.
+     * @throws IllegalArgumentException if there's a piece code that isn't one.
+     */
+    public static int readPacked(ByteBuffer buffer, int at, Position position) {
+        long occupied = (long) LONGS.get(buffer, at);
+        int pieceCount = Long.bitCount(occupied);
+        int stateAt = at + 8 + (pieceCount + 1) / 2;
+        int state = buffer.get(stateAt);
+        boolean whiteToMove = (state & 0x80) != 0;
+        long white = 0;
+        long pawnsAndKnights = 0;
+        long knightsAndKings = 0;
+        long rooksAndQueens = 0;
+        long queensAndBishops = 0;
+        long enPassantPawn = 0;
+        int readAt = at + 8;
+        int codes = 0;
+        int codeCount = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            long square = pieces & -pieces;
+            if (codeCount == 0) {
+                codes = buffer.get(readAt++) & 0xFF;
+                codeCount = 2;
+            }
+            int code = codes & 0x0F;
+            codes >>>= 4;
+            codeCount--;
+            if (code == EN_PASSANT_PAWN) {
+                enPassantPawn = square;
+                code = whiteToMove ? PAWN + BLACK : PAWN;
+            } else if (code > EN_PASSANT_PAWN) {
+                throw new IllegalArgumentException("No piece has code " + code);
+            }
+            if (code < BLACK) {
+                white |= square;
+            }
+            switch (code % BLACK) {
+                case PAWN -> pawnsAndKnights |= square;
+                case KNIGHT -> {
+                    pawnsAndKnights |= square;
+                    knightsAndKings |= square;
+                }
+                case BISHOP -> queensAndBishops |= square;
+                case ROOK -> rooksAndQueens |= square;
+                case QUEEN -> {
+                    rooksAndQueens |= square;
+                    queensAndBishops |= square;
+                }
+                default -> knightsAndKings |= square;
+            }
+        }
+        int flags = (whiteToMove ? 0x80000000 : 0) | ((state & 0x0F) << 24) | (buffer.get(stateAt + 1) & 0xFF);
+        position.setUp(white, occupied & ~white, pawnsAndKnights, knightsAndKings, rooksAndQueens, queensAndBishops,
+                flags, enPassantPawn);
+        return stateAt + 2 - at;
+    }
+}
@@ -0,0 +1,87 @@
+package com.debabrata.spotchess.utils;
+
+/**
+ * Moves in 16 bits, for wherever they're stored rather than played: hash tables, killers, books. Converting to and from
+ * the long form of {@link MoveInitUtil} is a few shifts and needs no position.
+ * <p>
+ * The layout is:
+ * <pre>
+ *   0x003F the lower of the two squares, by place value
+ *   0x0FC0 the higher of the two squares
+ *   0xF000 what kind of move it is
+ * </pre>
+ * Like the long form it doesn't say which square is the from and which the to, the position does. Promotions keep the
+ * long form's shift by a rank and castles have both squares 0. A 0 short stands for no move, same as a 0 long.
+ */
+public class CompactMoveUtil {
+    public static final int NORMAL         = 0;
+    public static final int LEFT_CASTLE    = 1;
+    public static final int RIGHT_CASTLE   = 2;
+    public static final int EN_PASSANT     = 3;
+    public static final int DOUBLE_PAWN    = 4;
+    public static final int QUEEN_PROMOTE  = 5;
+    public static final int KNIGHT_PROMOTE = 6;
+    public static final int BISHOP_PROMOTE = 7;
+    public static final int ROOK_PROMOTE   = 8;
+
+    /* The special move byte of the long form for every kind, and the other way round. */
+    private static final long[] SPECIAL_FLAGS = { 0, 0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x30, 0x40 };
+    private static final byte[] KINDS = new byte[0x41];
+
+    static {
+        for (int kind = 1; kind < SPECIAL_FLAGS.length; kind++) {
+            KINDS[(int) SPECIAL_FLAGS[kind]] = (byte) kind;
+        }
+    }
+
+    public static short toCompact(long move) {
+        if (move == 0) {
+            return 0;
+        }
+        int kind = NORMAL;
+        if (MoveInitUtil.isSpecialMove(move)) {
+            kind = KINDS[(int) move & 0xFF];
+            move = move & 0x00FFFFFFFFFFFF00L;
+            if (move == 0) {
+                return (short) (kind << 12); /* Castle. */
+            }
+        }
+        return (short) (kind << 12 | (63 - Long.numberOfLeadingZeros(move)) << 6 | Long.numberOfTrailingZeros(move));
+    }
+
+    public static long toMove(short compact) {
+        int kind = getKind(compact);
+        if (kind == LEFT_CASTLE || kind == RIGHT_CASTLE) {
+            return 0xFF00000000000000L | SPECIAL_FLAGS[kind];
+        }
+        if (compact == 0) {
+            return 0;
+        }
+        long squares = 1L << getLowSquare(compact) | 1L << getHighSquare(compact);
+        return kind == NORMAL ? squares : 0xFF00000000000000L | SPECIAL_FLAGS[kind] | squares;
+    }
+
+    /**
+     * Converts moves from moves[from] up to moves[to] and writes them to compactMoves from writeAt.
+     *
+     * @return position on compactMoves where new moves can be written.
+     */
+    public static int toCompact(long[] moves, int from, int to, short[] compactMoves, int writeAt) {
+        for (int i = from; i < to; i++) {
+            compactMoves[writeAt++] = toCompact(moves[i]);
+        }
+        return writeAt;
+    }
+
+    public static int getKind(short compact) {
+        return (compact >>> 12) & 0x0F;
+    }
+
+    public static int getLowSquare(short compact) {
+        return compact & 0x3F;
+    }
+
+    public static int getHighSquare(short compact) {
+        return (compact >>> 6) & 0x3F;
+    }
+}
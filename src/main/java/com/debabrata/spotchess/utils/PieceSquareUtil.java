@@ -0,0 +1,142 @@
+package com.debabrata.spotchess.utils;
+
+import static com.debabrata.spotchess.constants.EvaluationConstants.*;
+
+/**
+ * Piece-square tables, for the middlegame and the endgame, with the piece's material value already added in. Position
+ * keeps running totals of these as moves are made so evaluating a leaf doesn't need to look at every piece.
+ * <p>
+ * Pieces are indexed the way {@link ZobristUtil} does it. Values are from white's point of view, so the black pieces'
+ * are negative and the totals are white's score. The game phase goes from {@link #MAX_PHASE} with all the pieces on
+ * the board down to 0 with only kings and pawns, and the evaluation slides from the middlegame to the endgame score
+ * along with it.
+ * <p>
+ * The tables are Tomasz Michniewski's "simplified evaluation function" ones, with endgame tables of our own for the
+ * pawns, which should run, and the king, which should come out.
+ */
+public class PieceSquareUtil {
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] midgame = new int[12 * 64];
+    private static final int[] endgame = new int[12 * 64];
+    private static final int[] phases = new int[12];
+
+    /* Written the way a board is printed, a8 first and h1 last, so white's at placeValue p is at 63 - p. */
+    private static final int[] PAWN = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] PAWN_ENDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             15,  15,  15,  15,  15,  15,  15,  15,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    static {
+        init(ZobristUtil.KING, 0, 0, KING, KING_ENDGAME);
+        init(ZobristUtil.QUEEN, QUEEN_VALUE, 4, QUEEN, QUEEN);
+        init(ZobristUtil.BISHOP, BISHOP_VALUE, 1, BISHOP, BISHOP);
+        init(ZobristUtil.KNIGHT, KNIGHT_VALUE, 1, KNIGHT, KNIGHT);
+        init(ZobristUtil.ROOK, ROOK_VALUE, 2, ROOK, ROOK);
+        init(ZobristUtil.PAWN, PAWN_VALUE, 0, PAWN, PAWN_ENDGAME);
+    }
+
+    private static void init(int pieceIndex, int value, int phase, int[] midgameTable, int[] endgameTable) {
+        int black = pieceIndex | ZobristUtil.BLACK;
+        for (int placeValue = 0; placeValue < 64; placeValue++) {
+            midgame[pieceIndex << 6 | placeValue] = value + midgameTable[63 - placeValue];
+            endgame[pieceIndex << 6 | placeValue] = value + endgameTable[63 - placeValue];
+            /* Black's pieces see the board upside down. */
+            midgame[black << 6 | placeValue] = -(value + midgameTable[63 - (placeValue ^ 56)]);
+            endgame[black << 6 | placeValue] = -(value + endgameTable[63 - (placeValue ^ 56)]);
+        }
+        phases[pieceIndex] = phase;
+        phases[black] = phase;
+    }
+
+    public static int getMidgame(int pieceIndex, int placeValue) {
+        return midgame[pieceIndex << 6 | placeValue];
+    }
+
+    public static int getEndgame(int pieceIndex, int placeValue) {
+        return endgame[pieceIndex << 6 | placeValue];
+    }
+
+    /**
+     * @return how much the piece counts towards the game phase. Pawns and kings don't.
+     */
+    public static int getPhase(int pieceIndex) {
+        return phases[pieceIndex];
+    }
+}
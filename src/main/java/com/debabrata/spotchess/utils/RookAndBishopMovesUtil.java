@@ -2,8 +2,6 @@ package com.debabrata.spotchess.utils;
 
 import com.debabrata.spotchess.types.enums.PieceType;
 
-import java.util.Arrays;
-
 public class RookAndBishopMovesUtil {
 
     private static final long [] rookMask =       {0x000101010101017eL, 0x000202020202027cL, 0x000404040404047aL, 0x0008080808080876L, 0x001010101010106eL, 0x002020202020205eL, 0x004040404040403eL, 0x008080808080807eL, 0x0001010101017e00L, 0x0002020202027c00L, 0x0004040404047a00L, 0x0008080808087600L, 0x0010101010106e00L, 0x0020202020205e00L, 0x0040404040403e00L, 0x0080808080807e00L, 0x00010101017e0100L, 0x00020202027c0200L, 0x00040404047a0400L, 0x0008080808760800L, 0x00101010106e1000L, 0x00202020205e2000L, 0x00404040403e4000L, 0x00808080807e8000L, 0x000101017e010100L, 0x000202027c020200L, 0x000404047a040400L, 0x0008080876080800L, 0x001010106e101000L, 0x002020205e202000L, 0x004040403e404000L, 0x008080807e808000L, 0x0001017e01010100L, 0x0002027c02020200L, 0x0004047a04040400L, 0x0008087608080800L, 0x0010106e10101000L, 0x0020205e20202000L, 0x0040403e40404000L, 0x0080807e80808000L, 0x00017e0101010100L, 0x00027c0202020200L, 0x00047a0404040400L, 0x0008760808080800L, 0x00106e1010101000L, 0x00205e2020202000L, 0x00403e4040404000L, 0x00807e8080808000L, 0x007e010101010100L, 0x007c020202020200L, 0x007a040404040400L, 0x0076080808080800L, 0x006e101010101000L, 0x005e202020202000L, 0x003e404040404000L, 0x007e808080808000L, 0x7e01010101010100L, 0x7c02020202020200L, 0x7a04040404040400L, 0x7608080808080800L, 0x6e10101010101000L, 0x5e20202020202000L, 0x3e40404040404000L, 0x7e80808080808000L};
@@ -30,32 +28,47 @@ public class RookAndBishopMovesUtil {
             59,59,59,59,59,59,59,59,58,59,59,59,59,59,59,58
     };
 
-    private static final int maxRookShift   = 64 - Arrays.stream(rookShift).min().getAsInt();
-    private static final int maxBishopShift = 64 - Arrays.stream(bishopShift).min().getAsInt();
+    /* Moves and pins are kept in one table per piece type. Every square gets a slice just as big as its shift needs,
+     * starting at its offset, instead of every square getting as much as the worst square needs. Within a slice the
+     * moves for a magic index are at the even slot and the pins right after them, so when we want both for the king
+     * they come from the same cache line. Comes to about 1.6 MB for rooks and 80 KB for bishops. Sizing every slice for
+     * the largest shift took 4 MB and 512 KB.
+     *
+     * The offsets MagicHashGenerator prints after packing a table go in the packed offset arrays, 64 of them and then
+     * the length of the whole table. Packed slices can lie over each other where they agree. Left empty the slices go
+     * end to end, which is as small as it gets for the magics we have now. */
+    private static final int [] rookPackedOffset = {};
+    private static final int [] bishopPackedOffset = {};
 
-    private static final long [] rookAttacksCache = new long[getCacheSize(maxRookShift)];
-    private static final long [] rookPinsCache = new long[getCacheSize(maxRookShift)];
-    private static final long [] bishopAttacksCache = new long[getCacheSize(maxBishopShift)];
-    private static final long [] bishopPinsCache = new long[getCacheSize(maxBishopShift)];
+    private static final int [] rookOffset = getOffsets(rookShift, rookPackedOffset);
+    private static final int [] bishopOffset = getOffsets(bishopShift, bishopPackedOffset);
 
-    private static int cachedBishopIndex;
-    private static int cachedRookIndex;
+    private static final long [] rookTable = new long[rookOffset[64]];
+    private static final long [] bishopTable = new long[bishopOffset[64]];
 
     static {
         /* Makes sense to do it here, all methods are static and use cases break if this call is missed before use.*/
         setupMoveTables();
     }
 
-    private static int getCacheSize(int maxShift) {
-        return 64 * (1 << maxShift);
+    /* Slice sizes are doubled as every index has a move and a pin entry. The 65th value is the length of the table. */
+    private static int[] getOffsets(int [] shift, int [] packedOffsets) {
+        if (packedOffsets.length == 65) {
+            return packedOffsets;
+        }
+        int [] offsets = new int[65];
+        for ( int i = 1; i <= 64; i++ ) {
+            offsets[i] = offsets[i - 1] + (2 << (64 - shift[i - 1]));
+        }
+        return offsets;
     }
 
     private static void setupMoveTables() {
-        setupMoveTable(PieceType.ROOK, rookMask, rookMagic, rookShift, maxRookShift, rookAttacksCache, rookPinsCache);
-        setupMoveTable(PieceType.BISHOP, bishopMask, bishopMagic, bishopShift, maxBishopShift, bishopAttacksCache, bishopPinsCache);
+        setupMoveTable(PieceType.ROOK, rookMask, rookMagic, rookShift, rookOffset, rookTable);
+        setupMoveTable(PieceType.BISHOP, bishopMask, bishopMagic, bishopShift, bishopOffset, bishopTable);
     }
 
-    private static void setupMoveTable(PieceType piece, long [] masks, long [] magics, int[] shift, int maxShift, long [] moveCache, long [] pinCache){
+    private static void setupMoveTable(PieceType piece, long [] masks, long [] magics, int[] shift, int [] offsets, long [] table){
         for ( int i = 0; i < 64; i ++ ) {
             long[] pieceCombinations = BitUtil.getAllPossibleBitCombinations(masks[i]);
             long[] moveCombinations, pinCombinations;
@@ -64,16 +77,16 @@ public class RookAndBishopMovesUtil {
             pinCombinations = getAllPossiblePinCombinations(piece, i, pieceCombinations);
 
             for ( int j = 0; j < pieceCombinations.length; j ++ ) {
-                int index = (int)((pieceCombinations[j] * magics[i]) >>> shift[i]) | i << maxShift ;
-                if ((moveCache[index] != 0 && moveCache[index] != moveCombinations[j]) || (pinCache[index] != 0 && pinCache[index] != pinCombinations[j])) {
+                int index = offsets[i] + ((int)((pieceCombinations[j] * magics[i]) >>> shift[i]) << 1);
+                if ((table[index] != 0 && table[index] != moveCombinations[j]) || (table[index + 1] != 0 && table[index + 1] != pinCombinations[j])) {
                     /*  We have the code so that we could recover from this by simply finding a new key, but I'd rather
                      *  the code blew up on my face than do a resource consuming recovery and on a user's computer.
                      *  By the way what we just found out are two moves that are not the same that map to the same
                      *  location in the cache so the magic number is faulty. */
                     throw new RuntimeException("Broken CacheKey for " + piece.name() + " at position " + i);
                 }
-                moveCache[index] = moveCombinations[j];
-                pinCache[index] = pinCombinations[j];
+                table[index] = moveCombinations[j];
+                table[index + 1] = pinCombinations[j];
             }
         }
     }
@@ -88,26 +101,40 @@ public class RookAndBishopMovesUtil {
     }
 
     public static long getRookMoves(int placeValue, long boardPosition) {
-        int index = (int)(((boardPosition & rookMask[placeValue]) * rookMagic[placeValue]) >>> rookShift[placeValue]);
-        return rookAttacksCache[index | placeValue << maxRookShift];
+        return rookTable[getRookIndex(placeValue, boardPosition)];
     }
 
     /** This is basically nearest pair of pieces on all 4 sides of the king. Any of these four pairs can potentially be a pin. */
     public static long getRookPins(int placeValue, long boardPosition) {
-        int index = (int)(((boardPosition & rookMask[placeValue]) * rookMagic[placeValue]) >>> rookShift[placeValue]);
-        return rookPinsCache[index | placeValue << maxRookShift];
+        return rookTable[getRookIndex(placeValue, boardPosition) + 1];
     }
 
-    /** This is the same as getRookMoves except it caches the index. This is useful for king pin pair requests. */
-    public static long getKingRookMoves(int placeValue, long boardPosition) {
+    /**
+     * Index of the rook at placeValue on the board into the rook tables. For when we want both the moves and the pins
+     * from a square (the king's), so we only do the multiply once. The caller holds on to the index, nothing is kept
+     * here, so it's safe to use from any number of threads.
+     */
+    public static int getRookIndex(int placeValue, long boardPosition) {
         int index = (int)(((boardPosition & rookMask[placeValue]) * rookMagic[placeValue]) >>> rookShift[placeValue]);
-        cachedRookIndex = index | placeValue << maxRookShift;
-        return rookAttacksCache[cachedRookIndex];
+        return rookOffset[placeValue] + (index << 1);
     }
 
-    /** Same as getRookPins but returns using cached index value. This only works if the previous call was to getRookMoves. */
-    public static long getCachedRookPins() {
-        return rookPinsCache[cachedRookIndex];
+    /** Same as getRookMoves for the index from {@link #getRookIndex}. */
+    public static long getRookMovesAt(int rookIndex) {
+        return rookTable[rookIndex];
+    }
+
+    /** Same as getRookPins for the index from {@link #getRookIndex}. */
+    public static long getRookPinsAt(int rookIndex) {
+        return rookTable[rookIndex + 1];
+    }
+
+    public static long getRookMagic(int placeValue) {
+        return rookMagic[placeValue];
+    }
+
+    public static int getRookShift(int placeValue) {
+        return rookShift[placeValue];
     }
 
     /** Gives us one diagonal for that place value. If we have a cross this helps us isolate them one at a time. */
@@ -120,26 +147,36 @@ public class RookAndBishopMovesUtil {
     }
 
     public static long getBishopMoves(int placeValue, long boardPosition) {
-        int index = (int)(((boardPosition & bishopMask[placeValue]) * bishopMagic[placeValue]) >>> bishopShift[placeValue]);
-        return bishopAttacksCache[index | placeValue << maxBishopShift];
+        return bishopTable[getBishopIndex(placeValue, boardPosition)];
     }
 
     /** This is basically nearest pair of pieces on all 4 sides of the king. Any of these four pairs can potentially be a pin. */
     public static long getBishopPins(int placeValue, long boardPosition) {
-        int index = (int)(((boardPosition & bishopMask[placeValue]) * bishopMagic[placeValue]) >>> bishopShift[placeValue]);
-        return bishopPinsCache[index | placeValue << maxBishopShift];
+        return bishopTable[getBishopIndex(placeValue, boardPosition) + 1];
     }
 
-    /** This is the same as getBishopMoves except it caches the index. This is useful for king pin pair requests. */
-    public static long getKingBishopMoves(int placeValue, long boardPosition) {
+    /** Index of the bishop at placeValue on the board into the bishop tables. See {@link #getRookIndex}. */
+    public static int getBishopIndex(int placeValue, long boardPosition) {
         int index = (int)(((boardPosition & bishopMask[placeValue]) * bishopMagic[placeValue]) >>> bishopShift[placeValue]);
-        cachedBishopIndex = index | placeValue << maxBishopShift;
-        return bishopAttacksCache[cachedBishopIndex];
+        return bishopOffset[placeValue] + (index << 1);
+    }
+
+    /** Same as getBishopMoves for the index from {@link #getBishopIndex}. */
+    public static long getBishopMovesAt(int bishopIndex) {
+        return bishopTable[bishopIndex];
+    }
+
+    /** Same as getBishopPins for the index from {@link #getBishopIndex}. */
+    public static long getBishopPinsAt(int bishopIndex) {
+        return bishopTable[bishopIndex + 1];
+    }
+
+    public static long getBishopMagic(int placeValue) {
+        return bishopMagic[placeValue];
     }
 
-    /** Same as getBishopPins but returns using cached index value. This only works if the previous call was to getKingBishopMoves. */
-    public static long getCachedBishopPins() {
-        return bishopPinsCache[cachedBishopIndex];
+    public static int getBishopShift(int placeValue) {
+        return bishopShift[placeValue];
     }
 
     public static long[] getAllPossibleMovesCombinations(PieceType pieceType, int placeValue, long[] pieceCombinations){
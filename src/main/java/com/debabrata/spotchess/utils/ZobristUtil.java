@@ -0,0 +1,111 @@
+package com.debabrata.spotchess.utils;
+
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.PieceType;
+
+/**
+ * Keys for Zobrist hashing of a position. A position's key is the xor of one random number per piece on a square, one
+ * for the castling rights, one for the en-passant file (if any) and one if it's white's move.
+ * <p>
+ * The random numbers come from a fixed seed so the keys stay the same from one run to the next. Anything we write to
+ * disk keyed by position (books, caches) depends on that.
+ * <p>
+ * Pieces are indexed as (pieceType.ordinal() << 1) | (white ? 0 : 1).
+ * <p>
+ * There's also a pawn key, the xor of just the pawns' numbers, which only changes when a pawn moves or is taken. Pawn
+ * structure evaluation is cached by it.
+ */
+public class ZobristUtil {
+    /* Piece indexes for white pieces, add BLACK for the black ones. */
+    public static final int KING   = 0;
+    public static final int QUEEN  = 2;
+    public static final int BISHOP = 4;
+    public static final int KNIGHT = 6;
+    public static final int ROOK   = 8;
+    public static final int PAWN   = 10;
+    public static final int BLACK  = 1;
+
+    private static final long [] pieceKeys = new long[12 * 64];
+    private static final long [] pawnKeys = new long[12 * 64]; /* Same as pieceKeys for pawns, 0 for the rest. */
+    private static final long [] castleKeys = new long[16];
+    private static final long [] enPassantKeys = new long[256]; /* Indexed by the en-passant 'taken' byte of the flags. */
+    private static final long whiteToMoveKey;
+
+    static {
+        long seed = 0x5370_6F74_4368_6573L; /* "SpotChes" */
+        for (int i = 0; i < pieceKeys.length; i++) {
+            pieceKeys[i] = seed = nextRandom(seed);
+        }
+        System.arraycopy(pieceKeys, PAWN << 6, pawnKeys, PAWN << 6, 128); /* White and black pawns. */
+        for (int i = 1; i < castleKeys.length; i++) {
+            castleKeys[i] = seed = nextRandom(seed);
+        }
+        /* Only one bit can be set in the byte, and none set means there's no en-passant to hash. */
+        for (int i = 0; i < 8; i++) {
+            enPassantKeys[1 << i] = seed = nextRandom(seed);
+        }
+        whiteToMoveKey = nextRandom(seed);
+    }
+
+    /* SplitMix64. Mixes well enough for hashing and is trivial to reproduce. */
+    private static long nextRandom(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static int getPieceIndex(PieceType pieceType, boolean white) {
+        return (pieceType.ordinal() << 1) | (white ? 0 : 1);
+    }
+
+    public static long getPieceKey(int pieceIndex, int placeValue) {
+        return pieceKeys[pieceIndex << 6 | placeValue];
+    }
+
+    /**
+     * @return the piece's key if it's a pawn, 0 otherwise. Lets the pawn key be kept without checking the piece type.
+     */
+    public static long getPawnKey(int pieceIndex, int placeValue) {
+        return pawnKeys[pieceIndex << 6 | placeValue];
+    }
+
+    /**
+     * @return key for the part of the position stored in the flags, i.e. side to move, castling and en-passant. The
+     *         reversible half move count is not a part of the key.
+     */
+    public static long getFlagsKey(int flags) {
+        long key = castleKeys[(flags >>> 24) & 0x0F] ^ enPassantKeys[(flags >>> 16) & 0xFF];
+        return flags < 0 ? key ^ whiteToMoveKey : key;
+    }
+
+    /** Computes the key from scratch. Fine for setting up positions, too slow to be called at every node. */
+    public static long computeKey(Position position) {
+        long key = getFlagsKey(position.getFlags());
+        key = key ^ computePieceKey(position, PieceType.KING, position.getKings());
+        key = key ^ computePieceKey(position, PieceType.QUEEN, position.getQueens());
+        key = key ^ computePieceKey(position, PieceType.BISHOP, position.getBishops());
+        key = key ^ computePieceKey(position, PieceType.KNIGHT, position.getKnights());
+        key = key ^ computePieceKey(position, PieceType.ROOK, position.getRooks());
+        key = key ^ computePieceKey(position, PieceType.PAWN, position.getPawns());
+        return key;
+    }
+
+    /** Computes the pawn key from scratch. */
+    public static long computePawnKey(Position position) {
+        return computePieceKey(position, PieceType.PAWN, position.getPawns());
+    }
+
+    private static long computePieceKey(Position position, PieceType pieceType, long pieces) {
+        long key = 0;
+        int whiteIndex = getPieceIndex(pieceType, true);
+        int blackIndex = getPieceIndex(pieceType, false);
+        for (long white = position.selectWhitePieces(pieces); white != 0; white &= (white - 1)) {
+            key = key ^ getPieceKey(whiteIndex, BitUtil.getLastBitPlaceValue(white));
+        }
+        for (long black = position.selectBlackPieces(pieces); black != 0; black &= (black - 1)) {
+            key = key ^ getPieceKey(blackIndex, BitUtil.getLastBitPlaceValue(black));
+        }
+        return key;
+    }
+}
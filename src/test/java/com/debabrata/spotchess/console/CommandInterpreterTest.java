@@ -0,0 +1,130 @@
+package com.debabrata.spotchess.console;
+
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandInterpreterTest {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final CommandInterpreter interpreter = new CommandInterpreter(new ByteArrayInputStream(new byte[0]),
+            new PrintStream(output, true));
+
+    @AfterEach
+    public void tearDown() {
+        interpreter.execute("quit");
+        EngineSettings.setThreadCount(1);
+        EngineSettings.setTtTableSizeMb(0);
+    }
+
+    private String output() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void handshake() {
+        interpreter.execute("uci");
+        interpreter.execute("isready");
+        assertTrue(output().startsWith("id name Spot"));
+        assertTrue(output().endsWith("uciok" + System.lineSeparator() + "readyok" + System.lineSeparator()));
+    }
+
+    @Test
+    public void setsUpPositions() {
+        interpreter.execute("position startpos moves e2e4 c7c5 g1f3 d7d6 e1e2");
+        Position expected = new FENParser()
+                .getGame("rnbqkbnr/pp2pppp/3p4/2p5/4P3/5N2/PPPPKPPP/RNBQ1B1R b kq - 1 3").getCurrentPosition();
+        assertEquals(expected.getKey(), interpreter.getPosition().getKey());
+
+        interpreter.execute("position fen r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"
+                + " moves e1c1 h3g2 d5e6 g2h1q");
+        expected = new FENParser()
+                .getGame("r3k2r/p1ppqpb1/bn2Pnp1/4N3/1p2P3/2N2Q2/PPPBBP1P/2KR3q w kq - 0 3").getCurrentPosition();
+        assertEquals(expected.getKey(), interpreter.getPosition().getKey());
+    }
+
+    @Test
+    public void stopsOnIllegalMove() {
+        interpreter.execute("position startpos moves e2e4 e2e4 d7d5");
+        assertTrue(output().contains("Illegal move e2e4"));
+        assertFalse(interpreter.getPosition().whiteToMove());
+    }
+
+    @Test
+    public void searchesToDepth() {
+        interpreter.execute("position startpos moves e2e4");
+        interpreter.execute("go depth 4");
+        interpreter.waitForSearch();
+        assertTrue(output().contains("info depth 4 score cp "));
+        String bestMove = output().substring(output().indexOf("bestmove ") + 9).trim();
+        interpreter.execute("position startpos moves e2e4 " + bestMove);
+        assertTrue(interpreter.getPosition().whiteToMove());
+    }
+
+    @Test
+    public void findsMate() {
+        interpreter.execute("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        interpreter.execute("go depth 3");
+        interpreter.waitForSearch();
+        assertTrue(output().contains("score mate 1 "));
+        assertTrue(output().contains("bestmove a1a8"));
+    }
+
+    @Test
+    public void answersWhileSearching() {
+        interpreter.execute("go infinite");
+        long start = System.currentTimeMillis();
+        interpreter.execute("isready");
+        assertTrue(output().contains("readyok"));
+        interpreter.execute("stop");
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertTrue(output().contains("bestmove "));
+    }
+
+    @Test
+    public void stopRightAfterGoIsNotLost() {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 50; i++) {
+            interpreter.execute("go infinite");
+            interpreter.execute("stop");
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(50, output().split("bestmove ", -1).length - 1);
+    }
+
+    @Test
+    public void holdsBestMoveTillStop() throws InterruptedException {
+        interpreter.execute("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        interpreter.execute("go infinite");
+        /* The search finds the mate and ends by itself, well within this. */
+        for (int i = 0; i < 100 && !output().contains("score mate 1 "); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertTrue(output().contains("score mate 1 "));
+        assertFalse(output().contains("bestmove"));
+        interpreter.execute("stop");
+        assertTrue(output().contains("bestmove a1a8"));
+    }
+
+    @Test
+    public void setsOptions() {
+        interpreter.execute("setoption name Threads value 2");
+        interpreter.execute("setoption name Hash value 8");
+        assertEquals(2, EngineSettings.getThreadCount());
+        assertEquals(8, EngineSettings.getTtTableSizeMb());
+        interpreter.execute("setoption name EvalFile value /no/such/file");
+        assertNull(EngineSettings.getNnueFile());
+        interpreter.execute("go depth 3");
+        interpreter.waitForSearch();
+        assertTrue(output().contains("bestmove "));
+    }
+}
@@ -1,11 +1,15 @@
 package com.debabrata.spotchess.logic;
 
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Game;
 import com.debabrata.spotchess.types.Position;
 import com.debabrata.spotchess.types.enums.Colour;
 import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.MoveInitUtil;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import static com.debabrata.spotchess.support.test.SpotTestSupport.*;
@@ -1408,4 +1412,115 @@ public class MoveProcessorTest {
             assertCheckmate(position);
         }
     }
+
+    @Nested
+    class CountLegalMovesTest {
+        private final long[] moveBuffer = new long[300 * 10];
+        private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+        @Test
+        public void countsMatchGeneratedMoves() {
+            /* Checks, pins, pinned en-passant, promotions and castling through attacked squares all show up in these. */
+            String[] fens = {
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                    "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+                    "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+            };
+            FENParser fenParser = new FENParser();
+            for (String fen : fens) {
+                checkCounts(fenParser.getGame(fen).getCurrentPosition(), 0, 3);
+            }
+        }
+
+        private void checkCounts(Position position, int startWritingAt, int depth) {
+            int count = processor.countLegalMoves(position);
+            int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+            if (count != newWritingPosition - startWritingAt) {
+                throw new AssertionError("Counted " + count + " moves, generated "
+                        + (newWritingPosition - startWritingAt) + " in " + new FENParser().getNotation(new Game(position)));
+            }
+            if (depth == 0) {
+                return;
+            }
+            int flags = position.getFlags();
+            for (int i = startWritingAt; i < newWritingPosition; i++) {
+                int taken = position.makeMove(moveBuffer[i]);
+                checkCounts(position, newWritingPosition, depth - 1);
+                position.unmakeMove(moveBuffer[i], taken, flags);
+            }
+        }
+    }
+
+    @Nested
+    class StagedMovesTest {
+        private final long[] moveBuffer = new long[300 * 10];
+        private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+        private final long[] stagedBuffer = new long[1000];
+        private final MoveProcessor staged = new MoveProcessor(stagedBuffer);
+
+        @Test
+        public void stagesMatchGeneratedMoves() {
+            /* Same positions as CountLegalMovesTest. */
+            String[] fens = {
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                    "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+                    "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+            };
+            FENParser fenParser = new FENParser();
+            for (String fen : fens) {
+                checkStages(fenParser.getGame(fen).getCurrentPosition(), 0, 0, 3);
+            }
+        }
+
+        /* Moves from ancestorsStart on are the ancestors', mostly illegal here, for checking isLegal. Pinned pieces, our king
+         * walking into checks and such turn up among them. */
+        private void checkStages(Position position, int ancestorsStart, int startWritingAt, int depth) {
+            int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+            long[] all = Arrays.copyOfRange(moveBuffer, startWritingAt, newWritingPosition);
+
+            staged.analysePosition(position);
+            int capturesEnd = staged.addCaptureMoves(0);
+            int quietsEnd = staged.addQuietMoves(capturesEnd);
+            long[] stagedMoves = Arrays.copyOfRange(stagedBuffer, 0, quietsEnd);
+            Arrays.sort(all);
+            Arrays.sort(stagedMoves);
+            if (!Arrays.equals(all, stagedMoves)) {
+                throw new AssertionError("Staged moves differ from generated ones in "
+                        + new FENParser().getNotation(new Game(position)));
+            }
+            long enemies = position.whiteToMove() ? position.getBlackPieces() : position.getWhitePieces();
+            for (int i = 0; i < quietsEnd; i++) {
+                long move = stagedBuffer[i];
+                boolean noisy = MoveInitUtil.isSpecialMove(move) ? MoveInitUtil.isEnPassant(move)
+                        || MoveInitUtil.isPromotion(move) : (move & enemies) != 0;
+                assert noisy == (i < capturesEnd);
+            }
+            for (int i = ancestorsStart; i < newWritingPosition; i++) {
+                long move = moveBuffer[i];
+                boolean legal = Arrays.binarySearch(all, move) >= 0;
+                if (staged.isLegal(move, 0) != legal) {
+                    throw new AssertionError("isLegal got " + move + " wrong in "
+                            + new FENParser().getNotation(new Game(position)));
+                }
+            }
+
+            if (depth == 0) {
+                return;
+            }
+            int flags = position.getFlags();
+            for (int i = startWritingAt; i < newWritingPosition; i++) {
+                int taken = position.makeMove(moveBuffer[i]);
+                checkStages(position, ancestorsStart, newWritingPosition, depth - 1);
+                position.unmakeMove(moveBuffer[i], taken, flags);
+            }
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.logic.search.SearchLimits;
+import com.debabrata.spotchess.logic.search.Searcher;
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.types.records.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NnueAccumulatorTest {
+    private static final String[] FENS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3"
+    };
+
+    private final FENParser fenParser = new FENParser();
+    private final long[] moveBuffer = new long[300 * 10];
+    private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void tearDown() {
+        EngineSettings.setNnueFile(null);
+        EngineSettings.setNnueVectorised(false);
+    }
+
+    /* Hidden size that isn't a multiple of any vector length, so the tails get exercised too. */
+    static NnueNetwork randomNetwork(int hiddenSize, long seed) {
+        Random random = new Random(seed);
+        short[] inputWeights = new short[NnueNetwork.INPUTS * hiddenSize];
+        short[] hiddenBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(81) - 40);
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            hiddenBiases[i] = (short) random.nextInt(128);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        return new NnueNetwork(hiddenSize, inputWeights, hiddenBiases, outputWeights, random.nextInt(2001) - 1000);
+    }
+
+    @Test
+    public void incrementalIsSameAsRefreshed() {
+        NnueNetwork network = randomNetwork(37, 1);
+        NnueAccumulator incremental = new NnueAccumulator(network, 8, false);
+        NnueAccumulator refreshed = new NnueAccumulator(network, 0, false);
+        for (String fen : FENS) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            incremental.reset(position);
+            check(position, incremental, refreshed, 0, 3);
+        }
+    }
+
+    private void check(Position position, NnueAccumulator incremental, NnueAccumulator refreshed, int startWritingAt,
+                       int depth) {
+        refreshed.reset(position);
+        for (int side = 0; side < 2; side++) {
+            assertArrayEquals(refreshed.getAccumulator(side), incremental.getAccumulator(side));
+        }
+        assertEquals(refreshed.evaluate(position), incremental.evaluate(position));
+        if (depth == 0) {
+            return;
+        }
+        int flags = position.getFlags();
+        int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+        for (int i = startWritingAt; i < newWritingPosition; i++) {
+            int taken = position.makeMove(moveBuffer[i]);
+            incremental.push(position);
+            check(position, incremental, refreshed, newWritingPosition, depth - 1);
+            position.unmakeMove(moveBuffer[i], taken, flags);
+            incremental.pop();
+        }
+    }
+
+    @Test
+    public void sidesSeeMirroredPositionsAlike() {
+        NnueAccumulator accumulator = new NnueAccumulator(randomNetwork(16, 2), 0, false);
+        Position position = fenParser.getGame("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3")
+                .getCurrentPosition();
+        Position mirrored = fenParser.getGame("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/2N5/PPPP1PPP/R1BQKBNR b KQkq - 2 3")
+                .getCurrentPosition();
+        accumulator.reset(position);
+        int score = accumulator.evaluate(position);
+        short[] white = accumulator.getAccumulator(0).clone();
+        accumulator.reset(mirrored);
+        assertArrayEquals(white, accumulator.getAccumulator(1));
+        assertEquals(score, accumulator.evaluate(mirrored));
+    }
+
+    @Test
+    public void vectorIsSameAsScalar() {
+        NnueOps vector = NnueOps.get(true);
+        if (vector instanceof ScalarNnueOps) {
+            return; /* Run without the incubator module, nothing to compare. */
+        }
+        NnueOps scalar = NnueOps.get(false);
+        Random random = new Random(3);
+        for (int size : new int[] { 1, 16, 37, 256 }) {
+            short[] weights = new short[4 * size];
+            short[] ours = new short[size];
+            short[] theirs = new short[size];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = (short) (random.nextInt(401) - 200);
+            }
+            for (int i = 0; i < size; i++) {
+                ours[i] = (short) (random.nextInt(601) - 200);
+                theirs[i] = (short) (random.nextInt(601) - 200);
+            }
+            assertEquals(scalar.output(ours, theirs, weights), vector.output(ours, theirs, weights));
+            short[] scalarSum = ours.clone();
+            short[] vectorSum = ours.clone();
+            scalar.add(scalarSum, weights, size);
+            vector.add(vectorSum, weights, size);
+            scalar.subtract(scalarSum, weights, 3 * size);
+            vector.subtract(vectorSum, weights, 3 * size);
+            assertArrayEquals(scalarSum, vectorSum);
+        }
+    }
+
+    @Test
+    public void writtenNetworkLoadsBack() throws IOException {
+        NnueNetwork network = randomNetwork(8, 4);
+        Path file = directory.resolve("random.nnue");
+        network.write(file);
+        NnueNetwork loaded = NnueNetwork.load(file);
+        assertEquals(network.hiddenSize, loaded.hiddenSize);
+        assertArrayEquals(network.inputWeights, loaded.inputWeights);
+        assertArrayEquals(network.hiddenBiases, loaded.hiddenBiases);
+        assertArrayEquals(network.outputWeights, loaded.outputWeights);
+        assertEquals(network.outputBias, loaded.outputBias);
+
+        Path truncated = directory.resolve("truncated.nnue");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), 100));
+        assertThrows(IOException.class, () -> NnueNetwork.load(truncated));
+    }
+
+    @Test
+    public void searchesWithConfiguredNetwork() throws IOException {
+        Path file = directory.resolve("search.nnue");
+        randomNetwork(16, 5).write(file);
+        EngineSettings.setNnueFile(file.toString());
+        EngineSettings.setNnueVectorised(true);
+        Searcher searcher = new Searcher();
+        Position position = new Position(GameType.STANDARD);
+        SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(4).build());
+        assertNotEquals(0, result.bestMove());
+    }
+}
@@ -0,0 +1,96 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static com.debabrata.spotchess.logic.search.Evaluator.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EvaluatorTest {
+    FENParser fenParser = new FENParser();
+
+    @Test
+    public void symmetricalPositionIsEven() {
+        assertEquals(0, new Evaluator().evaluate(new Position(GameType.STANDARD)));
+        Position position = fenParser.getGame("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3")
+                .getCurrentPosition();
+        Position mirrored = fenParser.getGame("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/2N5/PPPP1PPP/R1BQKBNR b KQkq - 2 3")
+                .getCurrentPosition();
+        assertEquals(new Evaluator().evaluate(position), new Evaluator().evaluate(mirrored));
+    }
+
+    @Nested
+    class PawnStructureTest {
+        @Test
+        public void passedAndIsolated() {
+            pawns("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1",
+                    ISOLATED_MIDGAME + PASSED_MIDGAME[4], ISOLATED_ENDGAME + PASSED_ENDGAME[4], 1L << 36);
+        }
+
+        @Test
+        public void doubled() {
+            /* Only the front one is passed. */
+            pawns("4k3/8/8/8/3P4/3P4/8/4K3 w - - 0 1",
+                    2 * ISOLATED_MIDGAME + DOUBLED_MIDGAME + PASSED_MIDGAME[3],
+                    2 * ISOLATED_ENDGAME + DOUBLED_ENDGAME + PASSED_ENDGAME[3], 1L << 28);
+        }
+
+        @Test
+        public void backwardAndPassedForBoth() {
+            /* d3 can't be defended on d4 which c5 attacks. c5 has b6 behind it, so it isn't backward. */
+            pawns("4k3/8/1p6/2p5/4P3/3P4/8/4K3 w - - 0 1",
+                    BACKWARD_MIDGAME + PASSED_MIDGAME[3] - PASSED_MIDGAME[2],
+                    BACKWARD_ENDGAME + PASSED_ENDGAME[3] - PASSED_ENDGAME[2], 1L << 27 | 1L << 46);
+        }
+
+        private void pawns(String fen, int midgame, int endgame, long passed) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            Evaluator evaluator = new Evaluator();
+            evaluator.evaluate(position);
+            PawnHashTable table = evaluator.getPawnTable();
+            int index = table.probe(position.getPawnKey());
+            assertTrue(index >= 0);
+            assertEquals(midgame, table.getMidgame(index));
+            assertEquals(endgame, table.getEndgame(index));
+            assertEquals(passed, table.getPassedPawns(index));
+        }
+    }
+
+    @Nested
+    class PawnHashTableTest {
+        @Test
+        public void cachedIsSameAsFresh() {
+            Position position = fenParser.getGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -")
+                    .getCurrentPosition();
+            Evaluator evaluator = new Evaluator();
+            int score = evaluator.evaluate(position);
+            assertEquals(score, evaluator.evaluate(position));
+            assertEquals(0.5, evaluator.getPawnTable().getHitRate());
+            assertEquals(score, new Evaluator().evaluate(position));
+        }
+
+        @Test
+        public void storesNegativeScores() {
+            PawnHashTable table = new PawnHashTable(1);
+            int index = table.store(12345, -300, -7, 1L << 63);
+            assertEquals(index, table.probe(12345));
+            assertEquals(-300, table.getMidgame(index));
+            assertEquals(-7, table.getEndgame(index));
+            assertEquals(1L << 63, table.getPassedPawns(index));
+            assertEquals(-1, table.probe(12345 + table.getEntryCount()));
+        }
+
+        @Test
+        public void mostProbesHitInASearch() {
+            Position position = fenParser.getGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -")
+                    .getCurrentPosition();
+            Searcher searcher = new Searcher();
+            searcher.search(position, new SearchLimits.Builder().depth(5).build());
+            assertTrue(searcher.getEvaluator().getPawnTable().getHitRate() > 0.95);
+        }
+    }
+}
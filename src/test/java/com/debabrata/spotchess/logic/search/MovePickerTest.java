@@ -0,0 +1,91 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MovePickerTest {
+    private final long[] moveBuffer = new long[1000];
+    private final MovePicker picker = new MovePicker(moveBuffer, new int[moveBuffer.length]);
+    FENParser fenParser = new FENParser();
+    SANParser sanParser = new SANParser();
+
+    @Test
+    public void everyMoveOnce() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1"
+        };
+        Random random = new Random(7);
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            List<Long> legal = MoveProcessor.getMovesInPosition(position);
+            List<Long> candidates = new ArrayList<>(legal);
+            candidates.add(0L);
+            candidates.add(sanParser.getMove(new Position(position), "O-O")); /* Not always legal. */
+            for (int i = 0; i < 50; i++) {
+                long hash = candidates.get(random.nextInt(candidates.size()));
+                long killer1 = candidates.get(random.nextInt(candidates.size()));
+                long killer2 = candidates.get(random.nextInt(candidates.size()));
+                picker.init(position, 0, hash, killer1, killer2);
+                List<Long> picked = new ArrayList<>();
+                for (long move = picker.next(); move != 0; move = picker.next()) {
+                    picked.add(move);
+                }
+                assertEquals(legal.size(), picked.size());
+                assertEquals(legal.size(), picked.stream().distinct().count());
+                assert picked.containsAll(legal);
+                if (legal.contains(hash)) {
+                    assertEquals(hash, picked.get(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void capturesByMostValuableVictim() {
+        /* The rook can take the queen, the pawn can take the knight or a pawn. */
+        Position position = fenParser.getGame("4k3/8/R2q4/2n1p3/3P4/8/8/4K3 w - - 0 1").getCurrentPosition();
+        picker.init(position, 0, 0, 0, 0);
+        assertEquals(sanParser.getMove(position, "Rxd6"), picker.next());
+        assertEquals(sanParser.getMove(position, "dxc5"), picker.next());
+        assertEquals(sanParser.getMove(position, "dxe5"), picker.next());
+        assert picker.isCurrentQuiet() == false;
+        long quiet = picker.next();
+        assert picker.isCurrentQuiet();
+        assert quiet != 0;
+    }
+
+    @Test
+    public void quiescenceOnlyCapturesUnlessInCheck() {
+        Position position = fenParser.getGame("4k3/8/R2q4/2n1p3/3P4/8/8/4K3 w - - 0 1").getCurrentPosition();
+        picker.initQuiescence(position, 0);
+        List<Long> picked = new ArrayList<>();
+        for (long move = picker.next(); move != 0; move = picker.next()) {
+            picked.add(move);
+        }
+        assertEquals(List.of(sanParser.getMove(position, "Rxd6"), sanParser.getMove(position, "dxc5"),
+                sanParser.getMove(position, "dxe5")), picked);
+
+        /* In check every evasion counts, quiet or not. */
+        position = fenParser.getGame("4k3/8/8/8/8/8/3q4/R3K3 w - - 0 1").getCurrentPosition();
+        picker.initQuiescence(position, 0);
+        picked.clear();
+        for (long move = picker.next(); move != 0; move = picker.next()) {
+            picked.add(move);
+        }
+        List<Long> legal = MoveProcessor.getMovesInPosition(position);
+        assertEquals(legal.size(), picked.size());
+        assert picked.containsAll(legal);
+    }
+}
@@ -0,0 +1,99 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.types.records.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Same searches as {@link SearcherTest} on several threads. The results have to match, only the node counts may not.
+ */
+public class ParallelSearcherTest {
+    FENParser fenParser = new FENParser();
+    SANParser sanParser = new SANParser();
+
+    @Test
+    public void findsMates() {
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(1))) {
+            Position position = fenParser.getGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1").getCurrentPosition();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(3).build());
+            assertEquals(sanParser.getMove(position, "Ra8#"), result.bestMove());
+            assertEquals(Searcher.MATE - 1, result.score());
+
+            position = fenParser.getGame("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1").getCurrentPosition();
+            result = searcher.search(position, new SearchLimits.Builder().depth(5).build());
+            assertEquals(Searcher.MATE - 3, result.score());
+        }
+    }
+
+    @Test
+    public void takesHangingQueen() {
+        try (ParallelSearcher searcher = new ParallelSearcher(3, new TranspositionTable(1))) {
+            Position position = fenParser.getGame("4k3/8/8/3q4/8/8/8/3QK3 w - - 0 1").getCurrentPosition();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(4).build());
+            assertEquals(sanParser.getMove(position, "Qxd5"), result.bestMove());
+        }
+    }
+
+    @Test
+    public void noMovesAtTheRoot() {
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(1))) {
+            Position mated = fenParser.getGame("8/8/8/8/8/2k5/1q6/K7 w - - 0 1").getCurrentPosition();
+            SearchResult result = searcher.search(mated, new SearchLimits.Builder().depth(3).build());
+            assertEquals(0, result.bestMove());
+            assertEquals(-Searcher.MATE, result.score());
+        }
+    }
+
+    @Test
+    public void stopsOnMoveTimeAndReportsAllNodes() {
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(1))) {
+            Position position = fenParser.getGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -")
+                    .getCurrentPosition();
+            List<SearchResult> iterations = new ArrayList<>();
+            searcher.setListener(iterations::add);
+            long start = System.currentTimeMillis();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().moveTime(200).build());
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertTrue(MoveProcessor.getMovesInPosition(position).contains(result.bestMove()));
+            assertTrue(!iterations.isEmpty());
+            assertTrue(result.nodes() >= iterations.get(iterations.size() - 1).nodes());
+        }
+    }
+
+    @Test
+    public void keepsStopThatComesBeforeTheSearch() {
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(1))) {
+            Position position = new Position(GameType.STANDARD);
+            searcher.prepare();
+            searcher.stop();
+            /* No limits at all, it would go on till MAX_PLY if the stop got lost. */
+            long start = System.currentTimeMillis();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().build());
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertTrue(MoveProcessor.getMovesInPosition(position).contains(result.bestMove()));
+
+            /* The next search isn't stopped by it. */
+            result = searcher.search(position, new SearchLimits.Builder().depth(3).build());
+            assertEquals(3, result.depth());
+        }
+    }
+
+    @Test
+    public void singleThread() {
+        try (ParallelSearcher searcher = new ParallelSearcher(1, new TranspositionTable(1))) {
+            Position position = fenParser.getGame("4k3/8/8/3q4/8/8/8/3QK3 w - - 0 1").getCurrentPosition();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(4).build());
+            assertEquals(sanParser.getMove(position, "Qxd5"), result.bestMove());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.constants.EvaluationConstants;
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.types.records.SearchResult;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearcherTest {
+    FENParser fenParser = new FENParser();
+    SANParser sanParser = new SANParser();
+
+    @Nested
+    class TacticsTest {
+        @Test
+        public void findsMateInOne() {
+            Position position = fenParser.getGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1").getCurrentPosition();
+            SearchResult result = new Searcher().search(position, new SearchLimits.Builder().depth(3).build());
+            assertEquals(sanParser.getMove(position, "Ra8#"), result.bestMove());
+            assertEquals(Searcher.MATE - 1, result.score());
+        }
+
+        @Test
+        public void findsMateInTwo() {
+            Position position = fenParser.getGame("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1").getCurrentPosition();
+            SearchResult result = new Searcher().search(position, new SearchLimits.Builder().depth(5).build());
+            assertEquals(Searcher.MATE - 3, result.score());
+            assertEquals(3, result.principalVariation().length);
+        }
+
+        @Test
+        public void findsMateInTwoWithTranspositionTable() {
+            Position position = fenParser.getGame("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1").getCurrentPosition();
+            Searcher searcher = new Searcher(new TranspositionTable(1));
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(6).build());
+            assertEquals(Searcher.MATE - 3, result.score());
+            /* Again, with the table full of the last search. */
+            result = searcher.search(position, new SearchLimits.Builder().depth(6).build());
+            assertEquals(Searcher.MATE - 3, result.score());
+        }
+
+        @Test
+        public void takesHangingQueen() {
+            Position position = fenParser.getGame("4k3/8/8/3q4/8/8/8/3QK3 w - - 0 1").getCurrentPosition();
+            SearchResult result = new Searcher().search(position, new SearchLimits.Builder().depth(4).build());
+            assertEquals(sanParser.getMove(position, "Qxd5"), result.bestMove());
+            /* A queen up, give or take where the pieces stand. */
+            assertTrue(result.score() >= EvaluationConstants.QUEEN_VALUE - EvaluationConstants.PAWN_VALUE);
+        }
+
+        @Test
+        public void seesRecapturesPastTheHorizon() {
+            /* Qxd5 wins a pawn at depth 1, but exd5 takes the queen back. */
+            Position position = fenParser.getGame("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1").getCurrentPosition();
+            SearchResult result = new Searcher().search(position, new SearchLimits.Builder().depth(1).build());
+            assert result.bestMove() != sanParser.getMove(position, "Qxd5");
+            assertTrue(result.score() > EvaluationConstants.QUEEN_VALUE - 3 * EvaluationConstants.PAWN_VALUE);
+        }
+
+        @Test
+        public void noMovesAtTheRoot() {
+            Position mated = fenParser.getGame("8/8/8/8/8/2k5/1q6/K7 w - - 0 1").getCurrentPosition();
+            SearchResult result = new Searcher().search(mated, new SearchLimits.Builder().depth(3).build());
+            assertEquals(0, result.bestMove());
+            assertEquals(-Searcher.MATE, result.score());
+
+            Position stalemate = fenParser.getGame("k7/8/1Q6/8/8/8/8/7K b - - 0 1").getCurrentPosition();
+            result = new Searcher().search(stalemate, new SearchLimits.Builder().depth(3).build());
+            assertEquals(0, result.bestMove());
+            assertEquals(Searcher.DRAW, result.score());
+        }
+    }
+
+    @Nested
+    class LimitsTest {
+        @Test
+        public void reportsEveryIterationUpToTheDepth() {
+            Position position = new Position(GameType.STANDARD);
+            List<Integer> depths = new ArrayList<>();
+            Searcher searcher = new Searcher();
+            searcher.setListener(result -> depths.add(result.depth()));
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().depth(4).build());
+            assertEquals(List.of(1, 2, 3, 4), depths);
+            assertEquals(4, result.depth());
+            assertTrue(MoveProcessor.getMovesInPosition(position).contains(result.bestMove()));
+            assertEquals(new Position(GameType.STANDARD), position); /* Searched on a copy. */
+        }
+
+        @Test
+        public void stopsOnMoveTime() {
+            Position position = fenParser.getGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -")
+                    .getCurrentPosition();
+            long start = System.currentTimeMillis();
+            SearchResult result = new Searcher().search(position, new SearchLimits.Builder().moveTime(200).build());
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertTrue(MoveProcessor.getMovesInPosition(position).contains(result.bestMove()));
+        }
+
+        @Test
+        public void stopsOnNodeCount() {
+            Position position = new Position(GameType.STANDARD);
+            Searcher searcher = new Searcher();
+            SearchResult result = searcher.search(position, new SearchLimits.Builder().nodes(10_000).build());
+            assertTrue(searcher.getNodes() < 10_000 + 2048);
+            assertTrue(MoveProcessor.getMovesInPosition(position).contains(result.bestMove()));
+        }
+    }
+}
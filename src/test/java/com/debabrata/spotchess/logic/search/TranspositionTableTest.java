@@ -0,0 +1,174 @@
+package com.debabrata.spotchess.logic.search;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.utils.MoveInitUtil;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static com.debabrata.spotchess.logic.search.TranspositionTable.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TranspositionTableTest {
+    FENParser fenParser = new FENParser();
+
+    @Nested
+    class EntryTest {
+        @Test
+        public void storeAndProbe() {
+            TranspositionTable table = new TranspositionTable(1);
+            long move = MoveInitUtil.newMove(1L << 12, 1L << 28);
+            table.store(0x1234_5678_9ABC_DEF0L, move, -1234, 7, LOWER_BOUND);
+            long data = table.probe(0x1234_5678_9ABC_DEF0L);
+            assertEquals(move, getMove(data));
+            assertEquals(-1234, getScore(data));
+            assertEquals(7, getDepth(data));
+            assertEquals(LOWER_BOUND, getBound(data));
+            assertEquals(0, table.probe(0x1234_5678_9ABC_DEF1L));
+        }
+
+        @Test
+        public void keepsMoveWhenStoredWithout() {
+            TranspositionTable table = new TranspositionTable(1);
+            long move = MoveInitUtil.newMove(1L << 12, 1L << 28);
+            table.store(42, move, 10, 3, EXACT);
+            table.store(42, 0, -5, 4, UPPER_BOUND);
+            long data = table.probe(42);
+            assertEquals(move, getMove(data));
+            assertEquals(-5, getScore(data));
+            assertEquals(4, getDepth(data));
+        }
+
+        @Test
+        public void storesEveryKindOfMove() {
+            String[] fens = {
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq -",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 b kq - 0 1",
+                    "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                    "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 2"
+            };
+            TranspositionTable table = new TranspositionTable(1);
+            for (String fen : fens) {
+                Position position = fenParser.getGame(fen).getCurrentPosition();
+                for (long move : MoveProcessor.getMovesInPosition(position)) {
+                    table.store(move, move, -31_000, 120, UPPER_BOUND);
+                    long data = table.probe(move);
+                    assertEquals(move, getMove(data));
+                    assertEquals(-31_000, getScore(data));
+                    assertEquals(120, getDepth(data));
+                    assertEquals(UPPER_BOUND, getBound(data));
+                }
+            }
+        }
+
+        @Test
+        public void perftCounts() {
+            TranspositionTable table = new TranspositionTable(1);
+            table.storeCount(99, 6, 119_060_324L);
+            assertEquals(119_060_324L, table.probeCount(99, 6));
+            assertEquals(-1, table.probeCount(99, 5));
+            assertEquals(-1, table.probeCount(98, 6));
+        }
+    }
+
+    @Nested
+    class ReplacementTest {
+        /* Keys that land in the same bucket of a 1 MB table. */
+        private long key(int i) {
+            return (long) i << 40;
+        }
+
+        @Test
+        public void deepEntriesStay() {
+            TranspositionTable table = new TranspositionTable(1);
+            table.store(key(1), 0, 0, 10, EXACT);
+            table.store(key(2), 0, 0, 9, EXACT);
+            table.store(key(3), 0, 0, 8, EXACT);
+            table.store(key(4), 0, 0, 1, EXACT);
+            table.store(key(5), 0, 0, 2, EXACT);
+            assertEquals(0, table.probe(key(4)));
+            assertTrue(table.probe(key(1)) != 0 && table.probe(key(2)) != 0 && table.probe(key(3)) != 0);
+            assertTrue(table.probe(key(5)) != 0);
+        }
+
+        @Test
+        public void oldEntriesGiveWay() {
+            TranspositionTable table = new TranspositionTable(1);
+            for (int i = 1; i <= 4; i++) {
+                table.store(key(i), 0, 0, 10, EXACT);
+            }
+            table.newSearch();
+            table.newSearch();
+            table.store(key(5), 0, 0, 1, EXACT);
+            assertTrue(table.probe(key(5)) != 0);
+        }
+
+        @Test
+        public void clearAndResize() {
+            TranspositionTable table = new TranspositionTable(1);
+            table.store(key(1), 0, 0, 10, EXACT);
+            table.clear();
+            assertEquals(0, table.probe(key(1)));
+            table.store(key(1), 0, 0, 10, EXACT);
+            table.resize(2);
+            assertEquals(2, table.getSizeMb());
+            assertEquals(0, table.probe(key(1)));
+        }
+    }
+
+    @Nested
+    class CountersTest {
+        @Test
+        public void hitAndFillRates() {
+            TranspositionTable table = new TranspositionTable(1);
+            assertEquals(0, table.getFillPermille());
+            for (int i = 0; i < 4000; i++) {
+                table.store((i >> 2) | (long) (i & 3) << 40, 0, 0, 1, EXACT); /* Four to a bucket. */
+            }
+            assertEquals(1000, table.getFillPermille());
+            table.newSearch();
+            assertEquals(0, table.getFillPermille());
+
+            table.resetCounters();
+            table.probe(1);
+            table.probe(-1);
+            assertEquals(0.5, table.getHitRate());
+        }
+    }
+
+    @Nested
+    class ConcurrencyTest {
+        /* Writers hammer a small table with entries whose data is derived from the key. A torn entry would show up as
+         * a hit whose data doesn't match its key. */
+        @Test
+        public void noTornReads() throws InterruptedException {
+            TranspositionTable table = new TranspositionTable(1);
+            Thread[] threads = new Thread[4];
+            boolean[] failed = new boolean[threads.length];
+            for (int t = 0; t < threads.length; t++) {
+                int id = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 200_000; i++) {
+                        long key = ((long) (i * 31 + id) & 0xFFFF) * 0x9E3779B97F4A7C15L;
+                        table.storeCount(key, 5, key >>> 20);
+                        long count = table.probeCount(key ^ 0x40, 5);
+                        if (count >= 0 && count != (key ^ 0x40) >>> 20) {
+                            failed[id] = true;
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (boolean fail : failed) {
+                assertTrue(!fail);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.debabrata.spotchess.support;
+
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.perft.Perft;
+import com.debabrata.spotchess.support.perft.PerftHashTable.ReplacementScheme;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HashedPerftTest {
+    FENParser fenParser = new FENParser();
+
+    @BeforeEach
+    public void setUp() {
+        EngineSettings.setTtTableSizeMb(1); /* Small enough that entries get replaced. */
+    }
+
+    @AfterEach
+    public void tearDown() {
+        EngineSettings.setTtTableSizeMb(0);
+        EngineSettings.setThreadCount(1);
+        Perft.setHashReplacementScheme(ReplacementScheme.BUCKETED);
+    }
+
+    @Test
+    public void allReplacementSchemes() {
+        for (ReplacementScheme scheme : ReplacementScheme.values()) {
+            Perft.setHashReplacementScheme(scheme);
+            standardPositions();
+        }
+    }
+
+    @Test
+    public void sharedAcrossThreads() {
+        EngineSettings.setThreadCount(4);
+        standardPositions();
+    }
+
+    private void standardPositions() {
+        perft("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 5, 4865609L);
+        perft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", 4, 4085603L);
+        perft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", 6, 11030083L);
+        perft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 5, 15833292L);
+        perft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487L);
+        perft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594L);
+    }
+
+    private void perft(String fen, int depth, long expectedResult) {
+        assertEquals(expectedResult, Perft.perftRunner(fenParser.getGame(fen).getCurrentPosition(), depth, false));
+    }
+}
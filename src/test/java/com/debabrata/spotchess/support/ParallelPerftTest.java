@@ -0,0 +1,75 @@
+package com.debabrata.spotchess.support;
+
+import com.debabrata.spotchess.settings.EngineSettings;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.perft.Perft;
+import com.debabrata.spotchess.types.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Smaller depths of the {@link PerftTest} positions, run on multiple threads. These need to match the single threaded
+ * counts exactly.
+ */
+public class ParallelPerftTest {
+    FENParser fenParser = new FENParser();
+
+    @BeforeEach
+    public void setUp() {
+        EngineSettings.setThreadCount(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        EngineSettings.setThreadCount(1);
+    }
+
+    @Test
+    public void standardPositions() {
+        perft("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 5, 4865609L);
+        perft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -", 4, 4085603L);
+        perft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -", 6, 11030083L);
+        perft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 5, 15833292L);
+        perft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487L);
+        perft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594L);
+    }
+
+    @Test
+    public void narrowRoots() {
+        /* Mated at the root, nothing to split. */
+        perft("8/8/8/8/8/2k5/1q6/K7 w - - 0 1", 3, 0L);
+        /* Only two legal moves, the work has to be split below the root. */
+        String fen = "k7/8/8/8/8/8/r7/6K1 w - - 0 1";
+        perft(fen, 7, singleThreaded(fen, 7));
+        fen = "r3k2r/8/8/8/8/8/q7/4K3 w kq - 0 1";
+        perft(fen, 5, singleThreaded(fen, 5));
+        perft("3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", 6, 1134888L);
+    }
+
+    @Test
+    public void matchesSingleThreaded() {
+        String fen = "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1";
+        perft(fen, 4, singleThreaded(fen, 4));
+    }
+
+    private long singleThreaded(String fen, int depth) {
+        int threadCount = EngineSettings.getThreadCount();
+        EngineSettings.setThreadCount(1);
+        try {
+            return Perft.perftRunner(position(fen), depth, false);
+        } finally {
+            EngineSettings.setThreadCount(threadCount);
+        }
+    }
+
+    private void perft(String fen, int depth, long expectedResult) {
+        assertEquals(expectedResult, Perft.perftRunner(position(fen), depth, false));
+    }
+
+    private Position position(String fen) {
+        return fenParser.getGame(fen).getCurrentPosition();
+    }
+}
@@ -0,0 +1,100 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.assertAllocatesNothing;
+import static com.debabrata.spotchess.support.test.SpotTestSupport.randomGamePositions;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FENParserTest {
+    private final FENParser parser = new FENParser();
+
+    @Test
+    public void positionsAlongRandomGamesRoundTrip() {
+        Position[] positions = randomGamePositions(6, 2000);
+        Position read = new Position(GameType.STANDARD);
+        StringBuilder fen = new StringBuilder();
+        for (int i = 0; i < positions.length; i++) {
+            Position position = positions[i];
+            fen.setLength(0);
+            parser.appendNotation(position, 1 + i / 2, fen);
+            assertEquals(1 + i / 2, parser.setPosition(read, fen, 0, fen.length()), fen.toString());
+            assertEquals(position, read, fen.toString());
+            assertEquals(position.getPawnKey(), read.getPawnKey());
+            assertEquals(position.getMidgameScore(), read.getMidgameScore());
+            assertTrue(read.validate());
+            assertEquals(fen.toString(), parser.getNotation(parser.getGame(fen.toString())));
+        }
+    }
+
+    @Test
+    public void readsOutOfBytes() {
+        String file = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1\n"
+                + "r3k2r/8/8/8/8/8/8/R3K2R w Kq - 12 40 bm O-O; id \"castles\";\n";
+        ByteBuffer bytes = ByteBuffer.wrap(file.getBytes(StandardCharsets.US_ASCII));
+        Position position = new Position(GameType.STANDARD);
+        int lineEnd = file.indexOf('\n');
+        assertEquals(1, parser.setPosition(position, bytes, 0, lineEnd));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1",
+                parser.appendNotation(position, 1, new StringBuilder()).toString()); /* No pawn to take it. */
+        assertEquals(40, parser.setPosition(position, bytes, lineEnd + 1, file.length()));
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w Kq - 12 40",
+                parser.appendNotation(position, 40, new StringBuilder()).toString());
+        assertEquals(0, bytes.position());
+    }
+
+    @Test
+    public void readsWhatItCan() {
+        /* EPD, no counters. */
+        Position position = parser.getPosition("  4k3/8/8/3pP3/8/8/8/4K3\tw - d6 bm exd6; ", 0, 41);
+        assertNotNull(position);
+        assertTrue(position.enPassantAvailable());
+        assertEquals("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", parser.getNotation(new Game(position)));
+
+        String[] unreadable = {
+                "",
+                "4k3/8/8/8/8/8/8/4K3",
+                "4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+                "4k3/8/8/8/8/8/8/4K4 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4K2 w - - 0 1",
+                "4k3/8/8/8/8/8/4K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4K3/8 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4X3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/8 w - - 0 1",
+                "4k3/8/8/8/8/8/8/P3K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4K3 w KX - 0 1",
+                "4k3/8/8/8/8/8/8/4K3 w - e4 0 1",
+                "4k3/8/8/8/8/8/8/4K3 w - e",
+                "4k3/8/8/8/8/8/8/4K3 w -- - 0 1"
+        };
+        Position unchanged = new Position(GameType.STANDARD);
+        for (String fen : unreadable) {
+            assertNull(parser.getGame(fen), fen);
+            assertFalse(parser.confirmFormat(fen), fen);
+            assertEquals(0, parser.setPosition(unchanged, fen, 0, fen.length()), fen);
+            assertEquals(new Position(GameType.STANDARD), unchanged, fen);
+        }
+        assertNull(parser.getGame(null));
+    }
+
+    @Test
+    public void doesNotAllocate() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ByteBuffer bytes = ByteBuffer.wrap(fen.getBytes(StandardCharsets.US_ASCII));
+        Position position = new Position(GameType.STANDARD);
+        StringBuilder written = new StringBuilder(100);
+        assertAllocatesNothing(() -> {
+            parser.setPosition(position, fen, 0, fen.length());
+            parser.setPosition(position, bytes, 0, fen.length());
+            written.setLength(0);
+            parser.appendNotation(position, 1, written);
+        });
+        assertEquals(fen, written.toString());
+    }
+}
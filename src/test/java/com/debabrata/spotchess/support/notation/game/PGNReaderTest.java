@@ -0,0 +1,160 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Move;
+import com.debabrata.spotchess.types.Position;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.randomGame;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PGNReaderTest {
+    private static final String OPERA_GAME = """
+            [Event "Paris"]
+            [Site "Paris FRA"]
+            [Date "1858.??.??"]
+            [Round "?"]
+            [White "Paul Morphy"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+            [Annotator "Someone \\"quoted\\""]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move
+            already.} 4. dxe5 Bxf3 (4... Nc6?! 5. Bb5) 5. Qxf3 dxe5 6. Bc4 Nf6 $4 7. Qb3 Qe7
+            % An escaped line, 8. a3
+            8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11.Bxb5+ Nbd7 12. O-O-O Rd8 ; to the end of the line 13. h3
+            13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0
+            """;
+
+    private final FENParser fenParser = new FENParser();
+
+    @Test
+    public void readsAnnotatedGame() throws IOException {
+        PGNReader reader = new PGNReader(new StringReader(OPERA_GAME + "\n" + OPERA_GAME));
+        for (int i = 0; i < 2; i++) {
+            Game game = reader.next();
+            assertNotNull(game);
+            assertEquals(33, game.getMoveHistory().size());
+            assertEquals("Paul Morphy", game.getTag("White"));
+            assertEquals("1-0", game.getTag("Result"));
+            assertEquals("Someone \"quoted\"", game.getTag("Annotator"));
+            assertEquals("This is a weak move already.", game.getMoveHistory().get(5).getComments());
+            assertEquals(fenParser.getGame("1n1Rkb1r/p4ppp/4q3/4p1B1/4P3/8/PPP2PPP/2K5 b k - 1 17")
+                    .getCurrentPosition().getKey(), game.getCurrentPosition().getKey());
+            assertEquals(17, game.getMoveCount());
+        }
+        assertNull(reader.next());
+        assertEquals(0, reader.getSkippedCount());
+    }
+
+    @Test
+    public void skipsGamesItCannotRead() throws IOException {
+        String pgn = "[Event \"Bad\"]\n\n1. e4 e5 2. Ke3 Nc6 1-0\n\n"
+                + "[Event \"Bad FEN\"]\n[FEN \"not a fen\"]\n\n1. e4 *\n\n"
+                + "[Event \"Good\"]\n\n1. d4 d5 *\n";
+        PGNReader reader = new PGNReader(Channels.newChannel(
+                new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))));
+        Game game = reader.next();
+        assertEquals("Good", game.getTag("Event"));
+        assertEquals(2, game.getMoveHistory().size());
+        assertNull(reader.next());
+        assertEquals(2, reader.getSkippedCount());
+    }
+
+    @Test
+    public void gameWithoutResultEndsAtNextTags() throws IOException {
+        PGNReader reader = new PGNReader(new StringReader("[Event \"A\"]\n1. e4\n[Event \"B\"]\n1. d4 d5\n"));
+        assertEquals(1, reader.next().getMoveHistory().size());
+        Game game = reader.next();
+        assertEquals("B", game.getTag("Event"));
+        assertEquals(2, game.getMoveHistory().size());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void pinnedPieceNeedsNoDisambiguation() {
+        Position position = fenParser.getGame("4k3/8/8/8/1b6/8/3N4/R3K1N1 w - - 0 1").getCurrentPosition();
+        SANParser sanParser = new SANParser();
+        long move = sanParser.getMove(position, "Nf3");
+        assertEquals((1L << 1) | (1L << 18), move);
+        assertEquals("Nf3", sanParser.getNotation(position, move));
+    }
+
+    @Test
+    public void startsFromFen() throws IOException {
+        Game game = new PGNParser().getGame(
+                "[FEN \"r3k2r/1P1p4/8/4P3/8/8/8/R3K2R b KQkq - 0 30\"]\n\n30... d5 31. exd6 O-O 32. bxa8=N Rxa8 *");
+        assertEquals(5, game.getMoveHistory().size());
+        assertEquals(30, game.getFirstMoveNumber());
+        assertEquals(33, game.getMoveCount());
+        String written = new PGNParser().getNotation(game);
+        assertTrue(written.contains("30... d5 31. exd6 O-O 32. bxa8=N Rxa8 *"), written);
+        assertEquals(written, new PGNParser().getNotation(new PGNParser().getGame(written)));
+    }
+
+    @Test
+    public void writtenGamesReadBack() throws IOException {
+        List<Game> games = randomGames(50, new Random(1));
+        StringWriter written = new StringWriter();
+        PGNWriter writer = new PGNWriter(written);
+        for (Game game : games) {
+            writer.write(game);
+        }
+        writer.flush();
+        for (String line : written.toString().split("\n")) {
+            assertTrue(line.length() < 80, line);
+        }
+
+        PGNReader reader = new PGNReader(new StringReader(written.toString()));
+        StringWriter rewritten = new StringWriter();
+        writer = new PGNWriter(rewritten);
+        for (Game game : games) {
+            Game read = reader.next();
+            for (String tag : game.getTags().keySet()) {
+                assertEquals(game.getTag(tag), read.getTag(tag));
+            }
+            List<Move> moves = game.getMoveHistory();
+            List<Move> readMoves = read.getMoveHistory();
+            assertEquals(moves.size(), readMoves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                assertEquals(moves.get(i).getMove(), readMoves.get(i).getMove());
+                assertEquals(moves.get(i).getComments(), readMoves.get(i).getComments());
+            }
+            writer.write(read);
+        }
+        assertNull(reader.next());
+        writer.flush();
+        assertEquals(written.toString(), rewritten.toString());
+    }
+
+    /* Random legal moves, a hundred and fifty plies at most, so every kind of move turns up somewhere. */
+    static List<Game> randomGames(int count, Random random) {
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Game game = randomGame(random, 150);
+            game.setTag("Event", "Random " + i);
+            game.setTag("White", "Spot");
+            List<Move> moves = game.getMoveHistory();
+            for (int ply = 0; ply < moves.size(); ply++) {
+                if (random.nextInt(20) == 0) {
+                    moves.get(ply).setComments("Comment on ply " + ply);
+                }
+            }
+            game.setTag("Result", "*");
+            game.setTag("PlyCount", String.valueOf(game.getMoveHistory().size()));
+            games.add(game);
+        }
+        return games;
+    }
+}
@@ -0,0 +1,113 @@
+package com.debabrata.spotchess.support.notation.game;
+
+import com.debabrata.spotchess.types.Game;
+import com.debabrata.spotchess.types.Move;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelPGNReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsGamesInFileOrder() throws IOException {
+        List<Game> games = PGNReaderTest.randomGames(200, new Random(2));
+        Path file = write(games, "");
+        /* Chunks of a few kilobytes, so the games are spread over dozens of them. */
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, 3, true, 4096)) {
+            assertSameGames(games, readAll(reader));
+            assertNull(reader.next());
+            assertEquals(0, reader.getSkippedCount());
+        }
+    }
+
+    @Test
+    public void readsEveryGameUnordered() throws IOException {
+        List<Game> games = PGNReaderTest.randomGames(200, new Random(3));
+        Path file = write(games, "");
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, 4, false, 4096)) {
+            List<Game> read = readAll(reader);
+            Comparator<Game> byEvent = Comparator.comparing(game -> Integer.parseInt(game.getTag("Event").substring(7)));
+            read.sort(byEvent);
+            assertSameGames(games, read);
+        }
+    }
+
+    @Test
+    public void countsSkippedGames() throws IOException {
+        List<Game> games = PGNReaderTest.randomGames(20, new Random(4));
+        String bad = "[Event \"Bad\"]\n\n1. e4 e5 2. Ke3 *\n\n";
+        Path file = write(games, bad);
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, 2, true, 1024)) {
+            assertSameGames(games, readAll(reader));
+            assertEquals(20, reader.getSkippedCount());
+        }
+    }
+
+    @Test
+    public void readsEmptyFile() throws IOException {
+        Path file = Files.createFile(directory.resolve("empty.pgn"));
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, 2, false)) {
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void readsChunkWithoutEventTags() throws IOException {
+        Path file = directory.resolve("untagged.pgn");
+        Files.writeString(file, "1. e4 e5 *\n\n1. d4 d5 *\n\n[White \"Spot\"]\n\n1. c4 *\n");
+        try (ParallelPGNReader reader = new ParallelPGNReader(file, 2, true, 8)) {
+            assertEquals(2, reader.next().getMoveHistory().size());
+            assertEquals(2, reader.next().getMoveHistory().size());
+            assertEquals("Spot", reader.next().getTag("White"));
+            assertNull(reader.next());
+        }
+    }
+
+    /* The games with a game that can't be read after each one. */
+    private Path write(List<Game> games, String after) throws IOException {
+        Path file = directory.resolve("games.pgn");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             PGNWriter writer = new PGNWriter(out)) {
+            for (Game game : games) {
+                writer.write(game);
+                writer.flush();
+                out.write(after);
+            }
+        }
+        return file;
+    }
+
+    private static List<Game> readAll(ParallelPGNReader reader) throws IOException {
+        List<Game> games = new ArrayList<>();
+        for (Game game = reader.next(); game != null; game = reader.next()) {
+            games.add(game);
+        }
+        return games;
+    }
+
+    private static void assertSameGames(List<Game> expected, List<Game> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTag("Event"), actual.get(i).getTag("Event"));
+            List<Move> moves = expected.get(i).getMoveHistory();
+            List<Move> readMoves = actual.get(i).getMoveHistory();
+            assertEquals(moves.size(), readMoves.size());
+            for (int j = 0; j < moves.size(); j++) {
+                assertEquals(moves.get(j).getMove(), readMoves.get(j).getMove());
+            }
+        }
+    }
+}
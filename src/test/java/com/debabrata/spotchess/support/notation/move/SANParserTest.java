@@ -0,0 +1,83 @@
+package com.debabrata.spotchess.support.notation.move;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.MoveInitUtil;
+import org.junit.jupiter.api.Test;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.assertAllocatesNothing;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SANParserTest {
+    private final FENParser fenParser = new FENParser();
+    private final SANParser parser = new SANParser();
+
+    @Test
+    public void everyLegalMoveRoundTrips() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "N3k3/8/8/8/8/8/1N3N2/4K3 w - - 0 1"
+        };
+        long[] moves = new long[256];
+        MoveProcessor processor = new MoveProcessor(moves);
+        StringBuilder written = new StringBuilder();
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            int moveCount = processor.addAllLegalMoves(position, 0);
+            for (int i = 0; i < moveCount; i++) {
+                String notation = parser.getNotation(position, moves[i]);
+                assertEquals(moves[i], parser.getMove(position, notation), notation);
+                written.setLength(0);
+                assertEquals(notation, parser.appendNotation(position, moves[i], written.append("1. ")).substring(3));
+                assertEquals(moves[i], parser.getMove(position, written, 3, written.length()), notation);
+            }
+        }
+    }
+
+    @Test
+    public void readsWhatPeopleWrite() {
+        Position position = fenParser.getGame("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1").getCurrentPosition();
+        assertEquals(MoveInitUtil.newLeftCastle(), parser.getMove(position, "0-0-0"));
+        assertEquals(MoveInitUtil.newRightCastle(), parser.getMove(position, "o-o"));
+        assertEquals(MoveInitUtil.newEnPassant(1L << 35, 1L << 44), parser.getMove(position, "e x d6"));
+        assertEquals("bxa8=N", parser.getNotation(position, parser.getMove(position, "bxa8=n")));
+        assertEquals("Rxa8", parser.getNotation(position, parser.getMove(position, "R\txa8")));
+        assertEquals(0, parser.getMove(position, "0-O"));
+        assertEquals(0, parser.getMove(position, "b8")); /* Has to say what it promotes to. */
+        assertEquals(0, parser.getMove(position, " "));
+
+        position = fenParser.getGame("N3k3/8/8/8/8/8/1N3N2/4K3 w - - 0 1").getCurrentPosition();
+        assertEquals(0, parser.getMove(position, "Nd3")); /* Both knights get there. */
+        assertEquals("Nbd3", parser.getNotation(position, parser.getMove(position, "N b d 3")));
+    }
+
+    @Test
+    public void parsesOutOfMovetext() {
+        String movetext = "1. e4 e5 2. Nf3";
+        Position position = new Position(GameType.STANDARD);
+        long move = parser.getMove(position, movetext, 3, 5);
+        assertEquals(MoveInitUtil.newPawnDoubleMove(1L << 11, 1L << 27), move);
+        position.makeMove(move);
+        position.makeMove(parser.getMove(position, movetext, 6, 8));
+        assertEquals(parser.getMove(position, "Nf3"), parser.getMove(position, movetext, 12, 15));
+        assertEquals(0, parser.getMove(position, movetext, 12, 14));
+    }
+
+    @Test
+    public void doesNotAllocate() {
+        String movetext = "Nf3 N f3";
+        Position position = new Position(GameType.STANDARD);
+        StringBuilder written = new StringBuilder(16);
+        assertAllocatesNothing(() -> {
+            long move = parser.getMove(position, movetext, 0, 3);
+            parser.getMove(position, movetext, 4, 8);
+            written.setLength(0);
+            parser.appendNotation(position, move, written);
+        });
+        assertEquals("Nf3", written.toString());
+    }
+}
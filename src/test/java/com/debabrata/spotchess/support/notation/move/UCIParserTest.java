@@ -0,0 +1,82 @@
+package com.debabrata.spotchess.support.notation.move;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.MoveInitUtil;
+import org.junit.jupiter.api.Test;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.assertAllocatesNothing;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UCIParserTest {
+    private final FENParser fenParser = new FENParser();
+    private final UCIParser parser = new UCIParser();
+
+    @Test
+    public void everyLegalMoveRoundTrips() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+        };
+        long[] moves = new long[256];
+        MoveProcessor processor = new MoveProcessor(moves);
+        char[] written = new char[5];
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            int moveCount = processor.addAllLegalMoves(position, 0);
+            for (int i = 0; i < moveCount; i++) {
+                String notation = parser.getNotation(position, moves[i]);
+                assertTrue(parser.confirmFormat(notation), notation);
+                assertEquals(moves[i], parser.getMove(position, notation), notation);
+                int length = parser.getNotation(position, moves[i], written, 0);
+                assertEquals(notation, new String(written, 0, length));
+            }
+        }
+    }
+
+    @Test
+    public void specialMoves() {
+        Position position = fenParser.getGame("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1").getCurrentPosition();
+        assertEquals(MoveInitUtil.newLeftCastle(), parser.getMove(position, "e1c1"));
+        assertEquals(MoveInitUtil.newRightCastle(), parser.getMove(position, "e1g1"));
+        assertEquals(MoveInitUtil.newEnPassant(1L << 35, 1L << 44), parser.getMove(position, "e5d6"));
+        assertEquals("b7a8n", parser.getNotation(position, parser.getMove(position, "b7a8n")));
+        assertEquals("b7b8r", parser.getNotation(position, parser.getMove(position, "b7b8r")));
+        assertEquals(0, parser.getMove(position, "b7b8")); /* Has to say what it promotes to. */
+        assertEquals(0, parser.getMove(position, "b7b8k"));
+        assertEquals(0, parser.getMove(position, "e1d3"));
+        assertEquals(0, parser.getMove(position, "d5d4")); /* Not black's move. */
+        assertEquals(0, parser.getMove(position, "e1e2 "));
+    }
+
+    @Test
+    public void parsesOutOfALine() {
+        String line = "position startpos moves e2e4 e7e5";
+        Position position = new Position(GameType.STANDARD);
+        long move = parser.getMove(position, line, 24, 28);
+        assertEquals(MoveInitUtil.newPawnDoubleMove(1L << 11, 1L << 27), move);
+        position.makeMove(move);
+        assertNotEquals(0, parser.getMove(position, line, 29, 33));
+        assertEquals(0, parser.getMove(position, line, 24, 29));
+        StringBuilder builder = new StringBuilder("bestmove ");
+        assertEquals("bestmove e7e5", parser.appendNotation(position, parser.getMove(position, "e7e5"), builder)
+                .toString());
+    }
+
+    @Test
+    public void doesNotAllocate() {
+        String line = "e2e4 e7e5 g1f3";
+        Position position = new Position(GameType.STANDARD);
+        char[] written = new char[5];
+        long[] move = new long[1];
+        assertAllocatesNothing(() -> {
+            move[0] = parser.getMove(position, line, 0, 4);
+            parser.getNotation(position, move[0], written, 0);
+        });
+        assertNotEquals(0, move[0]);
+    }
+}
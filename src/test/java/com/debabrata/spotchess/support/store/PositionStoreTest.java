@@ -0,0 +1,74 @@
+package com.debabrata.spotchess.support.store;
+
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.randomGamePositions;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void storesRawPositions() throws IOException {
+        storesPositions(false);
+    }
+
+    @Test
+    public void storesPackedPositions() throws IOException {
+        storesPositions(true);
+    }
+
+    @Test
+    public void refusesWhatIsNotAStore() throws IOException {
+        Path file = directory.resolve("positions.bin");
+        Files.write(file, new byte[] { 'S', 'P', 'P', 'S' });
+        assertThrows(IOException.class, () -> PositionStore.open(file));
+        Files.write(file, new byte[16]);
+        assertThrows(IOException.class, () -> PositionStore.open(file));
+
+        try (PositionStore store = PositionStore.create(file, false)) {
+            store.add(new Position(GameType.STANDARD));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1)); /* A position cut short. */
+        assertThrows(IOException.class, () -> PositionStore.open(file));
+    }
+
+    /* More positions than get mapped at a time, so the store has to go across pieces. */
+    private void storesPositions(boolean packed) throws IOException {
+        Position[] positions = randomGamePositions(packed ? 8 : 9, 70_000);
+        Path file = directory.resolve("positions.bin");
+        try (PositionStore store = PositionStore.create(file, packed)) {
+            for (int i = 0; i < positions.length; i++) {
+                assertEquals(i, store.add(positions[i]));
+            }
+            assertEquals(positions[12_345], store.get(12_345));
+            assertEquals(positions[69_999], store.get(69_999));
+            /* Only the whole piece is in the file yet, nothing is written or mapped past the positions. */
+            assertEquals(16 + 65_536L * (packed ? 26 : 52), Files.size(file));
+        }
+        assertEquals(16 + 70_000L * (packed ? 26 : 52), Files.size(file));
+
+        try (PositionStore store = PositionStore.open(file)) {
+            assertEquals(packed, store.isPacked());
+            assertEquals(positions.length, store.size());
+            Position read = new Position(GameType.STANDARD);
+            for (int i = positions.length - 1; i >= 0; i -= 7) {
+                store.get(i, read);
+                assertEquals(positions[i], read);
+                assertEquals(positions[i].getMidgameScore(), read.getMidgameScore());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(positions.length));
+            assertThrows(IllegalStateException.class, () -> store.add(read));
+        }
+    }
+}
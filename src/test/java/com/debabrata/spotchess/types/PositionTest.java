@@ -1,6 +1,13 @@
 package com.debabrata.spotchess.types;
 
+import com.debabrata.spotchess.exception.InvalidPositionException;
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.support.notation.move.SANParser;
+import com.debabrata.spotchess.types.enums.Colour;
 import com.debabrata.spotchess.types.enums.GameType;
+import com.debabrata.spotchess.utils.PieceSquareUtil;
+import com.debabrata.spotchess.utils.ZobristUtil;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
@@ -76,4 +83,191 @@ public class PositionTest {
             assertEquals(position,positionCopy);
         }
     }
+
+    @Nested
+    class ZobristKeyTest {
+        private final long[] moveBuffer = new long[300 * 10];
+        private final MoveProcessor processor = new MoveProcessor(moveBuffer);
+
+        @Test
+        public void keyIsKeptUpToDate() {
+            /* Between them these have castling, en-passant, promotions and captures of unmoved rooks. */
+            String[] fens = {
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+            };
+            FENParser fenParser = new FENParser();
+            for (String fen : fens) {
+                Position position = fenParser.getGame(fen).getCurrentPosition();
+                assert position.getKey() == ZobristUtil.computeKey(position);
+                checkKeys(position, 0, 3);
+            }
+        }
+
+        private void checkKeys(Position position, int startWritingAt, int depth) {
+            if (depth == 0) {
+                return;
+            }
+            long key = position.getKey();
+            int flags = position.getFlags();
+            int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+            for (int i = startWritingAt; i < newWritingPosition; i++) {
+                int taken = position.makeMove(moveBuffer[i]);
+                if (position.getKey() != ZobristUtil.computeKey(position)) {
+                    throw new AssertionError("Key out of date after move " + Long.toHexString(moveBuffer[i]));
+                }
+                if (position.getPawnKey() != ZobristUtil.computePawnKey(position)) {
+                    throw new AssertionError("Pawn key out of date after move " + Long.toHexString(moveBuffer[i]));
+                }
+                checkKeys(position, newWritingPosition, depth - 1);
+                position.unmakeMove(moveBuffer[i], taken, flags);
+                if (position.getKey() != key) {
+                    throw new AssertionError("Key not restored after move " + Long.toHexString(moveBuffer[i]));
+                }
+            }
+        }
+
+        @Test
+        public void scoresAreKeptUpToDate() throws InvalidPositionException {
+            String[] fens = {
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+                    "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3"
+            };
+            FENParser fenParser = new FENParser();
+            for (String fen : fens) {
+                checkScores(fenParser.getGame(fen).getCurrentPosition(), 0, 3);
+            }
+            /* Symmetrical, so it all cancels out. */
+            Position start = new Position(GameType.STANDARD);
+            assert start.getMidgameScore() == 0 && start.getEndgameScore() == 0;
+            assert start.getPhase() == PieceSquareUtil.MAX_PHASE;
+        }
+
+        private void checkScores(Position position, int startWritingAt, int depth) throws InvalidPositionException {
+            if (depth == 0) {
+                return;
+            }
+            int flags = position.getFlags();
+            int midgame = position.getMidgameScore();
+            int endgame = position.getEndgameScore();
+            int phase = position.getPhase();
+            int newWritingPosition = processor.addAllLegalMoves(position, startWritingAt);
+            for (int i = startWritingAt; i < newWritingPosition; i++) {
+                int taken = position.makeMove(moveBuffer[i]);
+                Position fromScratch = new Position.Builder(position).build();
+                if (position.getMidgameScore() != fromScratch.getMidgameScore()
+                        || position.getEndgameScore() != fromScratch.getEndgameScore()
+                        || position.getPhase() != fromScratch.getPhase()) {
+                    throw new AssertionError("Scores out of date after move " + Long.toHexString(moveBuffer[i]));
+                }
+                checkScores(position, newWritingPosition, depth - 1);
+                position.unmakeMove(moveBuffer[i], taken, flags);
+                if (position.getMidgameScore() != midgame || position.getEndgameScore() != endgame
+                        || position.getPhase() != phase) {
+                    throw new AssertionError("Scores not restored after move " + Long.toHexString(moveBuffer[i]));
+                }
+            }
+        }
+
+        @Test
+        public void transpositionsHaveTheSameKey() {
+            Position position = new Position(GameType.STANDARD);
+            Position transposed = new Position(GameType.STANDARD);
+            move(position, "Nf3 Nf6 Nc3 Nc6");
+            move(transposed, "Nc3 Nc6 Nf3 Nf6");
+            assertStrictlyEquals(position, transposed);
+            assert position.getKey() == transposed.getKey();
+            assert position.hashCode() == transposed.hashCode();
+            assert position.equals(transposed);
+
+            /* Getting the knights back gets us the starting position, but the half move count differs. */
+            move(position, "Ng1 Ng8 Nb1 Nb8");
+            assert position.getKey() == new Position(GameType.STANDARD).getKey();
+        }
+
+        @Test
+        public void sameBoardWithDifferentRightsHasDifferentKeys() throws InvalidPositionException {
+            /* Same pieces, but one can take en-passant on f6 and the other on d6. */
+            Position position = new Position(GameType.STANDARD);
+            Position other = new Position(GameType.STANDARD);
+            move(position, "e4 d5 e5 f5");
+            move(other, "e4 f5 e5 d5");
+            assertEquals(position, other);
+            assert position.getKey() != other.getKey();
+
+            /* Same pieces, but white's king has moved and lost the right to castle. */
+            position = new Position(GameType.STANDARD);
+            other = new Position(GameType.STANDARD);
+            move(position, "e4 e5 Ke2 Ke7 Ke1 Ke8");
+            move(other, "e4 e5 Bc4 Bc5 Bf1 Bf8");
+            assertEquals(position, other);
+            assert position.getKey() != other.getKey();
+
+            /* Same pieces, different side to move. */
+            position = new Position(GameType.STANDARD);
+            other = new Position.Builder(GameType.STANDARD).toMove(Colour.BLACK).build();
+            assert position.getKey() != other.getKey();
+        }
+    }
+    @Nested
+    class StaticExchangeTest {
+        FENParser fenParser = new FENParser();
+        SANParser sanParser = new SANParser();
+
+        @Test
+        public void exchanges() {
+            /* Free pawn. */
+            see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "Rxe5", 100);
+            /* Knight takes a pawn defended by a pawn. */
+            see("1k6/8/2p5/3p4/8/4N3/8/1K6 w - - 0 1", "Nxd5", 100 - 320);
+            /* Rook behind the rook joins in once the first one has taken. */
+            see("1k6/3r4/8/3p4/8/8/3R4/1K1R4 w - - 0 1", "Rxd5", 100);
+            see("1k6/3r4/8/3p4/8/8/3R4/1K6 w - - 0 1", "Rxd5", 100 - 500);
+            /* Two rooks each, winning the pawn loses a rook. */
+            see("1k1r4/3r4/8/3p4/8/8/3R4/1K1R4 w - - 0 1", "Rxd5", 100 - 500);
+            /* Queen taking a defended pawn, and a bishop behind a pawn x-raying the same square. */
+            see("1k6/8/4p3/3p4/8/8/6Q1/1K6 w - - 0 1", "Qxd5", 100 - 900);
+            see("1k6/8/4p3/3p4/4P3/5B2/8/1K6 w - - 0 1", "exd5", 100);
+            see("1k6/8/4p3/3p4/4P3/8/8/1K6 w - - 0 1", "exd5", 0);
+            /* A king only takes when the square isn't defended any more. */
+            see("8/8/8/3pk3/2P5/8/8/1K6 w - - 0 1", "cxd5", 0);
+            see("8/8/8/3pk3/2P5/8/8/1K1R4 w - - 0 1", "cxd5", 100);
+            /* Quiet move to an attacked square and one to a safe square. */
+            see("1k6/8/8/4p3/8/8/8/1K1Q4 w - - 0 1", "Qd4", -900);
+            see("1k6/8/8/4p3/8/8/8/1K1Q4 w - - 0 1", "Qd3", 0);
+        }
+
+        @Test
+        public void specialMoves() {
+            /* En-passant with nothing defending, and promotions with and without capture. */
+            see("1k6/8/8/3pP3/8/8/8/1K6 w - d6 0 1", "exd6", 100);
+            see("1k6/4P3/8/8/8/8/8/1K6 w - - 0 1", "e8=Q", 800);
+            see("1k1r4/4P3/8/8/8/8/8/1K6 w - - 0 1", "e8=N", 320 - 100 - 320);
+            see("1k1rr3/3P4/8/8/8/8/8/1K6 w - - 0 1", "dxe8=Q", 500 + 800 - 900);
+            see("r3k3/8/8/8/8/8/8/4K3 b q - 0 1", "O-O-O", 0);
+        }
+
+        @Test
+        public void leavesThePositionAsItWas() {
+            Position position = fenParser.getGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -")
+                    .getCurrentPosition();
+            long[] moves = MoveProcessor.getMovesInPosition(position).stream().mapToLong(Long::longValue).toArray();
+            Position copy = new Position(position);
+            for (long move : moves) {
+                position.staticExchange(move);
+            }
+            assertStrictlyEquals(position, copy);
+        }
+
+        private void see(String fen, String san, int expected) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            int see = position.staticExchange(sanParser.getMove(position, san));
+            assert see == expected : fen + " " + san + " gave " + see;
+        }
+    }
 }
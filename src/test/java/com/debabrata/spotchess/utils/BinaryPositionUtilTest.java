@@ -0,0 +1,65 @@
+package com.debabrata.spotchess.utils;
+
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import com.debabrata.spotchess.types.enums.GameType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.debabrata.spotchess.support.test.SpotTestSupport.randomGamePositions;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryPositionUtilTest {
+    @Test
+    public void positionsAlongRandomGamesRoundTrip() {
+        Position[] positions = randomGamePositions(7, 5000);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        Position read = new Position(GameType.STANDARD);
+        for (int i = 0; i < positions.length; i++) {
+            Position position = positions[i];
+            int at = i % 7; /* Anywhere in the buffer, aligned or not. */
+            BinaryPositionUtil.writeRaw(position, buffer, at);
+            BinaryPositionUtil.readRaw(buffer, at, read);
+            assertSame(position, read);
+
+            int size = BinaryPositionUtil.writePacked(position, buffer, at);
+            assertEquals(BinaryPositionUtil.getPackedSize(position), size);
+            assertTrue(size <= BinaryPositionUtil.MAX_PACKED_SIZE);
+            assertEquals(size, BinaryPositionUtil.readPacked(buffer, at, read));
+            assertSame(position, read);
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void packsEnPassantAndCastling() {
+        FENParser fenParser = new FENParser();
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryPositionUtil.MAX_PACKED_SIZE);
+        Position read = new Position(GameType.STANDARD);
+        String[] fens = {
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b Qk d3 0 2",
+                "4k3/8/8/8/8/8/8/4K3 b - - 99 80"
+        };
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            BinaryPositionUtil.readPacked(buffer, 0, read); /* Whatever was there before. */
+            BinaryPositionUtil.writePacked(position, buffer, 0);
+            BinaryPositionUtil.readPacked(buffer, 0, read);
+            assertSame(position, read);
+        }
+        assertEquals(11, BinaryPositionUtil.getPackedSize(fenParser.getGame(fens[2]).getCurrentPosition()));
+
+        buffer.put(8, (byte) 0x0D); /* A code 13. */
+        assertThrows(IllegalArgumentException.class, () -> BinaryPositionUtil.readPacked(buffer, 0, read));
+    }
+
+    private static void assertSame(Position expected, Position actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getPawnKey(), actual.getPawnKey());
+        assertEquals(expected.getMidgameScore(), actual.getMidgameScore());
+        assertEquals(expected.getEndgameScore(), actual.getEndgameScore());
+        assertEquals(expected.getPhase(), actual.getPhase());
+    }
+}
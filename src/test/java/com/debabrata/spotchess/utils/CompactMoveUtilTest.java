@@ -0,0 +1,72 @@
+package com.debabrata.spotchess.utils;
+
+import com.debabrata.spotchess.logic.MoveProcessor;
+import com.debabrata.spotchess.support.notation.game.FENParser;
+import com.debabrata.spotchess.types.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactMoveUtilTest {
+    FENParser fenParser = new FENParser();
+
+    /* Between them these have every kind of move, for both sides. */
+    String[] fens = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq -",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 b kq - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 2"
+    };
+
+    @Test
+    public void roundTripsEveryKindOfMove() {
+        Set<Integer> kinds = new HashSet<>();
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            for (long move : MoveProcessor.getMovesInPosition(position)) {
+                short compact = CompactMoveUtil.toCompact(move);
+                assertEquals(move, CompactMoveUtil.toMove(compact));
+                kinds.add(CompactMoveUtil.getKind(compact));
+            }
+        }
+        assertEquals(9, kinds.size());
+        assertEquals(0, CompactMoveUtil.toCompact(0));
+        assertEquals(0, CompactMoveUtil.toMove((short) 0));
+    }
+
+    @Test
+    public void squares() {
+        short compact = CompactMoveUtil.toCompact(MoveInitUtil.newMove(1L << 12, 1L << 28));
+        assertEquals(12, CompactMoveUtil.getLowSquare(compact));
+        assertEquals(28, CompactMoveUtil.getHighSquare(compact));
+        assertEquals(CompactMoveUtil.NORMAL, CompactMoveUtil.getKind(compact));
+    }
+
+    @Test
+    public void compactMoveGeneration() {
+        long[] moveBuffer = new long[256];
+        Arrays.fill(moveBuffer, 7);
+        MoveProcessor processor = new MoveProcessor(moveBuffer);
+        short[] compactMoves = new short[300];
+        for (String fen : fens) {
+            Position position = fenParser.getGame(fen).getCurrentPosition();
+            List<Long> moves = MoveProcessor.getMovesInPosition(position);
+            int end = processor.addAllLegalMoves(position, compactMoves, 10);
+            assertEquals(10 + moves.size(), end);
+            for (int i = 10; i < end; i++) {
+                assertEquals(moves.get(i - 10), CompactMoveUtil.toMove(compactMoves[i]));
+            }
+            /* The moves go straight to compactMoves, whatever a search had in the long buffer is left alone. */
+            assertTrue(Arrays.stream(moveBuffer).allMatch(move -> move == 7));
+            assertEquals(moves.size(), new MoveProcessor(null).addAllLegalMoves(position, compactMoves, 0));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.debabrata.spotchess.logic.nnue;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.debabrata.spotchess.logic.nnue.NnueNetwork.QA;
+
+/**
+ * Same as {@link ScalarNnueOps}, as many shorts at a time as the hardware takes. The output widens to ints before
+ * multiplying, a clipped accumulator times a weight doesn't fit in a short. Whatever's left past the last full vector
+ * is done one at a time.
+ */
+final class VectorNnueOps implements NnueOps {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    /* Same width in bits, so one short vector widens to exactly two of these. */
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] ours, short[] theirs, short[] weights) {
+        int size = ours.length;
+        return dot(ours, weights, 0, size) + dot(theirs, weights, size, size);
+    }
+
+    private static int dot(short[] accumulator, short[] weights, int offset, int size) {
+        ShortVector zero = ShortVector.zero(SHORTS);
+        ShortVector ceiling = ShortVector.broadcast(SHORTS, (short) QA);
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = SHORTS.loopBound(size); i < bound; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, accumulator, i).max(zero).min(ceiling);
+            ShortVector weight = ShortVector.fromArray(SHORTS, weights, offset + i);
+            for (int part = 0; part < 2; part++) {
+                IntVector a = (IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector w = (IntVector) weight.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(a.mul(w));
+            }
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) {
+            total += Math.min(Math.max(accumulator[i], 0), QA) * weights[offset + i];
+        }
+        return total;
+    }
+}